@@ -1,4 +1,8 @@
 --
+-- Initial schema of the person table. Flyway baselines a database created from this dump at V1 and
+-- applies src/main/resources/db/migration from V2 on; schema changes go there, not here.
+--
+--
 -- PostgreSQL database dump
 --
 
@@ -27,7 +31,7 @@ SET default_table_access_method = heap;
 CREATE TABLE public.person (
     id bigint NOT NULL,
     username character varying(100) NOT NULL,
-    password character varying(100) NOT NULL,
+    password character varying(255) NOT NULL,
     email character varying(50) NOT NULL,
     role character varying(100) NOT NULL,
     last_login timestamp without time zone
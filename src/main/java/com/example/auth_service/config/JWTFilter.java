@@ -1,8 +1,15 @@
 package com.example.auth_service.config;
 
-import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.AccessTokenDenylist;
 import com.example.auth_service.security.JWTUtil;
+import com.example.auth_service.security.PersonDetails;
 import com.example.auth_service.security.PersonDetailsService;
+import com.example.auth_service.security.PrincipalRevocationCheck;
+import com.example.auth_service.security.TokenVersionService;
+import com.example.auth_service.security.VerifiedTokenCache;
+import com.example.auth_service.util.LogSampler;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,6 +17,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,6 +26,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 
 @Component
@@ -26,18 +38,39 @@ public class JWTFilter extends OncePerRequestFilter {
 
     private final JWTUtil jwtUtil;
     private final PersonDetailsService personDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final PrincipalRevocationCheck revocationCheck;
+    private final TokenVersionService tokenVersionService;
+    private final AccessTokenDenylist denylist;
+    private final boolean statelessPrincipal;
+    private final LogSampler logSampler;
 
     @Autowired
-    public JWTFilter(JWTUtil jwtUtil, PersonDetailsService personDetailsService) {
+    public JWTFilter(JWTUtil jwtUtil, PersonDetailsService personDetailsService, VerifiedTokenCache verifiedTokenCache,
+                     PrincipalRevocationCheck revocationCheck, TokenVersionService tokenVersionService,
+                     AccessTokenDenylist denylist,
+                     @Value("${jwt.stateless.enabled:false}") boolean statelessPrincipal,
+                     @Value("${jwt.filter.log-sample-rate:100}") int logSampleRate) {
         this.jwtUtil = jwtUtil;
         this.personDetailsService = personDetailsService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revocationCheck = revocationCheck;
+        this.tokenVersionService = tokenVersionService;
+        this.denylist = denylist;
+        this.statelessPrincipal = statelessPrincipal;
+        this.logSampler = new LogSampler(logSampleRate);
+    }
+
+    // permitAll routes never need a principal, so they skip header parsing and verification entirely
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PublicEndpoints.matches(request);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        logger.info("Authorization header = {}", authHeader);
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -50,28 +83,68 @@ public class JWTFilter extends OncePerRequestFilter {
         }
 
         try {
-            DecodedJWT decodedJWT = jwtUtil.validateAccessToken(jwt);
-            String username = decodedJWT.getClaim("username").asString();
-            String role = decodedJWT.getClaim("role").asString();
-
-            if (username != null && role != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = personDetailsService.loadUserByUsername(username);
+            AccessTokenClaims claims = verifiedTokenCache.get(jwt);
+            if (claims == null) {
+                claims = jwtUtil.verifyAccessToken(jwt);
+                verifiedTokenCache.put(jwt, claims);
+            }
+            String username = claims.getUsername();
+            String role = claims.getRole();
 
-                UsernamePasswordAuthenticationToken auth =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                List.of(new SimpleGrantedAuthority(role))
-                        );
+            if (tokenVersionService.isStale(claims)) {
+                if (logger.isDebugEnabled() && logSampler.sample()) {
+                    logger.debug("event=jwt_stale user_id={} ver={} token={}",
+                            claims.getId(), claims.getVersion(), fingerprint(jwt));
+                }
+            } else if (denylist.isRevoked(claims)) {
+                if (logger.isDebugEnabled() && logSampler.sample()) {
+                    logger.debug("event=jwt_denylisted user_id={} token={}", claims.getId(), fingerprint(jwt));
+                }
+            } else if (username != null && role != null
+                    && SecurityContextHolder.getContext().getAuthentication() == null) {
+                if (statelessPrincipal && revocationCheck.isRevoked(claims)) {
+                    if (logger.isWarnEnabled() && logSampler.sample()) {
+                        logger.warn("event=jwt_revoked user_id={} kid={} token={}",
+                                claims.getId(), claims.getKid(), fingerprint(jwt));
+                    }
+                } else {
+                    UserDetails userDetails = statelessPrincipal
+                            ? PersonDetails.fromClaims(claims)
+                            : personDetailsService.loadUserByUsername(username);
+                    UsernamePasswordAuthenticationToken auth =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails,
+                                    null,
+                                    List.of(new SimpleGrantedAuthority(role))
+                            );
+                    // lets logout revoke exactly the token this request came with
+                    auth.setDetails(claims);
 
-                SecurityContextHolder.getContext().setAuthentication(auth);
+                    SecurityContextHolder.getContext().setAuthentication(auth);
+                }
+            }
+        } catch (JWTVerificationException e) {
+            if (logger.isDebugEnabled() && logSampler.sample()) {
+                logger.debug("event=jwt_rejected path={} reason=\"{}\" token={}",
+                        request.getRequestURI(), e.getMessage(), fingerprint(jwt));
             }
         } catch (Exception e) {
-            logger.error("Error in JWT filter: {}", e.getMessage(), e);
-            filterChain.doFilter(request, response);
-            return;
+            if (logger.isWarnEnabled() && logSampler.sample()) {
+                logger.warn("event=jwt_filter_error path={} error={} reason=\"{}\" token={}",
+                        request.getRequestURI(), e.getClass().getSimpleName(), e.getMessage(), fingerprint(jwt));
+            }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    // short, non-reversible id to correlate log lines for the same token without ever logging the token
+    private static String fingerprint(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            return "unavailable";
+        }
+    }
 }
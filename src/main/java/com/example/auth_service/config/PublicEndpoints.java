@@ -0,0 +1,58 @@
+package com.example.auth_service.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Routes that are reachable without a token. {@link SpringConfig} permits them and {@link JWTFilter}
+ * doesn't run for them, so both read the same list.
+ */
+public final class PublicEndpoints {
+    public static final String[] PATTERNS = {
+            "/login",
+            "/registration",
+            "/availability",
+            "/.well-known/jwks.json",
+            "/swagger-ui/**",
+            "/v3/api-docs/**",
+            "/swagger-resources/**",
+            "/swagger-ui.html",
+            "/test-errors/**"
+    };
+
+    private static final Set<String> EXACT = Arrays.stream(PATTERNS)
+            .filter(pattern -> !pattern.endsWith("/**"))
+            .collect(Collectors.toUnmodifiableSet());
+    private static final String[] PREFIXES = Arrays.stream(PATTERNS)
+            .filter(pattern -> pattern.endsWith("/**"))
+            .map(pattern -> pattern.substring(0, pattern.length() - 3))
+            .toArray(String[]::new);
+
+    private PublicEndpoints() {
+    }
+
+    public static boolean matches(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        return matches(path);
+    }
+
+    public static boolean matches(String path) {
+        if (EXACT.contains(path)) {
+            return true;
+        }
+        for (String prefix : PREFIXES) {
+            if (path.startsWith(prefix)
+                    && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,20 +1,31 @@
 package com.example.auth_service.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+
 @Configuration
 public class RedisConfig {
 
+    // the command timeout frees a thread stuck on a stalled Redis; request paths use tighter budgets on top
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
-        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration("redis", 6379);
-        return new LettuceConnectionFactory(config);
+    public RedisConnectionFactory redisConnectionFactory(@Value("${spring.data.redis.host:redis}") String host,
+                                                         @Value("${spring.data.redis.port:6379}") int port,
+                                                         @Value("${spring.data.redis.timeout:2s}") Duration timeout) {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(host, port);
+        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                .commandTimeout(timeout)
+                .build();
+        return new LettuceConnectionFactory(config, clientConfig);
     }
 
     @Bean
@@ -23,6 +34,17 @@ public class RedisConfig {
         template.setConnectionFactory(factory);
         template.setKeySerializer(new StringRedisSerializer());
         template.setValueSerializer(new StringRedisSerializer());
+        // hash fields and values are written by Lua scripts as well, so they stay plain strings too
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setHashValueSerializer(new StringRedisSerializer());
         return template;
     }
+
+    // one shared pub/sub connection for every listener in the service
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
 }
@@ -2,26 +2,32 @@ package com.example.auth_service.config;
 
 import com.example.auth_service.exception.CustomAccessDeniedHandler;
 import com.example.auth_service.exception.CustomAuthenticationEntryPoint;
+import com.example.auth_service.security.PasswordHashing;
 import com.example.auth_service.security.PersonDetailsService;
+import com.example.auth_service.security.RehashingAuthenticationProvider;
+import com.example.auth_service.service.PasswordRehashService;
 import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
@@ -29,6 +35,7 @@ public class SpringConfig {
     private final JWTFilter jwtFilter;
     private final CustomAccessDeniedHandler customAccessDeniedHandler;
     private final CustomAuthenticationEntryPoint customAuthenticationEntryPoint;
+    private final Logger logger = LoggerFactory.getLogger(SpringConfig.class);
 
     @Autowired
     public SpringConfig(JWTFilter jwtFilter, CustomAccessDeniedHandler customAccessDeniedHandler, CustomAuthenticationEntryPoint customAuthenticationEntryPoint) {
@@ -38,9 +45,10 @@ public class SpringConfig {
     }
 
     @Bean
-    public DaoAuthenticationProvider daoAuthenticationProvider(PersonDetailsService personDetailsService,
-                                                               PasswordEncoder passwordEncoder) {
-        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
+    public RehashingAuthenticationProvider daoAuthenticationProvider(PersonDetailsService personDetailsService,
+                                                               PasswordEncoder passwordEncoder,
+                                                               PasswordRehashService passwordRehashService) {
+        RehashingAuthenticationProvider authProvider = new RehashingAuthenticationProvider(passwordRehashService);
         authProvider.setUserDetailsService(personDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
@@ -48,7 +56,7 @@ public class SpringConfig {
 
     @Bean
     public AuthenticationManager authenticationManager(HttpSecurity http,
-                                                       DaoAuthenticationProvider daoAuthenticationProvider) throws Exception {
+                                                       RehashingAuthenticationProvider daoAuthenticationProvider) throws Exception {
         return http.getSharedObject(AuthenticationManagerBuilder.class)
                 .authenticationProvider(daoAuthenticationProvider)
                 .build();
@@ -56,23 +64,17 @@ public class SpringConfig {
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http,
-                                                   DaoAuthenticationProvider daoAuthenticationProvider) throws Exception {
+                                                   RehashingAuthenticationProvider daoAuthenticationProvider) throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/login", "/registration").permitAll()
-                        .requestMatchers(
-                                "/swagger-ui/**",
-                                "/v3/api-docs/**",
-                                "/swagger-resources/**",
-                                "/swagger-ui.html"
-                        ).permitAll()
-                        .requestMatchers("/test-errors/**").permitAll()
+                        .requestMatchers(PublicEndpoints.PATTERNS).permitAll()
                         .requestMatchers("/admin/promote").hasRole("USER")
-                        .requestMatchers("/delete", "/profile", "/refresh", "/logout", "/update")
+                        .requestMatchers("/delete", "/profile", "/refresh", "/logout", "/update", "/sessions", "/sessions/*")
                         .hasAnyRole("USER", "ADMIN")
-                        .requestMatchers("/admin/test", "/admin/all-users", "/admin/stats", "/admin/delete/{id}")
+                        .requestMatchers("/admin/test", "/admin/all-users", "/admin/stats", "/admin/delete/{id}",
+                                "/admin/import")
                         .hasRole("ADMIN")
                 )
                 .authenticationProvider(daoAuthenticationProvider)
@@ -90,9 +92,26 @@ public class SpringConfig {
         return new ModelMapper();
     }
 
+    // a cost of 0 means calibrated at startup to password.target-verify-time
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${password.encoder:bcrypt}") String encoder,
+                                           @Value("${password.target-verify-time:250ms}") Duration targetVerifyTime,
+                                           @Value("${password.bcrypt.strength:0}") int bcryptStrength,
+                                           @Value("${password.argon2.memory-kib:19456}") int argon2MemoryKib,
+                                           @Value("${password.argon2.iterations:0}") int argon2Iterations) {
+        if (bcryptStrength == 0) {
+            bcryptStrength = PasswordHashing.BCRYPT.equals(encoder)
+                    ? PasswordHashing.calibrateBcryptStrength(targetVerifyTime)
+                    : PasswordHashing.MIN_BCRYPT_STRENGTH;
+        }
+        if (argon2Iterations == 0) {
+            argon2Iterations = PasswordHashing.ARGON2.equals(encoder)
+                    ? PasswordHashing.calibrateArgon2Iterations(targetVerifyTime, argon2MemoryKib)
+                    : PasswordHashing.MIN_ARGON2_ITERATIONS;
+        }
+        logger.info("Password hashing: {} for new hashes, bcrypt strength {}, argon2 {} KiB x {} iterations",
+                encoder, bcryptStrength, argon2MemoryKib, argon2Iterations);
+        return PasswordHashing.encoder(encoder, bcryptStrength, argon2MemoryKib, argon2Iterations);
     }
 
     @Bean
@@ -9,15 +9,19 @@ import com.example.auth_service.security.PersonDetails;
 import com.example.auth_service.service.AdminService;
 import com.example.auth_service.service.LogoutService;
 import com.example.auth_service.service.PeopleService;
+import com.example.auth_service.service.UserImportService;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -26,21 +30,28 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import io.swagger.v3.oas.annotations.Operation;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("/admin")
 @Tag(name = "Admin", description = "Endpoints for change user role and admin actions")
 public class AdminController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final AdminService adminService;
     private final LogoutService logoutService;
     private final PeopleService peopleService;
+    private final UserImportService userImportService;
     private final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
-    public AdminController(AdminService adminService, LogoutService logoutService, PeopleService peopleService) {
+    public AdminController(AdminService adminService, LogoutService logoutService, PeopleService peopleService,
+                           UserImportService userImportService) {
         this.adminService = adminService;
         this.logoutService = logoutService;
         this.peopleService = peopleService;
+        this.userImportService = userImportService;
     }
 
     @Operation(summary = "Change ROLE_USER to ROLE_ADMIN",
@@ -107,7 +118,7 @@ public class AdminController {
         logger.debug("Middle of the method");
         adminService.promotePerson(personDetails.getId());
         logger.info("Promotion was successful");
-        return logoutService.buildLogoutResponse(personDetails.getUsername());
+        return logoutService.buildLogoutResponse(personDetails.getId(), personDetails.getUsername());
     }
 
     @Operation(summary = "Get all users",
@@ -273,4 +284,51 @@ public class AdminController {
         peopleService.deletePerson(id);
         return ResponseEntity.ok("User with ID " + id + " was deleted by admin");
     }
+
+    @Operation(summary = "Import users in bulk",
+            description = "Creates ROLE_USER accounts from an NDJSON body (one {\"username\", \"email\", \"password\"} " +
+                    "object per line) or a CSV body with a username,email,password header. Rows are validated like " +
+                    "registrations. The response is NDJSON, written while the body is still being read: one result per " +
+                    "row in file order, then a summary.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Row results followed by a summary line.",
+                            content = @Content(
+                                    mediaType = "application/x-ndjson",
+                                    examples = @ExampleObject(
+                                            name = "OK",
+                                            summary = "Two rows, the second one taken.",
+                                            value = "{\"line\":1,\"status\":\"created\",\"id\":1051,\"username\":\"john\"}\n" +
+                                                    "{\"line\":2,\"status\":\"rejected\",\"username\":\"maria\",\"error\":\"email: This email is already taken!\"}\n" +
+                                                    "{\"created\":1,\"rejected\":1,\"complete\":true}"
+                                    ))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorResponseDTO.class),
+                                    examples = @ExampleObject(
+                                            name = "Unauthorized",
+                                            summary = "Example of 401 Unauthorized",
+                                            value = "{\n  \"path\": \"/admin/import\",\n  \"message\": \"Unauthorized: missing or invalid token\",\n  \"status\": 401\n}"
+                                    ))),
+                    @ApiResponse(responseCode = "403", description = "Forbidden.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorResponseDTO.class),
+                                    examples = @ExampleObject(
+                                            name = "Forbidden",
+                                            summary = "Example of 403 Forbidden",
+                                            value = "{\n  \"path\": \"/admin/import\",\n  \"message\": \"Access denied: insufficient permissions\",\n  \"status\": 403\n}"
+                                    )))
+            })
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                ? UserImportService.Format.CSV : UserImportService.Format.NDJSON;
+        // written straight to the response on this thread: an import runs far longer than the async request timeout
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        userImportService.importUsers(request.getInputStream(), format, response.getOutputStream());
+    }
 }
@@ -1,42 +1,56 @@
 package com.example.auth_service.controller;
 
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.example.auth_service.dto.*;
 import com.example.auth_service.exception.ErrorResponseDTO;
+import com.example.auth_service.exception.RefreshStoreUnavailableException;
 import com.example.auth_service.exception.ValidationException;
 import com.example.auth_service.security.JWTUtil;
+import com.example.auth_service.security.LoginThrottle;
+import com.example.auth_service.security.PasswordHashingExecutor;
 import com.example.auth_service.security.PersonDetails;
 import com.example.auth_service.security.PersonDetailsService;
-import com.example.auth_service.security.RefreshTokenService;
+import com.example.auth_service.security.RefreshRotation;
+import com.example.auth_service.security.RefreshSessionInfo;
+import com.example.auth_service.security.RefreshTokenStore;
+import com.example.auth_service.security.RehashingAuthenticationProvider;
+import com.example.auth_service.security.TokenVersionService;
 import com.example.auth_service.service.LogoutService;
 import com.example.auth_service.service.PeopleService;
-import com.example.auth_service.validation.validator.PersonValidator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Validated
 @RestController
@@ -46,20 +60,29 @@ public class AuthController {
     private final JWTUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
     private final PersonDetailsService personDetailsService;
-    private final RefreshTokenService refreshTokenService;
+    private final RefreshTokenStore refreshTokenStore;
     private final Logger logger = LoggerFactory.getLogger(AuthController.class);
     private final PeopleService peopleService;
-    private final PersonValidator personValidator;
     private final LogoutService logoutService;
+    private final TokenVersionService tokenVersionService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final LoginThrottle loginThrottle;
+    private final PasswordEncoder passwordEncoder;
+    private final Executor taskExecutor;
 
-    public AuthController(JWTUtil jwtUtil, AuthenticationManager authenticationManager, PersonDetailsService personDetailsService, RefreshTokenService refreshTokenService, PeopleService peopleService, PersonValidator personValidator, LogoutService logoutService) {
+    public AuthController(JWTUtil jwtUtil, AuthenticationManager authenticationManager, PersonDetailsService personDetailsService, RefreshTokenStore refreshTokenStore, PeopleService peopleService, LogoutService logoutService, TokenVersionService tokenVersionService, PasswordHashingExecutor passwordHashingExecutor, LoginThrottle loginThrottle,
+                          PasswordEncoder passwordEncoder, @Qualifier("applicationTaskExecutor") Executor taskExecutor) {
         this.jwtUtil = jwtUtil;
         this.authenticationManager = authenticationManager;
         this.personDetailsService = personDetailsService;
-        this.refreshTokenService = refreshTokenService;
+        this.refreshTokenStore = refreshTokenStore;
         this.peopleService = peopleService;
-        this.personValidator = personValidator;
         this.logoutService = logoutService;
+        this.tokenVersionService = tokenVersionService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.loginThrottle = loginThrottle;
+        this.passwordEncoder = passwordEncoder;
+        this.taskExecutor = taskExecutor;
     }
 
     @Operation(summary = "Login",
@@ -87,6 +110,15 @@ public class AuthController {
                                             summary = "Example of 401 Unauthorized",
                                             value = "{ \"status\": 401, \"message\": \"Invalid username or password\", \"path\": \"/login\" }"
                                     ))),
+                    @ApiResponse(responseCode = "429", description = "Too many login attempts from this address or for this username, retry after the Retry-After header.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorResponseDTO.class),
+                                    examples = @ExampleObject(
+                                            name = "Too many requests",
+                                            summary = "Example of 429 Too Many Requests",
+                                            value = "{ \"status\": 429, \"message\": \"Too many login attempts, try again later\", \"path\": \"/login\" }"
+                                    ))),
                     @ApiResponse(responseCode = "500", description = "Internal server error.",
                             content = @Content(
                                     mediaType = "application/json",
@@ -96,56 +128,73 @@ public class AuthController {
                                             summary = "Example of 500 Internal Server Error",
                                             value = "{ \"status\": 500, \"error\": \"Internal Server Error\", \"path\": \"/login\" }"
                                     ))),
-                    @ApiResponse(responseCode = "503", description = "Service unavailable.",
+                    @ApiResponse(responseCode = "503", description = "Too many password checks queued, retry after the Retry-After header.",
                             content = @Content(
                                     mediaType = "application/json",
                                     schema = @Schema(implementation = ErrorResponseDTO.class),
                                     examples = @ExampleObject(
                                             name = "Service unavailable",
                                             summary = "Example of 503 Service unavailable.",
-                                            value = "{ \"timestamp\": \"2025-06-20T11:11:00.038+00:00\", \"path\": \"/login\", \"status\": 503, \"error\": \"Service unavailable\", \"requestId\": \"335c1b74-7\" }"
+                                            value = "{ \"status\": 503, \"message\": \"Service is busy, try again later\", \"path\": \"/login\" }"
                                     )))
             })
     @PostMapping("/login")
-    public ResponseEntity<?> performAuthentication(@RequestBody LoginRequestDTO loginRequest, HttpServletResponse response) {
-        try {
-            logger.debug(">>> Received login request: {}", loginRequest.getUsername());
-            Authentication authentication = authenticationManager
-                    .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(),
-                            loginRequest.getPassword()));
+    public CompletableFuture<ResponseEntity<?>> performAuthentication(@RequestBody LoginRequestDTO loginRequest, HttpServletRequest request,
+                                                                      @RequestHeader(value = HttpHeaders.USER_AGENT, required = false) String userAgent) {
+        logger.debug(">>> Received login request: {}", loginRequest.getUsername());
+        // the client's address as forwarded by a trusted proxy, see server.forward-headers-strategy
+        loginThrottle.check(request.getRemoteAddr(), loginRequest.getUsername());
+        // the hashing pool only verifies the password: the user is looked up here and the tokens are issued on
+        // the task executor, so a slow database or Redis can't fill the pool's queue
+        UserDetails user = loadUser(loginRequest.getUsername());
+        return passwordHashingExecutor.submit(() -> authenticationManager
+                        .authenticate(RehashingAuthenticationProvider.withLoadedUser(loginRequest.getUsername(),
+                                loginRequest.getPassword(), user)))
+                .<ResponseEntity<?>>thenApplyAsync(authentication -> issueTokens(authentication, userAgent), taskExecutor)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (!(cause instanceof BadCredentialsException)) {
+                        throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                    }
+                    ErrorResponseDTO error = new ErrorResponseDTO();
+                    error.setStatus(401);
+                    error.setMessage("Invalid username or password");
+                    error.setPath("/login");
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            PersonDetails personDetails = (PersonDetails) authentication.getPrincipal();
-            String role = personDetails.getAuthorities().stream()
-                    .findFirst()
-                    .map(GrantedAuthority::getAuthority)
-                    .orElse("ROLE_USER");
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+                });
+    }
 
-            String accessToken = jwtUtil.generateAccessToken(personDetails.getId(), personDetails.getUsername(), role);
-            String refreshToken = jwtUtil.generateRefreshToken(personDetails.getUsername());
+    // null for an unknown username, which then fails on the hashing pool after as long as a wrong password
+    private UserDetails loadUser(String username) {
+        try {
+            return personDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
 
-            refreshTokenService.saveRefreshToken(personDetails.getUsername(), refreshToken);
+    private ResponseEntity<?> issueTokens(Authentication authentication, String userAgent) {
+        PersonDetails personDetails = (PersonDetails) authentication.getPrincipal();
+        String role = personDetails.getAuthorities().stream()
+                .findFirst()
+                .map(GrantedAuthority::getAuthority)
+                .orElse("ROLE_USER");
 
-            ResponseCookie cookie = ResponseCookie.from("refreshToken", refreshToken)
-                    .httpOnly(true)
-                    .secure(true)
-                    .path("/")
-                    .maxAge(Duration.ofDays(7))
-                    .sameSite("None")
-                    .build();
-            response.setHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        String accessToken = jwtUtil.generateAccessToken(personDetails.getId(), personDetails.getUsername(), role,
+                tokenVersionService.currentVersion(personDetails.getId()));
+        String sessionId = jwtUtil.newSessionId();
+        String refreshToken = jwtUtil.generateRefreshToken(personDetails.getId(), personDetails.getUsername(),
+                sessionId);
 
-            peopleService.setLastLogin(personDetails.getId());
+        refreshTokenStore.saveRefreshToken(personDetails.getId(), personDetails.getUsername(), role,
+                sessionId, refreshToken, userAgent);
 
-            return ResponseEntity.ok(new JWTResponse(accessToken, personDetails.getId(), personDetails.getUsername(), personDetails.getEmail()));
-        } catch (BadCredentialsException e) {
-            ErrorResponseDTO error = new ErrorResponseDTO();
-            error.setStatus(401);
-            error.setMessage("Invalid username or password");
-            error.setPath("/login");
+        peopleService.setLastLogin(personDetails.getId());
 
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
-        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, refreshCookie(refreshToken).toString())
+                .body(new JWTResponse(accessToken, personDetails.getId(), personDetails.getUsername(), personDetails.getEmail()));
     }
 
     @Operation(summary = "Registration method",
@@ -168,7 +217,7 @@ public class AuthController {
                                             summary = "Example of 400 Bad Request",
                                             value = "{\n" +
                                                     "  \"status\": 400,\n" +
-                                                    "  \"message\": \"username: This username is already taken!; email: This email is already taken!\",\n" +
+                                                    "  \"message\": \"username: This username is already taken!\",\n" +
                                                     "  \"path\": \"/registration\"\n" +
                                                     "}"
                                     ))),
@@ -185,19 +234,18 @@ public class AuthController {
                                                     "  \"path\": \"/registration\"\n" +
                                                     "}"
                                     ))),
-                    @ApiResponse(responseCode = "503", description = "Service unavailable.",
+                    @ApiResponse(responseCode = "503", description = "Too many password checks queued, retry after the Retry-After header.",
                             content = @Content(
                                     mediaType = "application/json",
                                     schema = @Schema(implementation = ErrorResponseDTO.class),
                                     examples = @ExampleObject(
                                             name = "Service unavailable",
                                             summary = "Example of 503 Service unavailable.",
-                                            value = "{ \"timestamp\": \"2025-06-20T11:11:00.038+00:00\", \"path\": \"/registration\", \"status\": 503, \"error\": \"Service unavailable\", \"requestId\": \"335c1b74-7\" }"
+                                            value = "{ \"status\": 503, \"message\": \"Service is busy, try again later\", \"path\": \"/registration\" }"
                                     )))
             })
     @PostMapping("/registration")
-    public ResponseEntity<PersonResponseDTO> register(@RequestBody @Valid PersonRequestDTO dto, BindingResult bindingResult) {
-        personValidator.validate(dto, bindingResult);
+    public CompletableFuture<ResponseEntity<PersonResponseDTO>> register(@RequestBody @Valid PersonRequestDTO dto, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             logger.error("Binding result has errors: ");
             bindingResult.getFieldErrors().forEach(fieldError ->
@@ -206,9 +254,13 @@ public class AuthController {
         }
 
         logger.info("Middle of the method");
-        PersonResponseDTO response = peopleService.savePerson(dto);
-        logger.info("User {} successfully created", dto.getUsername());
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        // only the hash is computed on the hashing pool, the insert runs on the task executor
+        return passwordHashingExecutor.submit(() -> passwordEncoder.encode(dto.getPassword()))
+                .thenApplyAsync(encodedPassword -> peopleService.savePerson(dto, encodedPassword), taskExecutor)
+                .thenApply(response -> {
+                    logger.info("User {} successfully created", dto.getUsername());
+                    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+                });
     }
 
     @Operation(summary = "Delete method",
@@ -309,7 +361,7 @@ public class AuthController {
         return ResponseEntity.ok(peopleService.getCurrentUserInfo());
     }
 
-    @Operation(summary = "Refresh access token", description = "Generates a new access token using a valid refresh token.",
+    @Operation(summary = "Refresh access token", description = "Generates a new access token using a valid refresh token and replaces the refresh token cookie. Presenting a refresh token that was already replaced revokes the session.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "New access token successfully issued"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized.",
@@ -333,34 +385,93 @@ public class AuthController {
                                                     "  \"error\": \"Internal Server Error\",\n" +
                                                     "  \"path\": \"/refresh\"\n" +
                                                     "}"
+                                    ))),
+                    @ApiResponse(responseCode = "503", description = "Session store unavailable, retry after the Retry-After header.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    examples = @ExampleObject(
+                                            name = "Service unavailable",
+                                            summary = "Example of 503 Service unavailable.",
+                                            value = "{ \"error\": \"Refresh temporarily unavailable\" }"
                                     )))
             })
     @GetMapping("/refresh")
-    public ResponseEntity<?> refreshToken(@CookieValue("refreshToken") String refreshToken) {
+    public ResponseEntity<?> refreshToken(@CookieValue("refreshToken") String refreshToken, HttpServletResponse response) {
         try {
-            String username = jwtUtil.validateRefreshToken(refreshToken).getClaim("username").asString();
-            Long id = ((PersonDetails) personDetailsService.loadUserByUsername(username)).getId();
-            String role = personDetailsService.loadUserByUsername(username).getAuthorities().stream()
-                    .findFirst()
-                    .map(GrantedAuthority::getAuthority)
-                    .orElse("ROLE_USER");
-
-            String savedToken = refreshTokenService.getRefreshToken(username);
+            DecodedJWT jwt = jwtUtil.validateRefreshToken(refreshToken);
+            String username = jwt.getClaim("username").asString();
+            Long id = jwt.getClaim("id").asLong();
+            String sessionId = jwt.getClaim("sid").asString();
+            // tokens issued before sessions existed carry neither
+            String nextRefreshToken = id != null && sessionId != null
+                    ? jwtUtil.generateRefreshToken(id, username, sessionId)
+                    : null;
 
-            if (!refreshToken.equals(savedToken)) {
-                throw new RuntimeException("Refresh token is invalid or expired");
+            RefreshRotation rotation = refreshTokenStore.rotate(id, username, sessionId, refreshToken,
+                    nextRefreshToken);
+            switch (rotation.getOutcome()) {
+                case ROTATED -> { }
+                case LEGACY -> {
+                    // one database read, then the client continues with a regular session
+                    PersonDetails personDetails = (PersonDetails) personDetailsService.loadUserByUsername(username);
+                    String role = personDetails.getAuthorities().stream()
+                            .findFirst()
+                            .map(GrantedAuthority::getAuthority)
+                            .orElse("ROLE_USER");
+                    String newSessionId = jwtUtil.newSessionId();
+                    nextRefreshToken = jwtUtil.generateRefreshToken(personDetails.getId(), username, newSessionId);
+                    refreshTokenStore.saveRefreshToken(personDetails.getId(), username, role, newSessionId,
+                            nextRefreshToken, null);
+                    rotation = new RefreshRotation(RefreshRotation.Outcome.ROTATED, personDetails.getId(), role);
+                }
+                case UNVERIFIED -> {
+                    // the session store is down: the signature vouches for the token, which the client keeps
+                    PersonDetails personDetails = (PersonDetails) personDetailsService.loadUserByUsername(username);
+                    if (!personDetails.getId().equals(id)) {
+                        throw new RuntimeException("Refresh token does not match its user");
+                    }
+                    String role = personDetails.getAuthorities().stream()
+                            .findFirst()
+                            .map(GrantedAuthority::getAuthority)
+                            .orElse("ROLE_USER");
+                    nextRefreshToken = refreshToken;
+                    rotation = new RefreshRotation(RefreshRotation.Outcome.UNVERIFIED, id, role);
+                }
+                case REUSED -> {
+                    // a rotated token came back, so it was copied: drop the access tokens minted from it as well
+                    tokenVersionService.bump(rotation.getId());
+                    logger.warn("event=refresh_token_reused userId={}", rotation.getId());
+                    throw new RuntimeException("Refresh token was already used");
+                }
+                default -> throw new RuntimeException("Refresh token is invalid or expired");
             }
 
-            String newAccessToken = jwtUtil.generateAccessToken(id, username, role);
+            String newAccessToken = jwtUtil.generateAccessToken(rotation.getId(), username, rotation.getRole(),
+                    tokenVersionService.currentVersion(rotation.getId()));
 
+            response.setHeader(HttpHeaders.SET_COOKIE, refreshCookie(nextRefreshToken).toString());
             return ResponseEntity.ok(Map.of("access_token", newAccessToken));
+        } catch (RefreshStoreUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, e.getRetryAfter().toSeconds())))
+                    .body(Map.of("error", "Refresh temporarily unavailable"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid refresh token"));
         }
     }
 
-    @Operation(summary = "Logout the user", description = "Invalidates the refresh token and deletes the cookie.",
+    private static ResponseCookie refreshCookie(String refreshToken) {
+        return ResponseCookie.from("refreshToken", refreshToken)
+                .httpOnly(true)
+                .secure(true)
+                .path("/")
+                .maxAge(Duration.ofDays(7))
+                .sameSite("None")
+                .build();
+    }
+
+    @Operation(summary = "Logout the user", description = "Invalidates the refresh token and the access token of the request, and deletes the cookie.",
     responses = {
             @ApiResponse(responseCode = "200", description = "Delete refresh token cookie"),
             @ApiResponse(responseCode = "401", description = "Unauthorized.",
@@ -388,8 +499,52 @@ public class AuthController {
     })
     @PostMapping("/logout")
     public ResponseEntity<?> logout(@CookieValue("refreshToken") String refreshToken) {
-        String username = jwtUtil.validateRefreshToken(refreshToken).getClaim("username").asString();
-        return logoutService.buildLogoutResponse(username);
+        DecodedJWT jwt = jwtUtil.validateRefreshToken(refreshToken);
+        return logoutService.buildLogoutResponse(jwt.getClaim("id").asLong(), jwt.getClaim("username").asString(),
+                jwt.getClaim("sid").asString());
+    }
+
+    @Operation(summary = "List sessions", description = "Devices the current user is logged in on, most recently used first.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sessions of the current user.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    examples = @ExampleObject(
+                                            name = "OK",
+                                            summary = "Two active sessions.",
+                                            value = "[ { \"sessionId\": \"Xq3...\", \"device\": \"Mozilla/5.0 (X11; Linux x86_64)\", \"createdAt\": \"2025-06-20T11:11:00Z\", \"lastUsedAt\": \"2025-06-21T08:02:13Z\", \"expiresAt\": \"2025-06-28T08:02:13Z\" } ]"
+                                    ))),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorResponseDTO.class)))
+            })
+    @GetMapping("/sessions")
+    public ResponseEntity<List<RefreshSessionInfo>> getSessions(@AuthenticationPrincipal PersonDetails personDetails) {
+        return ResponseEntity.ok(refreshTokenStore.listSessions(personDetails.getId()));
+    }
+
+    @Operation(summary = "Revoke a session", description = "Logs the current user out on one device. Access tokens already issued to it stay valid until they expire.",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Session revoked."),
+                    @ApiResponse(responseCode = "404", description = "No such session.")
+            })
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<?> revokeSession(@AuthenticationPrincipal PersonDetails personDetails,
+                                           @PathVariable String sessionId) {
+        if (!refreshTokenStore.revokeSession(personDetails.getId(), sessionId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Session not found"));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Revoke all sessions", description = "Logs the current user out on every device and invalidates every access token issued so far.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Delete refresh token cookie")
+            })
+    @DeleteMapping("/sessions")
+    public ResponseEntity<?> revokeAllSessions(@AuthenticationPrincipal PersonDetails personDetails) {
+        return logoutService.buildLogoutEverywhereResponse(personDetails.getId(), personDetails.getUsername());
     }
 
     @Operation(summary = "Update method",
@@ -446,7 +601,6 @@ public class AuthController {
             })
     @PatchMapping("/update")
     public ResponseEntity<PersonResponseDTO> updateUserInfo(@RequestBody @Valid PersonUpdateDTO dto, BindingResult bindingResult) {
-        personValidator.validate(dto, bindingResult);
         if (bindingResult.hasErrors()) {
             logger.error("Binding result has errors: ");
             bindingResult.getFieldErrors().forEach(fieldError ->
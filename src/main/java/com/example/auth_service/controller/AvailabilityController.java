@@ -0,0 +1,74 @@
+package com.example.auth_service.controller;
+
+import com.example.auth_service.exception.ErrorResponseDTO;
+import com.example.auth_service.service.AvailabilityIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@Tag(name = "Availability", description = "Whether a username or email can still be registered")
+public class AvailabilityController {
+    private final AvailabilityIndex availabilityIndex;
+
+    public AvailabilityController(AvailabilityIndex availabilityIndex) {
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    @Operation(summary = "Username and email availability",
+            description = "Checks the given username and/or email, ignoring case. Meant for signup forms; " +
+                    "registration itself still rejects a value taken in the meantime.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Availability of each value asked for.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    examples = @ExampleObject(
+                                            name = "OK",
+                                            summary = "The username is free, the email is taken.",
+                                            value = "{ \"username\": true, \"email\": false }"
+                                    ))),
+                    @ApiResponse(responseCode = "400", description = "Neither username nor email given.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorResponseDTO.class),
+                                    examples = @ExampleObject(
+                                            name = "Bad Request",
+                                            summary = "Example of 400 Bad Request",
+                                            value = "{ \"status\": 400, \"message\": \"username or email is required\", \"path\": \"/availability\" }"
+                                    )))
+            })
+    @GetMapping("/availability")
+    public ResponseEntity<?> checkAvailability(@RequestParam(required = false) String username,
+                                               @RequestParam(required = false) String email,
+                                               HttpServletRequest request) {
+        boolean hasUsername = username != null && !username.isBlank();
+        boolean hasEmail = email != null && !email.isBlank();
+        if (!hasUsername && !hasEmail) {
+            ErrorResponseDTO response = new ErrorResponseDTO();
+            response.setStatus(400);
+            response.setMessage("username or email is required");
+            response.setPath(request.getRequestURI());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        Map<String, Boolean> availability = new LinkedHashMap<>();
+        if (hasUsername) {
+            availability.put("username", availabilityIndex.isUsernameAvailable(username));
+        }
+        if (hasEmail) {
+            availability.put("email", availabilityIndex.isEmailAvailable(email));
+        }
+        return ResponseEntity.ok(availability);
+    }
+}
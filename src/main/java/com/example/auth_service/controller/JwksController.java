@@ -0,0 +1,48 @@
+package com.example.auth_service.controller;
+
+import com.example.auth_service.security.JWTKeyRing;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@Tag(name = "Keys", description = "Public keys for verifying tokens issued by this service")
+public class JwksController {
+    private final JWTKeyRing keyRing;
+    private final Duration maxAge;
+
+    public JwksController(JWTKeyRing keyRing, @Value("${jwt.jwks.max-age:10m}") Duration maxAge) {
+        this.keyRing = keyRing;
+        this.maxAge = maxAge;
+    }
+
+    @Operation(summary = "JSON Web Key Set",
+            description = "Public keys of the asymmetric signing keys (jwt.algorithm=ES256). Empty for HS256.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Key set.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    examples = @ExampleObject(
+                                            name = "OK",
+                                            summary = "Key set with one ES256 key.",
+                                            value = "{\n  \"keys\": [\n    {\n      \"kty\": \"EC\",\n      \"crv\": \"P-256\",\n      \"kid\": \"primary\",\n      \"use\": \"sig\",\n      \"alg\": \"ES256\",\n      \"x\": \"f83OJ3D2xF1Bg8vub9tLe1gHMzV76e8Tus9uPHvRVEU\",\n      \"y\": \"x_FEzRu9m36HLN_tue659LNpXW6pCyStikYjKIWI5a0\"\n    }\n  ]\n}"
+                                    )))
+            })
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, List<Map<String, String>>>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                .body(Map.of("keys", keyRing.getPublicJwks()));
+    }
+}
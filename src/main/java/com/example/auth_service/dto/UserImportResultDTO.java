@@ -0,0 +1,80 @@
+package com.example.auth_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResultDTO {
+    @Schema(description = "Line of the uploaded file the row was read from", example = "2")
+    private long line;
+    @Schema(description = "created or rejected", example = "created")
+    private String status;
+    @Schema(description = "Id of the created user", example = "1051")
+    private Long id;
+    @Schema(description = "Username of the row, when it could be read", example = "john")
+    private String username;
+    @Schema(description = "Why the row was rejected, as field: message pairs",
+            example = "email: This email is already taken!")
+    private String error;
+
+    public UserImportResultDTO() {
+    }
+
+    public static UserImportResultDTO created(long line, String username, Long id) {
+        UserImportResultDTO result = new UserImportResultDTO();
+        result.setLine(line);
+        result.setStatus("created");
+        result.setUsername(username);
+        result.setId(id);
+        return result;
+    }
+
+    public static UserImportResultDTO rejected(long line, String username, String error) {
+        UserImportResultDTO result = new UserImportResultDTO();
+        result.setLine(line);
+        result.setStatus("rejected");
+        result.setUsername(username);
+        result.setError(error);
+        return result;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.auth_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportSummaryDTO {
+    @Schema(description = "Users created", example = "999")
+    private long created;
+    @Schema(description = "Rows rejected", example = "1")
+    private long rejected;
+    @Schema(description = "false when the import stopped before the end of the file", example = "true")
+    private boolean complete;
+    @Schema(description = "Why the import stopped early")
+    private String error;
+
+    public UserImportSummaryDTO() {
+    }
+
+    public UserImportSummaryDTO(long created, long rejected, boolean complete, String error) {
+        this.created = created;
+        this.rejected = rejected;
+        this.complete = complete;
+        this.error = error;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
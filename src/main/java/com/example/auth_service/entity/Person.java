@@ -10,17 +10,24 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "person")
+// PostgreSQL enforces these case-insensitively (db/migration/V2); declared here so a generated schema has them too
+@Table(name = "person", uniqueConstraints = {
+        @UniqueConstraint(name = "person_username_key", columnNames = "username"),
+        @UniqueConstraint(name = "person_email_key", columnNames = "email")
+})
 public class Person {
+    // pooled: one nextval hands out 50 ids (db/migration/V3), so inserts can go to the database in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_id_seq")
+    @SequenceGenerator(name = "person_id_seq", sequenceName = "person_id_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
     @Column(name = "username", nullable = false, length = 100)
     private String username;
 
-    @Column(nullable = false, length = 100)
+    // {id}-prefixed hash, an argon2 one is over 100 characters
+    @Column(nullable = false, length = 255)
     private String password;
 
     @Column(nullable = false, length = 50)
@@ -3,6 +3,7 @@ package com.example.auth_service.exception;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -74,6 +75,45 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
 
+    @ExceptionHandler(RefreshStoreUnavailableException.class)
+    public ResponseEntity<ErrorResponseDTO> handleRefreshStoreUnavailable(RefreshStoreUnavailableException ex,
+                                                                          HttpServletRequest request) {
+        ErrorResponseDTO response = new ErrorResponseDTO();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setMessage("Service temporarily unavailable");
+        response.setPath(request.getRequestURI());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(response);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponseDTO> handleServiceOverloaded(ServiceOverloadedException ex,
+                                                                    HttpServletRequest request) {
+        ErrorResponseDTO response = new ErrorResponseDTO();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setMessage("Service is busy, try again later");
+        response.setPath(request.getRequestURI());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(response);
+    }
+
+    @ExceptionHandler(TooManyLoginAttemptsException.class)
+    public ResponseEntity<ErrorResponseDTO> handleTooManyLoginAttempts(TooManyLoginAttemptsException ex,
+                                                                       HttpServletRequest request) {
+        ErrorResponseDTO response = new ErrorResponseDTO();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setMessage("Too many login attempts, try again later");
+        response.setPath(request.getRequestURI());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleAnyException(Exception e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
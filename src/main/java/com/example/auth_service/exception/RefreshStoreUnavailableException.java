@@ -0,0 +1,17 @@
+package com.example.auth_service.exception;
+
+import java.time.Duration;
+
+// the refresh session store didn't answer within its budget, or its circuit breaker is open
+public class RefreshStoreUnavailableException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public RefreshStoreUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
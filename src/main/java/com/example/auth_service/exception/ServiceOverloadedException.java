@@ -0,0 +1,17 @@
+package com.example.auth_service.exception;
+
+import java.time.Duration;
+
+// work was shed because the pool that would run it has no room left
+public class ServiceOverloadedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.auth_service.exception;
+
+import java.time.Duration;
+
+// thrown on every throttled login, so it skips the stack trace: a rejection has to stay cheaper than the attempt
+public class TooManyLoginAttemptsException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public TooManyLoginAttemptsException(Duration retryAfter) {
+        super("Too many login attempts", null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
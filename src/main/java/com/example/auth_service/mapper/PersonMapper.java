@@ -20,10 +20,15 @@ public class PersonMapper {
     }
 
     public Person toEntity(PersonRequestDTO dto) {
+        return toEntity(dto, passwordEncoder.encode(dto.getPassword()));
+    }
+
+    // for callers that hashed the password elsewhere, e.g. on the password hashing pool
+    public Person toEntity(PersonRequestDTO dto, String encodedPassword) {
         Person person = new Person();
         person.setUsername(dto.getUsername());
         person.setEmail(dto.getEmail());
-        person.setPassword(passwordEncoder.encode(dto.getPassword()));
+        person.setPassword(encodedPassword);
         person.setRole("ROLE_USER");
         return person;
     }
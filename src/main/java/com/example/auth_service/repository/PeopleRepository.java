@@ -1,15 +1,67 @@
 package com.example.auth_service.repository;
 
 import com.example.auth_service.entity.Person;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PeopleRepository extends JpaRepository<Person, Integer> {
-    List<Person> findByUsername(String username);
-    List<Person> findByEmail(String email);
-    Optional<Person> findFirstByEmail(String email);
+    // case-insensitive, served by the unique lower(username) and lower(email) indexes
+    @Query("SELECT p FROM Person p WHERE lower(p.username) = lower(:username)")
+    Optional<Person> findByUsername(@Param("username") String username);
+
+    @Query("SELECT p FROM Person p WHERE lower(p.email) = lower(:email)")
+    Optional<Person> findByEmail(@Param("email") String email);
+
+    // selects only the columns the username index carries, so Postgres answers it from the index alone
+    @Query("SELECT p.id AS id, p.username AS username, p.password AS password, p.email AS email, p.role AS role " +
+            "FROM Person p WHERE lower(p.username) = lower(:username)")
+    Optional<PersonCredentialsView> findCredentialsByUsername(@Param("username") String username);
+
+    // usernames must already be lower-cased; match the rows by usernameKey, the database's lower(), which can
+    // differ from Java's toLowerCase() for a few characters
+    @Query("SELECT lower(p.username) AS usernameKey, p.id AS id, p.username AS username, p.password AS password, " +
+            "p.email AS email, p.role AS role FROM Person p WHERE lower(p.username) IN :usernames")
+    List<PersonCredentialsLookupView> findCredentialsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    // values must already be lower-cased; returns the ones some user has
+    @Query("SELECT lower(p.username) FROM Person p WHERE lower(p.username) IN :usernames")
+    List<String> findTakenUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT lower(p.email) FROM Person p WHERE lower(p.email) IN :emails")
+    List<String> findTakenEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT CASE WHEN count(p) > 0 THEN true ELSE false END FROM Person p " +
+            "WHERE lower(p.username) = lower(:username)")
+    boolean existsByUsername(@Param("username") String username);
+
+    @Query("SELECT CASE WHEN count(p) > 0 THEN true ELSE false END FROM Person p " +
+            "WHERE lower(p.email) = lower(:email)")
+    boolean existsByEmail(@Param("email") String email);
+
+    // every user's username and email, fetched from a cursor; needs an open transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT p.username AS username, p.email AS email FROM Person p")
+    Stream<PersonIdentityView> streamIdentities();
+
     void deleteById(Long personId);
     Optional<Person> findById(Long id);
+    Optional<PersonAuthView> findAuthViewById(Long id);
+
+    // compare-and-set: only replaces the hash the caller verified
+    @Transactional
+    @Modifying
+    @Query("UPDATE Person p SET p.password = :newHash WHERE p.id = :id AND p.password = :currentHash")
+    int updatePasswordIfUnchanged(@Param("id") Long id, @Param("currentHash") String currentHash,
+                                  @Param("newHash") String newHash);
 }
@@ -0,0 +1,6 @@
+package com.example.auth_service.repository;
+
+public interface PersonAuthView {
+    String getUsername();
+    String getRole();
+}
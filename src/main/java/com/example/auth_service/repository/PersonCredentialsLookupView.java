@@ -0,0 +1,6 @@
+package com.example.auth_service.repository;
+
+// credentials plus lower(username) as the database computes it, which is what a batched lookup matched on
+public interface PersonCredentialsLookupView extends PersonCredentialsView {
+    String getUsernameKey();
+}
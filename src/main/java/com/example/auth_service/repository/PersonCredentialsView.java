@@ -0,0 +1,10 @@
+package com.example.auth_service.repository;
+
+// what login needs, and exactly the columns carried by the person_username_lower_key index
+public interface PersonCredentialsView {
+    Long getId();
+    String getUsername();
+    String getPassword();
+    String getEmail();
+    String getRole();
+}
@@ -0,0 +1,6 @@
+package com.example.auth_service.repository;
+
+public interface PersonIdentityView {
+    String getUsername();
+    String getEmail();
+}
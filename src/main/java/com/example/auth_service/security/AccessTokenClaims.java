@@ -0,0 +1,83 @@
+package com.example.auth_service.security;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.time.Instant;
+
+/**
+ * The claims of a verified access token that the request path actually needs.
+ */
+public final class AccessTokenClaims {
+    private final String kid;
+    private final String jti;
+    private final Long id;
+    private final String username;
+    private final String role;
+    private final long version;
+    private final Instant expiresAt;
+
+    public AccessTokenClaims(String kid, Long id, String username, String role, Instant expiresAt) {
+        this(kid, id, username, role, 0L, expiresAt);
+    }
+
+    public AccessTokenClaims(String kid, Long id, String username, String role, long version, Instant expiresAt) {
+        this(kid, null, id, username, role, version, expiresAt);
+    }
+
+    public AccessTokenClaims(String kid, String jti, Long id, String username, String role, long version,
+                             Instant expiresAt) {
+        this.kid = kid;
+        this.jti = jti;
+        this.id = id;
+        this.username = username;
+        this.role = role;
+        this.version = version;
+        this.expiresAt = expiresAt;
+    }
+
+    public static AccessTokenClaims from(DecodedJWT jwt) {
+        Long version = jwt.getClaim("ver").asLong();
+        return new AccessTokenClaims(
+                jwt.getKeyId(),
+                jwt.getId(),
+                jwt.getClaim("id").asLong(),
+                jwt.getClaim("username").asString(),
+                jwt.getClaim("role").asString(),
+                version == null ? 0L : version,
+                jwt.getExpiresAtAsInstant());
+    }
+
+    public String getKid() {
+        return kid;
+    }
+
+    // null for tokens minted before token ids were introduced; those can't be revoked one by one
+    public String getJti() {
+        return jti;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    // tokens minted before versions existed have no ver claim and count as version 0
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt == null || !now.isBefore(expiresAt);
+    }
+}
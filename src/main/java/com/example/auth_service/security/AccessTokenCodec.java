@@ -0,0 +1,556 @@
+package com.example.auth_service.security;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * HS256 encoder/decoder specialised for the access-token claim set
+ * (sub, id, username, role, ver, jti, iat, iss, exp).
+ * Minting writes the JSON payload byte by byte into per-thread buffers behind a precomputed header and
+ * signs with a per-thread {@link Mac}, so the only allocation is the resulting string. Decoding checks the
+ * signature first and then picks the needed claims out of the payload without building a JSON tree.
+ * <p>
+ * Tokens are standard JWTs and verify with java-jwt. {@link #decode} returns {@code null} for payloads it
+ * doesn't understand (nested values, fractional numbers, foreign headers), so the caller can fall back to
+ * the generic verifier.
+ */
+public final class AccessTokenCodec {
+    private static final int SIGNATURE_LENGTH = 32;
+    private static final int ENCODED_SIGNATURE_LENGTH = 43;
+
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ALPHABET_INDEX = new byte[128];
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private static final byte[] PAYLOAD_ID = ascii("{\"sub\":\"" + JWTUtil.ACCESS_SUBJECT + "\",\"id\":");
+    private static final byte[] PAYLOAD_USERNAME = ascii(",\"username\":");
+    private static final byte[] PAYLOAD_ROLE = ascii(",\"role\":");
+    private static final byte[] PAYLOAD_VERSION = ascii(",\"ver\":");
+    private static final byte[] PAYLOAD_JTI = ascii(",\"jti\":");
+    private static final byte[] PAYLOAD_IAT = ascii(",\"iat\":");
+    private static final byte[] PAYLOAD_EXP = ascii(",\"iss\":\"" + JWTUtil.ISSUER + "\",\"exp\":");
+    private static final byte[] NULL = ascii("null");
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    static {
+        Arrays.fill(ALPHABET_INDEX, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            ALPHABET_INDEX[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final String kid;
+    private final byte[] encodedHeader;
+    private final ThreadLocal<Mac> mac;
+
+    public AccessTokenCodec(String kid, byte[] secret) {
+        for (int i = 0; i < kid.length(); i++) {
+            char c = kid.charAt(i);
+            if (c < 0x20 || c > 0x7e || c == '"' || c == '\\') {
+                throw new IllegalArgumentException("Key id must be printable ASCII without quotes: " + kid);
+            }
+        }
+        this.kid = kid;
+
+        byte[] header = ascii("{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}");
+        byte[] encoded = new byte[encodedLength(header.length)];
+        encodeBase64Url(header, header.length, encoded, 0);
+        this.encodedHeader = encoded;
+
+        SecretKeySpec keySpec = new SecretKeySpec(secret, "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance("HmacSHA256");
+                instance.init(keySpec);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        });
+    }
+
+    public String getKid() {
+        return kid;
+    }
+
+    public String getEncodedHeader() {
+        return new String(encodedHeader, StandardCharsets.US_ASCII);
+    }
+
+    public String encode(Long id, String username, String role, long version, String jti,
+                         long issuedAt, long expiresAt) {
+        Buffers buffers = BUFFERS.get();
+        buffers.jsonLength = 0;
+        buffers.append(PAYLOAD_ID);
+        if (id == null) {
+            buffers.append(NULL);
+        } else {
+            buffers.appendLong(id);
+        }
+        buffers.append(PAYLOAD_USERNAME);
+        buffers.appendString(username);
+        buffers.append(PAYLOAD_ROLE);
+        buffers.appendString(role);
+        buffers.append(PAYLOAD_VERSION);
+        buffers.appendLong(version);
+        buffers.append(PAYLOAD_JTI);
+        buffers.appendString(jti);
+        buffers.append(PAYLOAD_IAT);
+        buffers.appendLong(issuedAt);
+        buffers.append(PAYLOAD_EXP);
+        buffers.appendLong(expiresAt);
+        buffers.appendByte('}');
+
+        byte[] out = buffers.out(encodedHeader.length + 1 + encodedLength(buffers.jsonLength) + 1 + ENCODED_SIGNATURE_LENGTH);
+        System.arraycopy(encodedHeader, 0, out, 0, encodedHeader.length);
+        int position = encodedHeader.length;
+        out[position++] = '.';
+        position = encodeBase64Url(buffers.json, buffers.jsonLength, out, position);
+
+        sign(out, position, buffers.signature);
+        out[position++] = '.';
+        position = encodeBase64Url(buffers.signature, SIGNATURE_LENGTH, out, position);
+        return new String(out, 0, position, StandardCharsets.ISO_8859_1);
+    }
+
+    public AccessTokenClaims decode(String token) throws JWTVerificationException {
+        int headerEnd = token.indexOf('.');
+        int signatureStart = token.lastIndexOf('.');
+        if (headerEnd != encodedHeader.length || signatureStart <= headerEnd) {
+            return null;
+        }
+
+        Buffers buffers = BUFFERS.get();
+        byte[] signed = buffers.out(signatureStart);
+        for (int i = 0; i < signatureStart; i++) {
+            char c = token.charAt(i);
+            if (c > 0x7f || (i < headerEnd && c != encodedHeader[i])) {
+                return null;
+            }
+            signed[i] = (byte) c;
+        }
+
+        if (token.length() - signatureStart - 1 != ENCODED_SIGNATURE_LENGTH
+                || decodeBase64Url(token, signatureStart + 1, token.length(), buffers.presented) != SIGNATURE_LENGTH) {
+            throw new JWTVerificationException("The Token's Signature resulted invalid");
+        }
+        sign(signed, signatureStart, buffers.signature);
+        int difference = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            difference |= buffers.signature[i] ^ buffers.presented[i];
+        }
+        if (difference != 0) {
+            throw new JWTVerificationException("The Token's Signature resulted invalid");
+        }
+
+        byte[] json = buffers.json(signatureStart);
+        int jsonLength = decodeBase64Url(token, headerEnd + 1, signatureStart, json);
+        if (jsonLength < 0) {
+            return null;
+        }
+        return new PayloadReader(json, jsonLength).read(kid);
+    }
+
+    private void sign(byte[] input, int length, byte[] signature) {
+        Mac hmac = mac.get();
+        hmac.update(input, 0, length);
+        try {
+            hmac.doFinal(signature, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int encodedLength(int length) {
+        return (length * 4 + 2) / 3;
+    }
+
+    private static int encodeBase64Url(byte[] source, int length, byte[] target, int position) {
+        int i = 0;
+        int full = length - length % 3;
+        while (i < full) {
+            int bits = (source[i++] & 0xff) << 16 | (source[i++] & 0xff) << 8 | (source[i++] & 0xff);
+            target[position++] = ALPHABET[(bits >>> 18) & 0x3f];
+            target[position++] = ALPHABET[(bits >>> 12) & 0x3f];
+            target[position++] = ALPHABET[(bits >>> 6) & 0x3f];
+            target[position++] = ALPHABET[bits & 0x3f];
+        }
+        if (length - full == 1) {
+            int bits = (source[i] & 0xff) << 16;
+            target[position++] = ALPHABET[(bits >>> 18) & 0x3f];
+            target[position++] = ALPHABET[(bits >>> 12) & 0x3f];
+        } else if (length - full == 2) {
+            int bits = (source[i] & 0xff) << 16 | (source[i + 1] & 0xff) << 8;
+            target[position++] = ALPHABET[(bits >>> 18) & 0x3f];
+            target[position++] = ALPHABET[(bits >>> 12) & 0x3f];
+            target[position++] = ALPHABET[(bits >>> 6) & 0x3f];
+        }
+        return position;
+    }
+
+    // returns the number of decoded bytes, or -1 if the range isn't unpadded base64url
+    private static int decodeBase64Url(String source, int from, int to, byte[] target) {
+        int bits = 0;
+        int bitCount = 0;
+        int position = 0;
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            int value = c < 128 ? ALPHABET_INDEX[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                target[position++] = (byte) (bits >>> bitCount);
+            }
+        }
+        return bitCount >= 6 ? -1 : position;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Buffers {
+        private byte[] json = new byte[256];
+        private int jsonLength;
+        private byte[] out = new byte[512];
+        private final byte[] signature = new byte[SIGNATURE_LENGTH];
+        private final byte[] presented = new byte[SIGNATURE_LENGTH + 2];
+
+        private byte[] out(int capacity) {
+            if (out.length < capacity) {
+                out = new byte[Math.max(capacity, out.length * 2)];
+            }
+            return out;
+        }
+
+        private byte[] json(int capacity) {
+            if (json.length < capacity) {
+                json = new byte[Math.max(capacity, json.length * 2)];
+            }
+            return json;
+        }
+
+        private void ensure(int extra) {
+            if (jsonLength + extra > json.length) {
+                json = Arrays.copyOf(json, Math.max(jsonLength + extra, json.length * 2));
+            }
+        }
+
+        private void appendByte(int b) {
+            ensure(1);
+            json[jsonLength++] = (byte) b;
+        }
+
+        private void append(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, json, jsonLength, bytes.length);
+            jsonLength += bytes.length;
+        }
+
+        private void appendLong(long value) {
+            ensure(20);
+            if (value == Long.MIN_VALUE) {
+                append(ascii(Long.toString(value)));
+                return;
+            }
+            if (value < 0) {
+                json[jsonLength++] = '-';
+                value = -value;
+            }
+            int start = jsonLength;
+            do {
+                json[jsonLength++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = jsonLength - 1; i < j; i++, j--) {
+                byte tmp = json[i];
+                json[i] = json[j];
+                json[j] = tmp;
+            }
+        }
+
+        private void appendString(String value) {
+            if (value == null) {
+                append(NULL);
+                return;
+            }
+            ensure(value.length() * 6 + 2);
+            json[jsonLength++] = '"';
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json[jsonLength++] = '\\';
+                    json[jsonLength++] = (byte) c;
+                } else if (c < 0x20) {
+                    json[jsonLength++] = '\\';
+                    json[jsonLength++] = 'u';
+                    json[jsonLength++] = '0';
+                    json[jsonLength++] = '0';
+                    json[jsonLength++] = HEX[c >> 4];
+                    json[jsonLength++] = HEX[c & 0xf];
+                } else if (c < 0x80) {
+                    json[jsonLength++] = (byte) c;
+                } else if (c < 0x800) {
+                    json[jsonLength++] = (byte) (0xc0 | (c >> 6));
+                    json[jsonLength++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    json[jsonLength++] = (byte) (0xf0 | (codePoint >> 18));
+                    json[jsonLength++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    json[jsonLength++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    json[jsonLength++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    json[jsonLength++] = '?';
+                } else {
+                    json[jsonLength++] = (byte) (0xe0 | (c >> 12));
+                    json[jsonLength++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    json[jsonLength++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            json[jsonLength++] = '"';
+        }
+    }
+
+    /**
+     * Reads a flat JSON object and keeps only the claims the access token needs. Returns {@code null}
+     * from {@link #read} when the payload uses a shape this reader doesn't handle.
+     */
+    private static final class PayloadReader {
+        private final byte[] json;
+        private final int length;
+        private int position;
+
+        private PayloadReader(byte[] json, int length) {
+            this.json = json;
+            this.length = length;
+        }
+
+        private AccessTokenClaims read(String kid) throws JWTVerificationException {
+            String subject = null;
+            String issuer = null;
+            String username = null;
+            String role = null;
+            String jti = null;
+            Long id = null;
+            Long version = 0L;
+            Long issuedAt = null;
+            Long notBefore = null;
+            Long expiresAt = null;
+
+            skipWhitespace();
+            if (!consume('{')) {
+                return null;
+            }
+            skipWhitespace();
+            if (!consume('}')) {
+                do {
+                    skipWhitespace();
+                    String name = readString();
+                    skipWhitespace();
+                    if (name == null || !consume(':')) {
+                        return null;
+                    }
+                    skipWhitespace();
+                    if (position >= length) {
+                        return null;
+                    }
+                    byte next = json[position];
+                    if (next == '{' || next == '[') {
+                        return null;
+                    }
+                    switch (name) {
+                        case "sub" -> subject = readString();
+                        case "iss" -> issuer = readString();
+                        case "username" -> username = readNullableString();
+                        case "role" -> role = readNullableString();
+                        case "id" -> {
+                            if (!skipNull()) {
+                                id = readLong();
+                                if (id == null) {
+                                    return null;
+                                }
+                            }
+                        }
+                        case "ver" -> version = readLong();
+                        case "jti" -> jti = readNullableString();
+                        case "iat" -> issuedAt = readLong();
+                        case "nbf" -> notBefore = readLong();
+                        case "exp" -> expiresAt = readLong();
+                        default -> {
+                            if (!skipValue()) {
+                                return null;
+                            }
+                        }
+                    }
+                    skipWhitespace();
+                } while (consume(','));
+                if (!consume('}')) {
+                    return null;
+                }
+            }
+
+            if (version == null) {
+                return null;
+            }
+            if (!JWTUtil.ACCESS_SUBJECT.equals(subject)) {
+                throw new JWTVerificationException("The Claim 'sub' value doesn't match the required one.");
+            }
+            if (!JWTUtil.ISSUER.equals(issuer)) {
+                throw new JWTVerificationException("The Claim 'iss' value doesn't match the required one.");
+            }
+            long now = Instant.now().getEpochSecond();
+            if (expiresAt != null && now > expiresAt) {
+                Instant expiredOn = Instant.ofEpochSecond(expiresAt);
+                throw new TokenExpiredException("The Token has expired on " + expiredOn + ".", expiredOn);
+            }
+            if (issuedAt != null && issuedAt > now) {
+                throw new JWTVerificationException("The Token can't be used before " + Instant.ofEpochSecond(issuedAt) + ".");
+            }
+            if (notBefore != null && notBefore > now) {
+                throw new JWTVerificationException("The Token can't be used before " + Instant.ofEpochSecond(notBefore) + ".");
+            }
+            return new AccessTokenClaims(kid, jti, id, username, role, version,
+                    expiresAt == null ? null : Instant.ofEpochSecond(expiresAt));
+        }
+
+        private void skipWhitespace() {
+            while (position < length) {
+                byte b = json[position];
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        private boolean consume(char expected) {
+            if (position < length && json[position] == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean skipNull() {
+            if (position + 4 <= length && json[position] == 'n' && json[position + 1] == 'u'
+                    && json[position + 2] == 'l' && json[position + 3] == 'l') {
+                position += 4;
+                return true;
+            }
+            return false;
+        }
+
+        private String readNullableString() {
+            return skipNull() ? null : readString();
+        }
+
+        private Long readLong() {
+            int start = position;
+            boolean negative = consume('-');
+            long value = 0;
+            int digits = 0;
+            while (position < length && json[position] >= '0' && json[position] <= '9' && digits < 18) {
+                value = value * 10 + (json[position++] - '0');
+                digits++;
+            }
+            if (digits == 0 || (position < length && (json[position] == '.' || json[position] == 'e'
+                    || json[position] == 'E' || (json[position] >= '0' && json[position] <= '9')))) {
+                position = start;
+                return null;
+            }
+            return negative ? -value : value;
+        }
+
+        private String readString() {
+            if (!consume('"')) {
+                return null;
+            }
+            int start = position;
+            boolean escaped = false;
+            while (position < length && json[position] != '"') {
+                if (json[position] == '\\') {
+                    escaped = true;
+                    position++;
+                }
+                position++;
+            }
+            if (position >= length) {
+                return null;
+            }
+            int end = position++;
+            if (!escaped) {
+                return new String(json, start, end - start, StandardCharsets.UTF_8);
+            }
+            return unescape(start, end);
+        }
+
+        private String unescape(int start, int end) {
+            StringBuilder builder = new StringBuilder(end - start);
+            int i = start;
+            while (i < end) {
+                int runStart = i;
+                while (i < end && json[i] != '\\') {
+                    i++;
+                }
+                builder.append(new String(json, runStart, i - runStart, StandardCharsets.UTF_8));
+                if (i >= end) {
+                    break;
+                }
+                byte escape = json[i + 1];
+                i += 2;
+                switch (escape) {
+                    case '"', '\\', '/' -> builder.append((char) escape);
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'u' -> {
+                        if (i + 4 > end) {
+                            return null;
+                        }
+                        builder.append((char) Integer.parseInt(new String(json, i, 4, StandardCharsets.US_ASCII), 16));
+                        i += 4;
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+            }
+            return builder.toString();
+        }
+
+        private boolean skipValue() {
+            byte b = json[position];
+            if (b == '"') {
+                return readString() != null;
+            }
+            if (b == '-' || (b >= '0' && b <= '9')) {
+                return readLong() != null;
+            }
+            for (String literal : new String[]{"null", "true", "false"}) {
+                if (position + literal.length() <= length
+                        && new String(json, position, literal.length(), StandardCharsets.US_ASCII).equals(literal)) {
+                    position += literal.length();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
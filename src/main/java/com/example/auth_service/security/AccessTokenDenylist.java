@@ -0,0 +1,214 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.util.BloomFilter;
+import com.example.auth_service.util.BoundedLruCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Individually revoked access tokens, keyed by {@code jti}. Redis holds one key per revoked token that
+ * expires together with the token; every instance mirrors the ids into a local Bloom filter, so the
+ * common case (token not revoked) is answered without leaving the JVM. Only a possible hit is confirmed
+ * against Redis, and the answer is remembered for the jti.
+ * <p>
+ * The filter can't forget single entries, so two generations are kept and rotated every access-token
+ * lifetime: an id lives in the filter for at least as long as any token that could carry it.
+ */
+@Service
+public class AccessTokenDenylist implements MessageListener, MeterBinder {
+    static final String KEY_PREFIX = "auth:denylist:";
+    static final String CHANNEL = "auth:denylist";
+
+    private final Logger logger = LoggerFactory.getLogger(AccessTokenDenylist.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean syncEnabled;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+    private final Duration generationLength;
+    private final Clock clock;
+    private final BoundedLruCache<String, Boolean> confirmed;
+
+    private final LongAdder filterHits = new LongAdder();
+    private final LongAdder redisLookups = new LongAdder();
+    private final LongAdder revokedHits = new LongAdder();
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile Instant rotateAt;
+
+    @Autowired
+    public AccessTokenDenylist(RedisTemplate<String, String> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               @Value("${jwt.denylist.sync.enabled:true}") boolean syncEnabled,
+                               @Value("${jwt.denylist.expected-revocations:100000}") int expectedRevocations,
+                               @Value("${jwt.denylist.false-positive-rate:0.001}") double falsePositiveRate) {
+        this(redisTemplate, listenerContainer, syncEnabled, expectedRevocations, falsePositiveRate,
+                JWTUtil.ACCESS_TOKEN_TTL, Clock.systemUTC());
+    }
+
+    public AccessTokenDenylist(RedisTemplate<String, String> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer, boolean syncEnabled,
+                               int expectedRevocations, double falsePositiveRate, Duration generationLength,
+                               Clock clock) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.syncEnabled = syncEnabled;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.generationLength = generationLength;
+        this.clock = clock;
+        this.confirmed = new BoundedLruCache<>(Math.min(expectedRevocations, 100_000),
+                Runtime.getRuntime().availableProcessors() * 4);
+        this.current = new BloomFilter(expectedRevocations, falsePositiveRate);
+        this.previous = new BloomFilter(expectedRevocations, falsePositiveRate);
+        this.rotateAt = Instant.now(clock).plus(generationLength);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        } catch (RuntimeException e) {
+            logger.warn("Can't subscribe to access token revocations: {}", e.getMessage());
+        }
+        loadRevokedIds();
+    }
+
+    public void revoke(AccessTokenClaims claims) {
+        if (claims.getJti() == null || claims.getExpiresAt() == null) {
+            return;
+        }
+        Duration remaining = Duration.between(Instant.now(clock), claims.getExpiresAt());
+        if (remaining.isNegative() || remaining.isZero()) {
+            return;
+        }
+        remember(claims.getJti());
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + claims.getJti(), "1", remaining);
+            redisTemplate.convertAndSend(CHANNEL, claims.getJti());
+        } catch (RuntimeException e) {
+            logger.warn("Can't publish revocation of access token of user id={}: {}",
+                    claims.getId(), e.getMessage());
+        }
+    }
+
+    public boolean isRevoked(AccessTokenClaims claims) {
+        String jti = claims.getJti();
+        if (jti == null) {
+            return false;
+        }
+        rotateIfDue();
+        if (!current.mightContain(jti) && !previous.mightContain(jti)) {
+            return false;
+        }
+        filterHits.increment();
+        Boolean known = confirmed.get(jti);
+        if (known == null) {
+            known = lookup(jti);
+            if (known == null) {
+                // the filter says the token may be revoked and Redis can't say otherwise: refuse it for now
+                return true;
+            }
+            confirmed.put(jti, known);
+        }
+        if (known) {
+            revokedHits.increment();
+        }
+        return known;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        remember(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.denylist.filter.hits", filterHits, LongAdder::sum)
+                .description("Token checks the Bloom filter couldn't rule out")
+                .register(registry);
+        FunctionCounter.builder("auth.token.denylist.redis.lookups", redisLookups, LongAdder::sum)
+                .description("Token checks that had to ask Redis")
+                .register(registry);
+        FunctionCounter.builder("auth.token.denylist.revoked", revokedHits, LongAdder::sum)
+                .description("Requests rejected because their access token was revoked")
+                .register(registry);
+    }
+
+    private void remember(String jti) {
+        rotateIfDue();
+        current.add(jti);
+        confirmed.put(jti, Boolean.TRUE);
+    }
+
+    // null when Redis couldn't be asked
+    private Boolean lookup(String jti) {
+        if (!syncEnabled) {
+            return Boolean.FALSE;
+        }
+        redisLookups.increment();
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + jti));
+        } catch (RuntimeException e) {
+            logger.warn("Can't check access token revocation in Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void rotateIfDue() {
+        if (Instant.now(clock).isBefore(rotateAt)) {
+            return;
+        }
+        synchronized (this) {
+            Instant now = Instant.now(clock);
+            if (now.isBefore(rotateAt)) {
+                return;
+            }
+            previous = current;
+            current = new BloomFilter(expectedRevocations, falsePositiveRate);
+            rotateAt = now.plus(generationLength);
+        }
+    }
+
+    private void loadRevokedIds() {
+        int loaded = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions()
+                .match(KEY_PREFIX + "*").count(1000).build())) {
+            while (cursor.hasNext()) {
+                current.add(cursor.next().substring(KEY_PREFIX.length()));
+                loaded++;
+            }
+            logger.debug("Loaded {} revoked access token ids from Redis", loaded);
+        } catch (RuntimeException e) {
+            logger.warn("Can't load revoked access token ids from Redis: {}", e.getMessage());
+        }
+    }
+}
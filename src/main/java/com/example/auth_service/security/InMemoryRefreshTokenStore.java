@@ -0,0 +1,194 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.util.BoundedLruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RefreshTokenStore} in the heap of this instance, for single-node deployments: no network hop, and
+ * sessions are gone after a restart. Holds at most {@code jwt.refresh.memory.max-users} users, the least
+ * recently active user is dropped (logged out) beyond that. Each user's sessions are guarded by their own
+ * lock, always taken after the map's own lock where both are needed.
+ */
+@Service
+@ConditionalOnProperty(name = "jwt.refresh.store", havingValue = "memory")
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+    private final Duration reuseGrace;
+    private final int maxSessions;
+    private final Clock clock;
+    private final BoundedLruCache<Long, UserSessions> users;
+
+    @Autowired
+    public InMemoryRefreshTokenStore(@Value("${jwt.refresh.reuse-grace:5s}") Duration reuseGrace,
+                                     @Value("${jwt.refresh.max-sessions:10}") int maxSessions,
+                                     @Value("${jwt.refresh.memory.max-users:100000}") int maxUsers) {
+        this(reuseGrace, maxSessions, maxUsers, Clock.systemUTC());
+    }
+
+    public InMemoryRefreshTokenStore(Duration reuseGrace, int maxSessions, int maxUsers, Clock clock) {
+        this.reuseGrace = reuseGrace;
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+        this.users = new BoundedLruCache<>(maxUsers, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @Override
+    public void saveRefreshToken(Long id, String username, String role, String sessionId, String refreshToken,
+                                 String device) {
+        long now = nowSeconds();
+        Session session = new Session(role, RefreshTokenStore.digest(refreshToken),
+                RefreshTokenStore.deviceLabel(device), now);
+        // inserted while the map entry is locked: a sweep or revoke-all can't detach the user's sessions in between
+        users.compute(id, (key, existing) -> {
+            UserSessions sessions = existing != null ? existing : new UserSessions();
+            synchronized (sessions) {
+                sessions.prune(now);
+                List<Map.Entry<String, Session>> others = new ArrayList<>(sessions.byId.entrySet());
+                others.removeIf(entry -> entry.getKey().equals(sessionId));
+                others.sort(Comparator.comparingLong(entry -> entry.getValue().lastUsed));
+                for (int i = 0; i < others.size() - maxSessions + 1; i++) {
+                    sessions.byId.remove(others.get(i).getKey());
+                }
+                sessions.byId.put(sessionId, session);
+            }
+            return sessions;
+        });
+    }
+
+    @Override
+    public RefreshRotation rotate(Long id, String username, String sessionId, String presentedToken,
+                                  String nextToken) {
+        UserSessions sessions = id == null || sessionId == null ? null : users.get(id);
+        if (sessions == null || nextToken == null) {
+            return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        }
+        long now = nowSeconds();
+        String presented = RefreshTokenStore.digest(presentedToken);
+        synchronized (sessions) {
+            Session session = sessions.byId.get(sessionId);
+            if (session == null) {
+                return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+            }
+            if (session.lastUsed + ttlSeconds() <= now) {
+                sessions.byId.remove(sessionId);
+                return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+            }
+            if (session.digest.equals(presented)) {
+                session.previous = presented.substring(0, PREVIOUS_DIGEST_LENGTH);
+                session.digest = RefreshTokenStore.digest(nextToken);
+                session.lastUsed = now;
+                return new RefreshRotation(RefreshRotation.Outcome.ROTATED, id, session.role);
+            }
+            if (presented.startsWith(session.previous) && !session.previous.isEmpty()
+                    && now < session.lastUsed + reuseGrace.toSeconds()) {
+                return new RefreshRotation(RefreshRotation.Outcome.RACED, null, null);
+            }
+            sessions.byId.remove(sessionId);
+            return new RefreshRotation(RefreshRotation.Outcome.REUSED, id, null);
+        }
+    }
+
+    @Override
+    public List<RefreshSessionInfo> listSessions(Long id) {
+        UserSessions sessions = users.get(id);
+        if (sessions == null) {
+            return List.of();
+        }
+        long now = nowSeconds();
+        List<RefreshSessionInfo> result = new ArrayList<>();
+        synchronized (sessions) {
+            for (Map.Entry<String, Session> entry : sessions.byId.entrySet()) {
+                Session session = entry.getValue();
+                if (session.lastUsed + ttlSeconds() > now) {
+                    result.add(new RefreshSessionInfo(entry.getKey(), session.device.isEmpty() ? null : session.device,
+                            Instant.ofEpochSecond(session.createdAt), Instant.ofEpochSecond(session.lastUsed),
+                            Instant.ofEpochSecond(session.lastUsed + ttlSeconds())));
+                }
+            }
+        }
+        result.sort(Comparator.comparing(RefreshSessionInfo::getLastUsedAt).reversed());
+        return result;
+    }
+
+    @Override
+    public boolean revokeSession(Long id, String sessionId) {
+        UserSessions sessions = users.get(id);
+        if (sessions == null) {
+            return false;
+        }
+        synchronized (sessions) {
+            return sessions.byId.remove(sessionId) != null;
+        }
+    }
+
+    @Override
+    public void revokeAllSessions(Long id, String username) {
+        if (id != null) {
+            users.remove(id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.sweep-interval:1h}",
+            initialDelayString = "${jwt.refresh.sweep-interval:1h}")
+    @Override
+    public void sweepExpiredSessions() {
+        long now = nowSeconds();
+        users.removeIf((id, sessions) -> {
+            synchronized (sessions) {
+                sessions.prune(now);
+                return sessions.byId.isEmpty();
+            }
+        });
+    }
+
+    private long nowSeconds() {
+        return clock.millis() / 1000;
+    }
+
+    private static long ttlSeconds() {
+        return REFRESH_TOKEN_TTL.toSeconds();
+    }
+
+    private static final class UserSessions {
+        private final Map<String, Session> byId = new HashMap<>();
+
+        private void prune(long now) {
+            Iterator<Session> iterator = byId.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().lastUsed + ttlSeconds() <= now) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static final class Session {
+        private final String role;
+        private final String device;
+        private final long createdAt;
+        private String digest;
+        private String previous = "";
+        private long lastUsed;
+
+        private Session(String role, String digest, String device, long now) {
+            this.role = role;
+            this.digest = digest;
+            this.device = device;
+            this.createdAt = now;
+            this.lastUsed = now;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.auth_service.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds every key the service can sign or verify tokens with. Each key carries a {@code kid}
+ * that is written into the token header, so verification picks the key directly instead of
+ * trying them one by one. Algorithms and verifiers are built once per key and reused.
+ * <p>
+ * With {@code jwt.algorithm=ES256} tokens are signed with an EC P-256 key whose public half is
+ * published as a JWKS, so other services can verify tokens without the shared secret.
+ */
+@Component
+public class JWTKeyRing {
+    private static final String LEGACY_HMAC_KID = "legacy-hs256";
+    private static final int P256_COORDINATE_BYTES = 32;
+
+    private final Logger logger = LoggerFactory.getLogger(JWTKeyRing.class);
+
+    private final Map<String, SigningKey> keys = new ConcurrentHashMap<>();
+    private final Map<String, SigningKey> keysByEncodedHeader = new ConcurrentHashMap<>();
+    private final String legacyKid;
+    private volatile SigningKey activeKey;
+
+    @Autowired
+    public JWTKeyRing(@Value("${jwt_secret}") String secret,
+                      @Value("${jwt.kid:primary}") String kid,
+                      @Value("${jwt.verification-keys:}") String verificationKeys,
+                      @Value("${jwt.algorithm:HS256}") String algorithm,
+                      @Value("${jwt.ec.private-key:}") String ecPrivateKey,
+                      @Value("${jwt.ec.public-key:}") String ecPublicKey) {
+        boolean asymmetric = switch (algorithm) {
+            case "HS256" -> false;
+            case "ES256" -> true;
+            default -> throw new IllegalArgumentException("Unsupported jwt.algorithm: " + algorithm);
+        };
+
+        // tokens issued before key ids were introduced have no kid and were signed with jwt_secret
+        this.legacyKid = asymmetric ? LEGACY_HMAC_KID : kid;
+        addKey(legacyKid, secret);
+        if (asymmetric) {
+            KeyPair keyPair = ecPrivateKey.isBlank()
+                    ? generateEcKeyPair(kid)
+                    : new KeyPair(decodeEcPublicKey(ecPublicKey), decodeEcPrivateKey(ecPrivateKey));
+            addEcKey(kid, (ECPublicKey) keyPair.getPublic(), (ECPrivateKey) keyPair.getPrivate());
+        }
+        activate(kid);
+
+        // format: kid1:secret1,kid2:secret2 — keys that are still accepted but no longer used for signing
+        for (String entry : verificationKeys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid jwt.verification-keys entry, expected kid:secret");
+            }
+            addKey(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+    }
+
+    public JWTKeyRing(String kid, String secret) {
+        this(secret, kid, "", "HS256", "", "");
+    }
+
+    public synchronized void addKey(String kid, String secret) {
+        if (kid == null || kid.isBlank() || secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Key id and secret must not be empty");
+        }
+        AccessTokenCodec codec = new AccessTokenCodec(kid, secret.getBytes(StandardCharsets.UTF_8));
+        SigningKey key = new SigningKey(kid, Algorithm.HMAC256(secret), null, true, codec);
+        removeKey(kid);
+        keys.put(kid, key);
+        keysByEncodedHeader.put(codec.getEncodedHeader(), key);
+        logger.info("JWT key '{}' added to the key ring", kid);
+    }
+
+    // privateKey may be null for keys that are only kept to verify tokens issued before a rotation
+    public synchronized void addEcKey(String kid, ECPublicKey publicKey, ECPrivateKey privateKey) {
+        if (kid == null || kid.isBlank() || publicKey == null) {
+            throw new IllegalArgumentException("Key id and public key must not be empty");
+        }
+        removeKey(kid);
+        keys.put(kid, new SigningKey(kid, Algorithm.ECDSA256(publicKey, privateKey), publicKey, privateKey != null, null));
+        logger.info("JWT ES256 key '{}' added to the key ring", kid);
+    }
+
+    public synchronized void activate(String kid) {
+        SigningKey key = keys.get(kid);
+        if (key == null) {
+            throw new IllegalArgumentException("Unknown JWT key id: " + kid);
+        }
+        if (!key.canSign) {
+            throw new IllegalStateException("JWT key '" + kid + "' has no private key and can't be used for signing");
+        }
+        activeKey = key;
+        logger.info("JWT key '{}' is now used for signing", kid);
+    }
+
+    public synchronized void retireKey(String kid) {
+        if (activeKey.getKid().equals(kid)) {
+            throw new IllegalStateException("The active signing key can't be retired, activate another key first");
+        }
+        if (removeKey(kid)) {
+            logger.info("JWT key '{}' retired, tokens signed with it are no longer accepted", kid);
+        }
+    }
+
+    private boolean removeKey(String kid) {
+        SigningKey removed = keys.remove(kid);
+        if (removed != null && removed.accessTokenCodec != null) {
+            keysByEncodedHeader.remove(removed.accessTokenCodec.getEncodedHeader());
+        }
+        return removed != null;
+    }
+
+    public SigningKey getActiveKey() {
+        return activeKey;
+    }
+
+    public SigningKey getKey(String kid) throws JWTVerificationException {
+        SigningKey key = keys.get(kid == null ? legacyKid : kid);
+        if (key == null) {
+            throw new JWTVerificationException("Token is signed with an unknown key: " + kid);
+        }
+        return key;
+    }
+
+    // HMAC keys by the exact header segment their codec writes, so our own tokens skip header JSON parsing
+    public SigningKey getKeyByEncodedHeader(String encodedHeader) {
+        return keysByEncodedHeader.get(encodedHeader);
+    }
+
+    public boolean hasKey(String kid) {
+        return keys.containsKey(kid == null ? legacyKid : kid);
+    }
+
+    public Set<String> getKeyIds() {
+        return Set.copyOf(keys.keySet());
+    }
+
+    // public half of every asymmetric key in RFC 7517 form; shared HMAC secrets are never exported
+    public List<Map<String, String>> getPublicJwks() {
+        List<Map<String, String>> jwks = new ArrayList<>();
+        for (SigningKey key : keys.values()) {
+            if (key.publicKey == null) {
+                continue;
+            }
+            ECPoint point = key.publicKey.getW();
+            Map<String, String> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("kid", key.kid);
+            jwk.put("use", "sig");
+            jwk.put("alg", "ES256");
+            jwk.put("x", encodeCoordinate(point.getAffineX()));
+            jwk.put("y", encodeCoordinate(point.getAffineY()));
+            jwks.add(jwk);
+        }
+        return jwks;
+    }
+
+    private static String encodeCoordinate(BigInteger coordinate) {
+        byte[] bytes = coordinate.toByteArray();
+        byte[] fixed = new byte[P256_COORDINATE_BYTES];
+        int length = Math.min(bytes.length, P256_COORDINATE_BYTES);
+        System.arraycopy(bytes, bytes.length - length, fixed, P256_COORDINATE_BYTES - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+
+    private KeyPair generateEcKeyPair(String kid) {
+        logger.warn("jwt.ec.private-key is not set, generated an ephemeral ES256 key '{}'. "
+                + "Tokens won't survive a restart and other instances can't verify them", kid);
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Can't generate ES256 key pair", e);
+        }
+    }
+
+    private static ECPrivateKey decodeEcPrivateKey(String base64) {
+        try {
+            return (ECPrivateKey) KeyFactory.getInstance("EC")
+                    .generatePrivate(new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(base64)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("jwt.ec.private-key must be a base64 PKCS#8 EC key", e);
+        }
+    }
+
+    private static ECPublicKey decodeEcPublicKey(String base64) {
+        try {
+            return (ECPublicKey) KeyFactory.getInstance("EC")
+                    .generatePublic(new X509EncodedKeySpec(Base64.getMimeDecoder().decode(base64)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("jwt.ec.public-key must be a base64 X.509 EC key", e);
+        }
+    }
+
+    public static final class SigningKey {
+        private final String kid;
+        private final Algorithm algorithm;
+        private final JWTVerifier accessVerifier;
+        private final JWTVerifier refreshVerifier;
+        private final ECPublicKey publicKey;
+        private final boolean canSign;
+        private final AccessTokenCodec accessTokenCodec;
+
+        private SigningKey(String kid, Algorithm algorithm, ECPublicKey publicKey, boolean canSign,
+                           AccessTokenCodec accessTokenCodec) {
+            this.kid = kid;
+            this.accessTokenCodec = accessTokenCodec;
+            this.algorithm = algorithm;
+            this.publicKey = publicKey;
+            this.canSign = canSign;
+            this.accessVerifier = JWT.require(algorithm)
+                    .withSubject(JWTUtil.ACCESS_SUBJECT)
+                    .withIssuer(JWTUtil.ISSUER)
+                    .build();
+            this.refreshVerifier = JWT.require(algorithm)
+                    .withSubject(JWTUtil.REFRESH_SUBJECT)
+                    .withIssuer(JWTUtil.ISSUER)
+                    .build();
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        public Algorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        public JWTVerifier getAccessVerifier() {
+            return accessVerifier;
+        }
+
+        public JWTVerifier getRefreshVerifier() {
+            return refreshVerifier;
+        }
+
+        // null for asymmetric keys
+        public AccessTokenCodec getAccessTokenCodec() {
+            return accessTokenCodec;
+        }
+    }
+}
@@ -1,60 +1,114 @@
 package com.example.auth_service.security;
 
-import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
-import com.auth0.jwt.interfaces.JWTVerifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.interfaces.DecodedJWT;
 
-import java.time.ZonedDateTime;
-import java.util.Date;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class JWTUtil {
-    @Value("${jwt_secret}")
-    private String secret;
+    public static final String ACCESS_SUBJECT = "User details";
+    public static final String REFRESH_SUBJECT = "RefreshToken";
+    public static final String ISSUER = "ADMIN";
+
+    static final Duration ACCESS_TOKEN_TTL = Duration.ofMinutes(60);
+    private static final Duration REFRESH_TOKEN_TTL = Duration.ofDays(7);
+
+    private final JWTKeyRing keyRing;
+
+    public JWTUtil(JWTKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
 
     public String generateAccessToken(Long id, String username, String role) {
-        Date expirationDate = Date.from(ZonedDateTime.now().plusMinutes(60).toInstant());
+        return generateAccessToken(id, username, role, 0L);
+    }
+
+    // version is the user's current TokenVersionService version; older versions are rejected by JWTFilter
+    public String generateAccessToken(Long id, String username, String role, long version) {
+        JWTKeyRing.SigningKey key = keyRing.getActiveKey();
+        Instant now = Instant.now();
 
+        AccessTokenCodec codec = key.getAccessTokenCodec();
+        if (codec != null) {
+            return codec.encode(id, username, role, version, newTokenId(),
+                    now.getEpochSecond(), now.plus(ACCESS_TOKEN_TTL).getEpochSecond());
+        }
         return JWT.create()
-                .withSubject("User details")
+                .withKeyId(key.getKid())
+                .withSubject(ACCESS_SUBJECT)
                 .withClaim("id", id)
                 .withClaim("username", username)
                 .withClaim("role", role)
-                .withIssuedAt(new Date())
-                .withIssuer("ADMIN")
-                .withExpiresAt(expirationDate)
-                .sign(Algorithm.HMAC256(secret));
+                .withClaim("ver", version)
+                .withJWTId(newTokenId())
+                .withIssuedAt(now)
+                .withIssuer(ISSUER)
+                .withExpiresAt(now.plus(ACCESS_TOKEN_TTL))
+                .sign(key.getAlgorithm());
     }
 
     public DecodedJWT validateAccessToken(String token) throws JWTVerificationException {
-        JWTVerifier verifier = JWT.require(Algorithm.HMAC256(secret))
-                .withSubject("User details")
-                .withIssuer("ADMIN")
-                .build();
-        return verifier.verify(token);
+        DecodedJWT jwt = JWT.decode(token);
+        return keyRing.getKey(jwt.getKeyId()).getAccessVerifier().verify(jwt);
     }
 
-    public String generateRefreshToken(String username) {
-        Date expirationDate = Date.from(ZonedDateTime.now().plusDays(7).toInstant());
+    // same checks as validateAccessToken, but HS256 tokens minted by the codec never go through a JSON tree
+    public AccessTokenClaims verifyAccessToken(String token) throws JWTVerificationException {
+        int headerEnd = token.indexOf('.');
+        if (headerEnd > 0) {
+            JWTKeyRing.SigningKey key = keyRing.getKeyByEncodedHeader(token.substring(0, headerEnd));
+            if (key != null) {
+                AccessTokenClaims claims = key.getAccessTokenCodec().decode(token);
+                if (claims != null) {
+                    return claims;
+                }
+            }
+        }
+        return AccessTokenClaims.from(validateAccessToken(token));
+    }
+
+    public String generateRefreshToken(Long id, String username) {
+        return generateRefreshToken(id, username, newSessionId());
+    }
+
+    // every token rotated from one login carries the same sid; the jti keeps two tokens of a second apart
+    public String generateRefreshToken(Long id, String username, String sessionId) {
+        JWTKeyRing.SigningKey key = keyRing.getActiveKey();
+        Instant now = Instant.now();
 
         return JWT.create()
-                .withSubject("RefreshToken")
+                .withKeyId(key.getKid())
+                .withSubject(REFRESH_SUBJECT)
+                .withClaim("id", id)
                 .withClaim("username", username)
-                .withIssuedAt(new Date())
-                .withIssuer("ADMIN")
-                .withExpiresAt(expirationDate)
-                .sign(Algorithm.HMAC256(secret));
+                .withClaim("sid", sessionId)
+                .withJWTId(newTokenId())
+                .withIssuedAt(now)
+                .withIssuer(ISSUER)
+                .withExpiresAt(now.plus(REFRESH_TOKEN_TTL))
+                .sign(key.getAlgorithm());
     }
 
     public DecodedJWT validateRefreshToken(String token) {
-        return JWT.require(Algorithm.HMAC256(secret))
-                .withSubject("RefreshToken")
-                .withIssuer("ADMIN")
-                .build()
-                .verify(token);
+        DecodedJWT jwt = JWT.decode(token);
+        return keyRing.getKey(jwt.getKeyId()).getRefreshVerifier().verify(jwt);
+    }
+
+    public String newSessionId() {
+        return newTokenId();
+    }
+
+    // 128 random bits; the jti only has to be unique, it isn't a secret
+    private static String newTokenId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[] bytes = ByteBuffer.allocate(16).putLong(random.nextLong()).putLong(random.nextLong()).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
     }
 }
@@ -0,0 +1,152 @@
+package com.example.auth_service.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RefreshTokenStore} in the service's own database, table {@code refresh_sessions}: shared by every
+ * instance without running Redis. Rotation is a conditional {@code UPDATE} on the current digest, so of
+ * two concurrent refreshes only one matches a row; the loser reads the row to tell a race from a replay.
+ * The table comes from migration V5.
+ */
+@Service
+@ConditionalOnProperty(name = "jwt.refresh.store", havingValue = "jdbc")
+public class JdbcRefreshTokenStore implements RefreshTokenStore {
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration reuseGrace;
+    private final int maxSessions;
+    private final Clock clock;
+
+    @Autowired
+    public JdbcRefreshTokenStore(JdbcTemplate jdbcTemplate,
+                                 @Value("${jwt.refresh.reuse-grace:5s}") Duration reuseGrace,
+                                 @Value("${jwt.refresh.max-sessions:10}") int maxSessions) {
+        this(jdbcTemplate, reuseGrace, maxSessions, Clock.systemUTC());
+    }
+
+    public JdbcRefreshTokenStore(JdbcTemplate jdbcTemplate, Duration reuseGrace, int maxSessions, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reuseGrace = reuseGrace;
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+    }
+
+    @Override
+    @Transactional
+    public void saveRefreshToken(Long id, String username, String role, String sessionId, String refreshToken,
+                                 String device) {
+        long now = nowSeconds();
+        jdbcTemplate.update("DELETE FROM refresh_sessions WHERE user_id = ? AND last_used_at <= ?",
+                id, now - ttlSeconds());
+        List<String> others = jdbcTemplate.queryForList("SELECT session_id FROM refresh_sessions "
+                + "WHERE user_id = ? AND session_id <> ? ORDER BY last_used_at DESC", String.class, id, sessionId);
+        for (String evicted : others.subList(Math.min(others.size(), maxSessions - 1), others.size())) {
+            jdbcTemplate.update("DELETE FROM refresh_sessions WHERE user_id = ? AND session_id = ?", id, evicted);
+        }
+        jdbcTemplate.update("DELETE FROM refresh_sessions WHERE user_id = ? AND session_id = ?", id, sessionId);
+        jdbcTemplate.update("INSERT INTO refresh_sessions (user_id, session_id, role, token_digest, previous_digest, "
+                        + "device, created_at, last_used_at) VALUES (?, ?, ?, ?, '', ?, ?, ?)",
+                id, sessionId, role, RefreshTokenStore.digest(refreshToken), RefreshTokenStore.deviceLabel(device),
+                now, now);
+    }
+
+    @Override
+    public RefreshRotation rotate(Long id, String username, String sessionId, String presentedToken,
+                                  String nextToken) {
+        if (id == null || sessionId == null || nextToken == null) {
+            return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        }
+        long now = nowSeconds();
+        String presented = RefreshTokenStore.digest(presentedToken);
+        // the role is read first: a concurrent replay may delete the row right after this update
+        Map<String, Object> row = findSession(id, sessionId);
+        if (row == null) {
+            return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        }
+        int updated = jdbcTemplate.update("UPDATE refresh_sessions "
+                        + "SET token_digest = ?, previous_digest = ?, last_used_at = ? "
+                        + "WHERE user_id = ? AND session_id = ? AND token_digest = ? AND last_used_at > ?",
+                RefreshTokenStore.digest(nextToken), presented.substring(0, PREVIOUS_DIGEST_LENGTH), now,
+                id, sessionId, presented, now - ttlSeconds());
+        if (updated == 1) {
+            return new RefreshRotation(RefreshRotation.Outcome.ROTATED, id, (String) row.get("role"));
+        }
+        row = findSession(id, sessionId);
+        if (row == null) {
+            return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        }
+        long lastUsed = ((Number) row.get("last_used_at")).longValue();
+        if (lastUsed + ttlSeconds() <= now) {
+            revokeSession(id, sessionId);
+            return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        }
+        String previous = (String) row.get("previous_digest");
+        if (!previous.isEmpty() && presented.startsWith(previous) && now < lastUsed + reuseGrace.toSeconds()) {
+            return new RefreshRotation(RefreshRotation.Outcome.RACED, null, null);
+        }
+        // of several concurrent replays only the one that deletes the row reports it
+        if (!revokeSession(id, sessionId)) {
+            return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        }
+        return new RefreshRotation(RefreshRotation.Outcome.REUSED, id, null);
+    }
+
+    @Override
+    public List<RefreshSessionInfo> listSessions(Long id) {
+        return jdbcTemplate.query("SELECT session_id, device, created_at, last_used_at FROM refresh_sessions "
+                        + "WHERE user_id = ? AND last_used_at > ? ORDER BY last_used_at DESC",
+                (rs, rowNum) -> {
+                    String device = rs.getString("device");
+                    long lastUsed = rs.getLong("last_used_at");
+                    return new RefreshSessionInfo(rs.getString("session_id"), device.isEmpty() ? null : device,
+                            Instant.ofEpochSecond(rs.getLong("created_at")), Instant.ofEpochSecond(lastUsed),
+                            Instant.ofEpochSecond(lastUsed + ttlSeconds()));
+                },
+                id, nowSeconds() - ttlSeconds());
+    }
+
+    @Override
+    public boolean revokeSession(Long id, String sessionId) {
+        return jdbcTemplate.update("DELETE FROM refresh_sessions WHERE user_id = ? AND session_id = ?",
+                id, sessionId) > 0;
+    }
+
+    @Override
+    public void revokeAllSessions(Long id, String username) {
+        if (id != null) {
+            jdbcTemplate.update("DELETE FROM refresh_sessions WHERE user_id = ?", id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.sweep-interval:1h}",
+            initialDelayString = "${jwt.refresh.sweep-interval:1h}")
+    @Override
+    public void sweepExpiredSessions() {
+        jdbcTemplate.update("DELETE FROM refresh_sessions WHERE last_used_at <= ?", nowSeconds() - ttlSeconds());
+    }
+
+    private Map<String, Object> findSession(Long id, String sessionId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT role, previous_digest, last_used_at "
+                + "FROM refresh_sessions WHERE user_id = ? AND session_id = ?", id, sessionId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private long nowSeconds() {
+        return clock.millis() / 1000;
+    }
+
+    private static long ttlSeconds() {
+        return REFRESH_TOKEN_TTL.toSeconds();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.exception.TooManyLoginAttemptsException;
+import com.example.auth_service.util.CircuitBreaker;
+import com.example.auth_service.util.TokenBucketLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits login attempts per client IP and per username before any password is hashed. Both limits are
+ * node-local token buckets, so a rejection is a map lookup. The optional global limit counts attempts per
+ * username across all instances in a fixed Redis window; it is only asked once the local buckets let an
+ * attempt through, and a Redis outage opens it rather than blocking logins.
+ */
+@Component
+public class LoginThrottle implements MeterBinder {
+    static final String GLOBAL_KEY_PREFIX = "auth:login-attempts:";
+
+    private final Logger logger = LoggerFactory.getLogger(LoginThrottle.class);
+
+    private final TokenBucketLimiter ipLimiter;
+    private final TokenBucketLimiter usernameLimiter;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final int globalLimit;
+    private final long globalWindowMillis;
+    private final CircuitBreaker globalBreaker;
+    private final Clock clock;
+    private final LongAdder ipRejections = new LongAdder();
+    private final LongAdder usernameRejections = new LongAdder();
+    private final LongAdder globalRejections = new LongAdder();
+
+    @Autowired
+    public LoginThrottle(RedisTemplate<String, String> redisTemplate,
+                         @Value("${login.throttle.enabled:true}") boolean enabled,
+                         @Value("${login.throttle.ip.capacity:20}") int ipCapacity,
+                         @Value("${login.throttle.ip.refill-period:6s}") Duration ipRefillPeriod,
+                         @Value("${login.throttle.username.capacity:5}") int usernameCapacity,
+                         @Value("${login.throttle.username.refill-period:12s}") Duration usernameRefillPeriod,
+                         @Value("${login.throttle.max-keys:100000}") int maxKeys,
+                         @Value("${login.throttle.global.enabled:false}") boolean globalEnabled,
+                         @Value("${login.throttle.global.limit:30}") int globalLimit,
+                         @Value("${login.throttle.global.window:1m}") Duration globalWindow) {
+        this(enabled ? new TokenBucketLimiter(ipCapacity, ipRefillPeriod, maxKeys, Clock.systemUTC()) : null,
+                enabled ? new TokenBucketLimiter(usernameCapacity, usernameRefillPeriod, maxKeys, Clock.systemUTC()) : null,
+                enabled && globalEnabled ? redisTemplate : null, globalLimit, globalWindow,
+                new CircuitBreaker(3, Duration.ofSeconds(10), Clock.systemUTC()), Clock.systemUTC());
+    }
+
+    // a null limiter or redisTemplate turns that limit off
+    public LoginThrottle(TokenBucketLimiter ipLimiter, TokenBucketLimiter usernameLimiter,
+                         RedisTemplate<String, String> redisTemplate, int globalLimit, Duration globalWindow,
+                         CircuitBreaker globalBreaker, Clock clock) {
+        this.ipLimiter = ipLimiter;
+        this.usernameLimiter = usernameLimiter;
+        this.redisTemplate = redisTemplate;
+        this.globalLimit = globalLimit;
+        this.globalWindowMillis = globalWindow.toMillis();
+        this.globalBreaker = globalBreaker;
+        this.clock = clock;
+    }
+
+    public void check(String ip, String username) {
+        if (ipLimiter != null && ip != null) {
+            long wait = ipLimiter.tryAcquire(ip);
+            if (wait > 0) {
+                ipRejections.increment();
+                throw new TooManyLoginAttemptsException(roundUp(wait));
+            }
+        }
+        if (username == null) {
+            return;
+        }
+        String key = username.toLowerCase(Locale.ROOT);
+        if (usernameLimiter != null) {
+            long wait = usernameLimiter.tryAcquire(key);
+            if (wait > 0) {
+                usernameRejections.increment();
+                throw new TooManyLoginAttemptsException(roundUp(wait));
+            }
+        }
+        if (redisTemplate != null) {
+            checkGlobal(key);
+        }
+    }
+
+    private void checkGlobal(String username) {
+        if (!globalBreaker.tryAcquire()) {
+            return;
+        }
+        long now = clock.millis();
+        long window = now / globalWindowMillis;
+        Long attempts;
+        try {
+            String key = GLOBAL_KEY_PREFIX + username + ":" + window;
+            attempts = redisTemplate.opsForValue().increment(key);
+            if (attempts != null && attempts == 1) {
+                redisTemplate.expire(key, Duration.ofMillis(globalWindowMillis * 2));
+            }
+            globalBreaker.onSuccess();
+        } catch (RuntimeException e) {
+            globalBreaker.onFailure();
+            logger.warn("Global login limit unavailable, allowing attempt: {}", e.getMessage());
+            return;
+        }
+        if (attempts != null && attempts > globalLimit) {
+            globalRejections.increment();
+            throw new TooManyLoginAttemptsException(roundUp((window + 1) * globalWindowMillis - now));
+        }
+    }
+
+    private static Duration roundUp(long millis) {
+        return Duration.ofSeconds((millis + 999) / 1000);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.login.throttle.rejections", ipRejections, LongAdder::sum)
+                .tag("limit", "ip")
+                .description("Login attempts refused before hashing")
+                .register(registry);
+        FunctionCounter.builder("auth.login.throttle.rejections", usernameRejections, LongAdder::sum)
+                .tag("limit", "username")
+                .description("Login attempts refused before hashing")
+                .register(registry);
+        FunctionCounter.builder("auth.login.throttle.rejections", globalRejections, LongAdder::sum)
+                .tag("limit", "global")
+                .description("Login attempts refused before hashing")
+                .register(registry);
+        if (ipLimiter != null) {
+            Gauge.builder("auth.login.throttle.buckets", ipLimiter, TokenBucketLimiter::size)
+                    .tag("limit", "ip")
+                    .description("Token buckets held in memory")
+                    .register(registry);
+        }
+        if (usernameLimiter != null) {
+            Gauge.builder("auth.login.throttle.buckets", usernameLimiter, TokenBucketLimiter::size)
+                    .tag("limit", "username")
+                    .description("Token buckets held in memory")
+                    .register(registry);
+        }
+    }
+}
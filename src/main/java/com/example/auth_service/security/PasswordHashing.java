@@ -0,0 +1,81 @@
+package com.example.auth_service.security;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The service's password encoder. New hashes use one algorithm ({@code bcrypt} or {@code argon2}) and are
+ * stored with an {@code {id}} prefix; hashes of the other algorithm, of a lower cost, and the bare bcrypt
+ * hashes of earlier releases still verify, and {@link PasswordEncoder#upgradeEncoding} reports them as
+ * outdated so they are re-encoded after the next login (see {@link RehashingAuthenticationProvider}).
+ * The cost is either configured or calibrated at startup to a target verification time on this machine.
+ */
+public final class PasswordHashing {
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    // the cost of earlier releases; calibration never goes below it
+    public static final int MIN_BCRYPT_STRENGTH = 10;
+    public static final int MAX_BCRYPT_STRENGTH = 16;
+    public static final int MIN_ARGON2_ITERATIONS = 2;
+    public static final int MAX_ARGON2_ITERATIONS = 20;
+
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+    private static final int SAMPLES = 5;
+
+    private PasswordHashing() {
+    }
+
+    public static DelegatingPasswordEncoder encoder(String idForEncode, int bcryptStrength, int argon2MemoryKib,
+                                                    int argon2Iterations) {
+        if (!BCRYPT.equals(idForEncode) && !ARGON2.equals(idForEncode)) {
+            throw new IllegalArgumentException("Unknown password encoder " + idForEncode);
+        }
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(idForEncode, Map.of(
+                BCRYPT, bcrypt,
+                ARGON2, argon2(argon2MemoryKib, argon2Iterations)));
+        // hashes written before the prefix existed are plain bcrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    // the highest strength whose verification still fits the target; each step doubles the work
+    public static int calibrateBcryptStrength(Duration target) {
+        Duration atMinimum = measure(new BCryptPasswordEncoder(MIN_BCRYPT_STRENGTH));
+        int steps = (int) Math.floor(Math.log((double) target.toNanos() / Math.max(1, atMinimum.toNanos()))
+                / Math.log(2));
+        return Math.max(MIN_BCRYPT_STRENGTH, Math.min(MAX_BCRYPT_STRENGTH, MIN_BCRYPT_STRENGTH + steps));
+    }
+
+    // iterations grow the work linearly at a fixed memory cost
+    public static int calibrateArgon2Iterations(Duration target, int memoryKib) {
+        Duration perIteration = measure(argon2(memoryKib, 1));
+        long iterations = target.toNanos() / Math.max(1, perIteration.toNanos());
+        return (int) Math.max(MIN_ARGON2_ITERATIONS, Math.min(MAX_ARGON2_ITERATIONS, iterations));
+    }
+
+    // median time of one successful verification
+    public static Duration measure(PasswordEncoder encoder) {
+        String hash = encoder.encode("calibration-password");
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long started = System.nanoTime();
+            encoder.matches("calibration-password", hash);
+            samples[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(samples);
+        return Duration.ofNanos(samples[SAMPLES / 2]);
+    }
+
+    private static Argon2PasswordEncoder argon2(int memoryKib, int iterations) {
+        return new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, 1, memoryKib, iterations);
+    }
+}
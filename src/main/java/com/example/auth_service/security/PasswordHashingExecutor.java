@@ -0,0 +1,106 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification off the request threads, on one thread per core with a bounded
+ * queue. A login burst then waits here instead of holding every Tomcat thread, and once the queue is full
+ * further work is refused with {@link ServiceOverloadedException} rather than piling up behind it.
+ */
+@Component
+public class PasswordHashingExecutor implements MeterBinder {
+    private final ThreadPoolExecutor executor;
+    private final Duration retryAfter;
+    private final LongAdder started = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    @Autowired
+    public PasswordHashingExecutor(@Value("${password.pool.threads:0}") int threads,
+                                   @Value("${password.pool.queue-capacity:0}") int queueCapacity,
+                                   @Value("${password.pool.retry-after:1s}") Duration retryAfter) {
+        this(newExecutor(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), queueCapacity),
+                retryAfter);
+    }
+
+    public PasswordHashingExecutor(ThreadPoolExecutor executor, Duration retryAfter) {
+        this.executor = executor;
+        this.retryAfter = retryAfter;
+    }
+
+    // a capacity of 0 queues eight hashes per thread, about two seconds of work at the calibrated cost
+    public static ThreadPoolExecutor newExecutor(int threads, int queueCapacity) {
+        AtomicInteger created = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity > 0 ? queueCapacity : threads * 8), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + created.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                waitNanos.add(System.nanoTime() - queuedAt);
+                started.increment();
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new ServiceOverloadedException("Password hashing queue is full", retryAfter);
+        }
+        return future;
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.password.pool.queued", executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a thread")
+                .register(registry);
+        Gauge.builder("auth.password.pool.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes being computed")
+                .register(registry);
+        FunctionTimer.builder("auth.password.pool.wait", this,
+                        pool -> pool.started.sum(), pool -> pool.waitNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time password hashes spent queued before a thread picked them up")
+                .register(registry);
+        FunctionCounter.builder("auth.password.pool.rejections", rejections, LongAdder::sum)
+                .description("Logins and registrations refused with 503 because the queue was full")
+                .register(registry);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.auth_service.security;
 
 import com.example.auth_service.entity.Person;
+import com.example.auth_service.repository.PersonCredentialsView;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -10,26 +11,48 @@ import java.util.Collection;
 import java.util.Collections;
 
 public class PersonDetails implements UserDetails {
-    private final Person person;
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final String email;
+    private final String role;
 
     @Autowired
     public PersonDetails(Person person) {
-        this.person = person;
+        this(person.getId(), person.getUsername(), person.getPassword(), person.getEmail(), person.getRole());
+    }
+
+    private PersonDetails(Long id, String username, String password, String email, String role) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.email = email;
+        this.role = role;
+    }
+
+    public static PersonDetails fromCredentials(PersonCredentialsView credentials) {
+        return new PersonDetails(credentials.getId(), credentials.getUsername(), credentials.getPassword(),
+                credentials.getEmail(), credentials.getRole());
+    }
+
+    // principal built from an already verified access token: no password hash, no database access
+    public static PersonDetails fromClaims(AccessTokenClaims claims) {
+        return new PersonDetails(claims.getId(), claims.getUsername(), null, null, claims.getRole());
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.singletonList(new SimpleGrantedAuthority(person.getRole()));
+        return Collections.singletonList(new SimpleGrantedAuthority(role));
     }
 
     @Override
     public String getPassword() {
-        return person.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return person.getUsername();
+        return username;
     }
 
     @Override
@@ -53,10 +76,10 @@ public class PersonDetails implements UserDetails {
     }
 
     public Long getId() {
-        return person.getId();
+        return id;
     }
 
     public String getEmail() {
-        return person.getEmail();
+        return email;
     }
 }
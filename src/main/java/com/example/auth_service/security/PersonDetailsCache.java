@@ -0,0 +1,234 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.util.BoundedLruCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of {@link PersonDetails} by username, ignoring case like the lookup does. Concurrent misses for one username share a single
+ * load. Changes to a user invalidate the entry after their transaction commits, on this instance and,
+ * through Redis pub/sub, on every other one; entries also expire after {@code ttl}, which bounds how long
+ * an instance that missed a message can serve the old role.
+ */
+@Component
+public class PersonDetailsCache implements MessageListener, MeterBinder {
+    static final String CHANNEL = "auth:person-details-invalidations";
+
+    private final Logger logger = LoggerFactory.getLogger(PersonDetailsCache.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean enabled;
+    private final boolean syncEnabled;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final BoundedLruCache<String, Entry> entries;
+    private final Map<String, CompletableFuture<PersonDetails>> loading = new ConcurrentHashMap<>();
+    // bumped by every invalidation; a load that overlapped one doesn't keep its result
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    @Autowired
+    public PersonDetailsCache(RedisTemplate<String, String> redisTemplate,
+                              RedisMessageListenerContainer listenerContainer,
+                              @Value("${person-details.cache.enabled:true}") boolean enabled,
+                              @Value("${person-details.cache.max-entries:100000}") int maxEntries,
+                              @Value("${person-details.cache.ttl:1m}") Duration ttl,
+                              @Value("${person-details.cache.sync.enabled:true}") boolean syncEnabled) {
+        this(redisTemplate, listenerContainer, enabled, maxEntries, ttl, syncEnabled, Clock.systemUTC());
+    }
+
+    // node-local only, for tests and single-instance setups
+    public PersonDetailsCache(int maxEntries, Duration ttl, Clock clock) {
+        this(null, null, true, maxEntries, ttl, false, clock);
+    }
+
+    public PersonDetailsCache(RedisTemplate<String, String> redisTemplate,
+                              RedisMessageListenerContainer listenerContainer, boolean enabled, int maxEntries,
+                              Duration ttl, boolean syncEnabled, Clock clock) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.enabled = enabled;
+        this.syncEnabled = syncEnabled;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new BoundedLruCache<>(maxEntries, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        } catch (RuntimeException e) {
+            logger.warn("Can't subscribe to person details invalidations: {}", e.getMessage());
+        }
+    }
+
+    public PersonDetails get(String username, Function<String, PersonDetails> loader) {
+        if (!enabled) {
+            return loader.apply(username);
+        }
+        String key = key(username);
+        Entry entry = entries.get(key);
+        if (entry != null && clock.millis() - entry.loadedAt < ttlMillis) {
+            hits.increment();
+            return entry.details;
+        }
+        misses.increment();
+
+        CompletableFuture<PersonDetails> load = new CompletableFuture<>();
+        CompletableFuture<PersonDetails> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            return join(running);
+        }
+        long startedGeneration = generation.get();
+        long started = System.nanoTime();
+        try {
+            PersonDetails details = loader.apply(username);
+            entries.put(key, new Entry(details, clock.millis()));
+            if (generation.get() != startedGeneration) {
+                entries.remove(key);
+            }
+            load.complete(details);
+            return details;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.increment();
+            loadNanos.add(System.nanoTime() - started);
+            loading.remove(key, load);
+        }
+    }
+
+    // drops the usernames everywhere once the current transaction has committed, or right away without one
+    public void invalidateAfterCommit(String... usernames) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(usernames);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(usernames);
+            }
+        });
+    }
+
+    public void invalidate(String... usernames) {
+        for (String username : usernames) {
+            if (username == null) {
+                continue;
+            }
+            evict(username);
+            if (syncEnabled) {
+                try {
+                    redisTemplate.convertAndSend(CHANNEL, username);
+                } catch (RuntimeException e) {
+                    // other instances catch up when their entry expires
+                    logger.warn("Can't publish invalidation of user {}: {}", username, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evict(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(String username) {
+        String key = key(username);
+        generation.incrementAndGet();
+        loading.remove(key);
+        entries.remove(key);
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static PersonDetails join(CompletableFuture<PersonDetails> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.person-details.cache.hits", hits, LongAdder::sum)
+                .description("User lookups answered from the cache")
+                .register(registry);
+        FunctionCounter.builder("auth.person-details.cache.misses", misses, LongAdder::sum)
+                .description("User lookups that had to load or wait for a load")
+                .register(registry);
+        Gauge.builder("auth.person-details.cache.hit-ratio", this, cache -> {
+                    double hitCount = cache.hits.sum();
+                    double total = hitCount + cache.misses.sum();
+                    return total == 0 ? 0 : hitCount / total;
+                })
+                .description("Share of user lookups answered from the cache since startup")
+                .register(registry);
+        FunctionTimer.builder("auth.person-details.cache.loads", this,
+                        cache -> cache.loads.sum(), cache -> cache.loadNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Database loads behind cache misses")
+                .register(registry);
+        Gauge.builder("auth.person-details.cache.size", entries, BoundedLruCache::size)
+                .description("Users held in the cache")
+                .register(registry);
+    }
+
+    private static final class Entry {
+        private final PersonDetails details;
+        private final long loadedAt;
+
+        private Entry(PersonDetails details, long loadedAt) {
+            this.details = details;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
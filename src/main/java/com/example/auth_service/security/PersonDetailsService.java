@@ -1,7 +1,7 @@
 package com.example.auth_service.security;
 
-import com.example.auth_service.entity.Person;
-import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonCredentialsView;
+import com.example.auth_service.service.PersonLookupBatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -10,17 +10,25 @@ import org.springframework.stereotype.Service;
 
 @Service
 public class PersonDetailsService implements UserDetailsService {
-    private final PeopleRepository peopleRepository;
+    private final PersonLookupBatcher personLookupBatcher;
+    private final PersonDetailsCache personDetailsCache;
 
     @Autowired
-    public PersonDetailsService(PeopleRepository peopleRepository) {
-        this.peopleRepository = peopleRepository;
+    public PersonDetailsService(PersonLookupBatcher personLookupBatcher, PersonDetailsCache personDetailsCache) {
+        this.personLookupBatcher = personLookupBatcher;
+        this.personDetailsCache = personDetailsCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Person user = peopleRepository.findByUsername(username).stream().findFirst()
-                .orElseThrow(() -> new UsernameNotFoundException("Username doesn't found!"));
-        return new PersonDetails(user);
+        return personDetailsCache.get(username, this::load);
+    }
+
+    private PersonDetails load(String username) {
+        PersonCredentialsView user = personLookupBatcher.find(username);
+        if (user == null) {
+            throw new UsernameNotFoundException("Username doesn't found!");
+        }
+        return PersonDetails.fromCredentials(user);
     }
 }
@@ -0,0 +1,92 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.util.BoundedLruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Cheap safety net for the stateless principal mode: the current username and role of a user are
+ * re-read from the database at most once per {@code jwt.stateless.revocation-check.ttl}, so a deleted
+ * or re-roled user is cut off within that window instead of at token expiry.
+ */
+@Component
+public class PrincipalRevocationCheck {
+    private final PeopleRepository peopleRepository;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Clock clock;
+    private final BoundedLruCache<Long, Snapshot> snapshots;
+
+    @Autowired
+    public PrincipalRevocationCheck(PeopleRepository peopleRepository,
+                                    @Value("${jwt.stateless.revocation-check.enabled:true}") boolean enabled,
+                                    @Value("${jwt.stateless.revocation-check.ttl:30s}") Duration ttl,
+                                    @Value("${jwt.stateless.revocation-check.max-entries:100000}") int maxEntries) {
+        this(peopleRepository, enabled, ttl, maxEntries, Clock.systemUTC());
+    }
+
+    public PrincipalRevocationCheck(PeopleRepository peopleRepository, boolean enabled, Duration ttl,
+                                    int maxEntries, Clock clock) {
+        this.peopleRepository = peopleRepository;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.snapshots = new BoundedLruCache<>(maxEntries, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public boolean isRevoked(AccessTokenClaims claims) {
+        if (!enabled) {
+            return false;
+        }
+        Instant now = Instant.now(clock);
+        Snapshot snapshot = snapshots.get(claims.getId());
+        if (snapshot == null || !now.isBefore(snapshot.checkedAt.plus(ttl))) {
+            snapshot = peopleRepository.findAuthViewById(claims.getId())
+                    .map(view -> new Snapshot(view.getUsername(), view.getRole(), now))
+                    .orElseGet(() -> new Snapshot(null, null, now));
+            snapshots.put(claims.getId(), snapshot);
+        }
+        return snapshot.username == null
+                || !snapshot.username.equals(claims.getUsername())
+                || !snapshot.role.equals(claims.getRole());
+    }
+
+    // forgets the user's snapshot once the current transaction has committed, or right away without one, so
+    // this instance sees a new username or role on the next request instead of after the ttl
+    public void invalidateAfterCommit(Long personId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(personId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(personId);
+            }
+        });
+    }
+
+    public void invalidate(Long personId) {
+        snapshots.remove(personId);
+    }
+
+    private static final class Snapshot {
+        private final String username;
+        private final String role;
+        private final Instant checkedAt;
+
+        private Snapshot(String username, String role, Instant checkedAt) {
+            this.username = username;
+            this.role = role;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
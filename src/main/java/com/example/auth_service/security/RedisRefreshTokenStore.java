@@ -0,0 +1,320 @@
+package com.example.auth_service.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RefreshTokenStore} in Redis, shared by every instance. Sessions of many users share one small
+ * Redis hash, {@code auth:rt:<user id % buckets>}, so the hashes stay under Redis' compact
+ * (listpack/ziplist) limits of the default config: 128 fields of at most 64 bytes. Each session is two fields:
+ * <pre>
+ *   &lt;user id&gt;.&lt;sid&gt;     role|token digest|previous digest (64 bit)|last use (epoch s)
+ *   &lt;user id&gt;.&lt;sid&gt;.m   created (epoch s)|device label
+ * </pre>
+ * where {@code sid} is the session id claim shared by every refresh token of one login and the role is
+ * stored without its {@code ROLE_} prefix. A session expires a refresh lifetime after its last use; Redis
+ * can't expire hash fields, so scripts drop expired sessions of the whole bucket when they write to it
+ * and a periodic sweep covers buckets nobody writes to, a slice per run on one instance at a time. The
+ * bucket count follows from the expected number of sessions. See the README for the memory per session.
+ * <p>
+ * Checking the presented token, storing its successor and reading the role is one script, so concurrent
+ * refreshes on different instances can't both win and {@code /refresh} costs one round trip. Every script
+ * touches only its bucket, so they run on Redis Cluster too. Tokens from before sessions were stored as
+ * the raw token under the username, which can live in any slot; that key is read and removed on its own.
+ */
+@Service
+@ConditionalOnProperty(name = "jwt.refresh.store", havingValue = "redis", matchIfMissing = true)
+public class RedisRefreshTokenStore implements RefreshTokenStore {
+    static final String BUCKET_PREFIX = "auth:rt:";
+    static final String SWEEP_CURSOR_KEY = "auth:rt-sweep:cursor";
+    static final String SWEEP_LEASE_KEY = "auth:rt-sweep:lease";
+
+    // 64 fields, half of the default hash-max-listpack-entries, so buckets of users with several devices
+    // stay compact too
+    private static final int SESSIONS_PER_BUCKET = 32;
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final Logger logger = LoggerFactory.getLogger(RedisRefreshTokenStore.class);
+
+    // prune(bucket, now, ttl, prefix) drops expired sessions and returns {field, last use} of the live
+    // sessions whose field starts with prefix
+    private static final String PRUNE = """
+            local function split(raw)
+                local f = {}
+                for v in (raw .. '|'):gmatch('([^|]*)|') do
+                    f[#f + 1] = v
+                end
+                return f
+            end
+            local function prune(bucket, now, ttl, prefix)
+                local all = redis.call('HGETALL', bucket)
+                local live = {}
+                for i = 1, #all, 2 do
+                    local field = all[i]
+                    if field:sub(-2) ~= '.m' then
+                        local last = tonumber(split(all[i + 1])[4])
+                        if last + ttl <= now then
+                            redis.call('HDEL', bucket, field, field .. '.m')
+                        elseif prefix and field:sub(1, #prefix) == prefix then
+                            live[#live + 1] = {field, last}
+                        end
+                    end
+                end
+                return live
+            end
+            """;
+
+    // KEYS[1] bucket; ARGV: user id, sid, session value, meta value, now s, ttl s, max sessions
+    private static final RedisScript<Long> SAVE_SCRIPT = new DefaultRedisScript<>(PRUNE + """
+            local field = ARGV[1] .. '.' .. ARGV[2]
+            local live = prune(KEYS[1], tonumber(ARGV[5]), tonumber(ARGV[6]), ARGV[1] .. '.')
+            local others = {}
+            for _, session in ipairs(live) do
+                if session[1] ~= field then
+                    others[#others + 1] = session
+                end
+            end
+            table.sort(others, function(a, b) return a[2] < b[2] end)
+            for i = 1, #others - tonumber(ARGV[7]) + 1 do
+                redis.call('HDEL', KEYS[1], others[i][1], others[i][1] .. '.m')
+            end
+            redis.call('HMSET', KEYS[1], field, ARGV[3], field .. '.m', ARGV[4])
+            return 1
+            """, Long.class);
+
+    // KEYS[1] bucket; ARGV: user id, sid, presented digest, successor digest, now s, ttl s, grace s. Never
+    // returns nil: a nil reply reaches a List-typed script as [null]
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final RedisScript<List<String>> ROTATE_SCRIPT = (RedisScript) new DefaultRedisScript<>(PRUNE + """
+            local field = ARGV[1] .. '.' .. ARGV[2]
+            local raw = redis.call('HGET', KEYS[1], field)
+            if not raw then
+                return {'invalid'}
+            end
+            local f = split(raw)
+            local now = tonumber(ARGV[5])
+            local last = tonumber(f[4])
+            if last + tonumber(ARGV[6]) <= now then
+                redis.call('HDEL', KEYS[1], field, field .. '.m')
+                return {'invalid'}
+            end
+            local presented = ARGV[3]:sub(1, 11)
+            if f[2] == ARGV[3] then
+                redis.call('HSET', KEYS[1], field, table.concat({f[1], ARGV[4], presented, ARGV[5]}, '|'))
+                return {'rotated', f[1]}
+            end
+            if f[3] == presented and now < last + tonumber(ARGV[7]) then
+                return {'raced'}
+            end
+            redis.call('HDEL', KEYS[1], field, field .. '.m')
+            return {'reused'}
+            """, List.class);
+
+    // KEYS[1] bucket; ARGV: user id
+    private static final RedisScript<Long> REVOKE_ALL_SCRIPT = new DefaultRedisScript<>("""
+            local prefix = ARGV[1] .. '.'
+            local removed = 0
+            for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+                if field:sub(1, #prefix) == prefix then
+                    redis.call('HDEL', KEYS[1], field)
+                    removed = removed + 1
+                end
+            end
+            return removed
+            """, Long.class);
+
+    // ARGV: now s, ttl s
+    private static final RedisScript<Long> SWEEP_SCRIPT = new DefaultRedisScript<>(PRUNE + """
+            prune(KEYS[1], tonumber(ARGV[1]), tonumber(ARGV[2]), nil)
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Duration reuseGrace;
+    private final int maxSessions;
+    private final int buckets;
+    private final int sweepBatch;
+    private final Duration sweepTick;
+    private final Clock clock;
+
+    @Autowired
+    public RedisRefreshTokenStore(RedisTemplate<String, String> redisTemplate,
+                                  @Value("${jwt.refresh.reuse-grace:5s}") Duration reuseGrace,
+                                  @Value("${jwt.refresh.max-sessions:10}") int maxSessions,
+                                  @Value("${jwt.refresh.expected-sessions:2000000}") long expectedSessions,
+                                  @Value("${jwt.refresh.sweep-interval:1h}") Duration sweepInterval,
+                                  @Value("${jwt.refresh.sweep-tick:1m}") Duration sweepTick) {
+        this(redisTemplate, reuseGrace, maxSessions, bucketsFor(expectedSessions), sweepInterval, sweepTick,
+                Clock.systemUTC());
+    }
+
+    public RedisRefreshTokenStore(RedisTemplate<String, String> redisTemplate) {
+        this(redisTemplate, Duration.ofSeconds(5), 10, 65536, Clock.systemUTC());
+    }
+
+    // each sweep covers every bucket
+    public RedisRefreshTokenStore(RedisTemplate<String, String> redisTemplate, Duration reuseGrace,
+                                  int maxSessions, int buckets, Clock clock) {
+        this(redisTemplate, reuseGrace, maxSessions, buckets, Duration.ofSeconds(1), Duration.ofSeconds(1), clock);
+    }
+
+    public RedisRefreshTokenStore(RedisTemplate<String, String> redisTemplate, Duration reuseGrace,
+                                  int maxSessions, int buckets, Duration sweepInterval, Duration sweepTick,
+                                  Clock clock) {
+        this.redisTemplate = redisTemplate;
+        this.reuseGrace = reuseGrace;
+        this.maxSessions = maxSessions;
+        this.buckets = buckets;
+        // slices sized so that the ticks of one sweep interval cover every bucket once
+        long interval = sweepInterval.toMillis();
+        this.sweepBatch = (int) Math.min(buckets, Math.max(1, (buckets * sweepTick.toMillis() + interval - 1) / interval));
+        this.sweepTick = sweepTick;
+        this.clock = clock;
+    }
+
+    // rounded up to a power of two, so a revised estimate rarely moves users to other buckets
+    public static int bucketsFor(long expectedSessions) {
+        long needed = (expectedSessions + SESSIONS_PER_BUCKET - 1) / SESSIONS_PER_BUCKET;
+        int buckets = 1;
+        while (buckets < needed && buckets < 1 << 30) {
+            buckets <<= 1;
+        }
+        return buckets;
+    }
+
+    @Override
+    public void saveRefreshToken(Long id, String username, String role, String sessionId, String refreshToken,
+                                 String device) {
+        String now = Long.toString(nowSeconds());
+        String session = String.join("|", compactRole(role), RefreshTokenStore.digest(refreshToken), "", now);
+        String meta = now + "|" + RefreshTokenStore.deviceLabel(device);
+        redisTemplate.execute(SAVE_SCRIPT, List.of(bucketKey(id)),
+                id.toString(), sessionId, session, meta, now, ttlSeconds(), Integer.toString(maxSessions));
+        // the pre-session key: a login replaces the raw token a client may still hold from before sessions
+        redisTemplate.delete(username);
+    }
+
+    // tokens issued before sessions existed have no id or sid, for them only the pre-session key is checked
+    @Override
+    public RefreshRotation rotate(Long id, String username, String sessionId, String presentedToken,
+                                  String nextToken) {
+        if (id == null || sessionId == null) {
+            return new RefreshRotation(presentedToken.equals(redisTemplate.opsForValue().get(username))
+                    ? RefreshRotation.Outcome.LEGACY : RefreshRotation.Outcome.INVALID, null, null);
+        }
+        List<String> result = redisTemplate.execute(ROTATE_SCRIPT, List.of(bucketKey(id)),
+                id.toString(), sessionId, RefreshTokenStore.digest(presentedToken),
+                nextToken == null ? "" : RefreshTokenStore.digest(nextToken),
+                Long.toString(nowSeconds()), ttlSeconds(), Long.toString(reuseGrace.toSeconds()));
+        if (result == null || result.isEmpty() || result.get(0) == null) {
+            return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        }
+        return switch (result.get(0)) {
+            case "rotated" -> new RefreshRotation(RefreshRotation.Outcome.ROTATED, id, ROLE_PREFIX + result.get(1));
+            case "reused" -> new RefreshRotation(RefreshRotation.Outcome.REUSED, id, null);
+            case "raced" -> new RefreshRotation(RefreshRotation.Outcome.RACED, null, null);
+            default -> new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        };
+    }
+
+    @Override
+    public List<RefreshSessionInfo> listSessions(Long id) {
+        long now = nowSeconds();
+        long ttl = REFRESH_TOKEN_TTL.toSeconds();
+        String prefix = id + ".";
+        Map<String, String> entries = redisTemplate.<String, String>opsForHash().entries(bucketKey(id));
+        List<RefreshSessionInfo> sessions = new ArrayList<>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            String field = entry.getKey();
+            if (!field.startsWith(prefix) || field.endsWith(".m")) {
+                continue;
+            }
+            long lastUsed = Long.parseLong(entry.getValue().split("\\|", -1)[3]);
+            if (lastUsed + ttl <= now) {
+                continue;
+            }
+            String meta = entries.get(field + ".m");
+            String[] metaFields = meta == null ? new String[]{"0", ""} : meta.split("\\|", 2);
+            sessions.add(new RefreshSessionInfo(field.substring(prefix.length()),
+                    metaFields[1].isEmpty() ? null : metaFields[1],
+                    Instant.ofEpochSecond(Long.parseLong(metaFields[0])), Instant.ofEpochSecond(lastUsed),
+                    Instant.ofEpochSecond(lastUsed + ttl)));
+        }
+        sessions.sort(Comparator.comparing(RefreshSessionInfo::getLastUsedAt).reversed());
+        return sessions;
+    }
+
+    @Override
+    public boolean revokeSession(Long id, String sessionId) {
+        String field = id + "." + sessionId;
+        Long removed = redisTemplate.opsForHash().delete(bucketKey(id), field, field + ".m");
+        return removed != null && removed > 0;
+    }
+
+    // the username is the pre-session key
+    @Override
+    public void revokeAllSessions(Long id, String username) {
+        if (id == null) {
+            redisTemplate.delete(username);
+            return;
+        }
+        redisTemplate.execute(REVOKE_ALL_SCRIPT, List.of(bucketKey(id)), id.toString());
+        redisTemplate.delete(username);
+    }
+
+    // sessions expire by their last use, which Redis doesn't know about; buckets that keep getting
+    // logins are pruned by those, this covers the rest. Each tick one instance takes the lease and sweeps
+    // the next slice after the shared cursor; the lease outlives the run, so the others skip this tick
+    @Scheduled(fixedDelayString = "${jwt.refresh.sweep-tick:1m}", initialDelayString = "${jwt.refresh.sweep-tick:1m}")
+    @Override
+    public void sweepExpiredSessions() {
+        String now = Long.toString(nowSeconds());
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(SWEEP_LEASE_KEY, now, sweepTick))) {
+                return;
+            }
+            String cursor = redisTemplate.opsForValue().get(SWEEP_CURSOR_KEY);
+            // the bucket count may have changed since the cursor was written
+            int first = cursor == null ? 0 : Math.floorMod(Integer.parseInt(cursor), buckets);
+            for (int i = 0; i < sweepBatch; i++) {
+                redisTemplate.execute(SWEEP_SCRIPT, List.of(BUCKET_PREFIX + (first + i) % buckets), now, ttlSeconds());
+            }
+            redisTemplate.opsForValue().set(SWEEP_CURSOR_KEY, Integer.toString((first + sweepBatch) % buckets));
+        } catch (RuntimeException e) {
+            logger.warn("Can't sweep expired refresh sessions: {}", e.getMessage());
+        }
+    }
+
+    private String bucketKey(Long id) {
+        return BUCKET_PREFIX + Math.floorMod(id, buckets);
+    }
+
+    private long nowSeconds() {
+        return clock.millis() / 1000;
+    }
+
+    private static String ttlSeconds() {
+        return Long.toString(REFRESH_TOKEN_TTL.toSeconds());
+    }
+
+    private static String compactRole(String role) {
+        return role.startsWith(ROLE_PREFIX) ? role.substring(ROLE_PREFIX.length()) : role;
+    }
+}
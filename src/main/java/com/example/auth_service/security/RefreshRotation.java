@@ -0,0 +1,43 @@
+package com.example.auth_service.security;
+
+/**
+ * Result of presenting a refresh token to {@link RefreshTokenStore#rotate}.
+ */
+public final class RefreshRotation {
+    public enum Outcome {
+        // the token was current and its successor is now stored
+        ROTATED,
+        // the token was rotated a moment ago by a concurrent request of the same client
+        RACED,
+        // the token was rotated earlier and came back: the whole session has been revoked
+        REUSED,
+        // only a token stored by a release without sessions exists; id and role come from the database
+        LEGACY,
+        // the store is unreachable and the degraded policy accepts the token on its signature alone: nothing
+        // was rotated, the client keeps its current token; the role comes from the database
+        UNVERIFIED,
+        INVALID
+    }
+
+    private final Outcome outcome;
+    private final Long id;
+    private final String role;
+
+    public RefreshRotation(Outcome outcome, Long id, String role) {
+        this.outcome = outcome;
+        this.id = id;
+        this.role = role;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRole() {
+        return role;
+    }
+}
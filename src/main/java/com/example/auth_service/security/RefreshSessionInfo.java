@@ -0,0 +1,43 @@
+package com.example.auth_service.security;
+
+import java.time.Instant;
+
+/**
+ * One of a user's refresh sessions (a login on some device), as listed by {@link RefreshTokenStore}.
+ */
+public final class RefreshSessionInfo {
+    private final String sessionId;
+    private final String device;
+    private final Instant createdAt;
+    private final Instant lastUsedAt;
+    private final Instant expiresAt;
+
+    public RefreshSessionInfo(String sessionId, String device, Instant createdAt, Instant lastUsedAt,
+                              Instant expiresAt) {
+        this.sessionId = sessionId;
+        this.device = device;
+        this.createdAt = createdAt;
+        this.lastUsedAt = lastUsedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
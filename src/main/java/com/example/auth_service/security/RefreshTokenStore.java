@@ -0,0 +1,63 @@
+package com.example.auth_service.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Refresh sessions, one per login (device). {@code jwt.refresh.store} picks the backend: {@code redis}
+ * (default, shared by every instance), {@code memory} (bounded, for a single node) or {@code jdbc} (a table
+ * in the service's database). All of them keep a digest of the current token instead of the token and
+ * follow the same rules:
+ * <ul>
+ *   <li>a session expires a refresh lifetime after its last use;</li>
+ *   <li>a user has at most {@code max-sessions}, a new login evicts the least recently used one;</li>
+ *   <li>{@link #rotate} replaces the token atomically, a concurrent refresh with the token replaced last
+ *   is tolerated for {@code reuse-grace}, any other replay deletes the session.</li>
+ * </ul>
+ */
+public interface RefreshTokenStore {
+    Duration REFRESH_TOKEN_TTL = Duration.ofDays(7);
+    int MAX_DEVICE_LENGTH = 32;
+    // characters of the previous digest kept for the grace check (64 bits)
+    int PREVIOUS_DIGEST_LENGTH = 11;
+
+    // starts a new session next to the user's other ones; device is a free-form label, e.g. the User-Agent
+    void saveRefreshToken(Long id, String username, String role, String sessionId, String refreshToken,
+                          String device);
+
+    // id and sessionId are the claims of the presented token; nextToken is null when there is no session
+    RefreshRotation rotate(Long id, String username, String sessionId, String presentedToken, String nextToken);
+
+    // most recently used first
+    List<RefreshSessionInfo> listSessions(Long id);
+
+    boolean revokeSession(Long id, String sessionId);
+
+    // id may be null when only a token from before sessions is known
+    void revokeAllSessions(Long id, String username);
+
+    void sweepExpiredSessions();
+
+    // first 128 bits of SHA-256: enough to tell tokens apart, and the token can't be rebuilt from it
+    static String digest(String refreshToken) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String deviceLabel(String device) {
+        if (device == null) {
+            return "";
+        }
+        String label = device.replace('|', '/');
+        return label.length() > MAX_DEVICE_LENGTH ? label.substring(0, MAX_DEVICE_LENGTH) : label;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.service.PasswordRehashService;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.AbstractUserDetailsAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Username and password authentication like {@code DaoAuthenticationProvider}, with two differences. A login
+ * whose user was already looked up ({@link #withLoadedUser}) isn't looked up again, so the password hashing
+ * pool running it spends its time on the hash alone. Outdated hashes are handed to
+ * {@link PasswordRehashService} after a successful login; Spring's own upgrade path (a
+ * {@code UserDetailsPasswordService}) encodes on the calling thread, which would make that login pay for a
+ * second hash.
+ */
+public class RehashingAuthenticationProvider extends AbstractUserDetailsAuthenticationProvider {
+    private static final String UNKNOWN_USER_PASSWORD = "userNotFoundPassword";
+
+    private final PasswordRehashService passwordRehashService;
+    private UserDetailsService userDetailsService;
+    private PasswordEncoder passwordEncoder;
+    // checked against for unknown usernames, so they take as long to reject as a wrong password
+    private volatile String unknownUserHash;
+
+    public RehashingAuthenticationProvider(PasswordRehashService passwordRehashService) {
+        this.passwordRehashService = passwordRehashService;
+    }
+
+    // a login whose user has been loaded already; user is null when there is no such username
+    public static UsernamePasswordAuthenticationToken withLoadedUser(String username, String password,
+                                                                     UserDetails user) {
+        return new LoadedUserToken(username, password, user);
+    }
+
+    public void setUserDetailsService(UserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    public void setPasswordEncoder(PasswordEncoder passwordEncoder) {
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    public PasswordEncoder getPasswordEncoder() {
+        return passwordEncoder;
+    }
+
+    @Override
+    protected UserDetails retrieveUser(String username, UsernamePasswordAuthenticationToken authentication) {
+        UserDetails user;
+        if (authentication instanceof LoadedUserToken loaded) {
+            user = loaded.user;
+        } else {
+            try {
+                user = userDetailsService.loadUserByUsername(username);
+            } catch (UsernameNotFoundException e) {
+                user = null;
+            }
+        }
+        if (user == null) {
+            if (authentication.getCredentials() != null) {
+                passwordEncoder.matches(authentication.getCredentials().toString(), unknownUserHash());
+            }
+            throw new UsernameNotFoundException("Username doesn't found!");
+        }
+        return user;
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails,
+                                                  UsernamePasswordAuthenticationToken authentication) {
+        if (authentication.getCredentials() == null
+                || !passwordEncoder.matches(authentication.getCredentials().toString(), userDetails.getPassword())) {
+            throw new BadCredentialsException(messages.getMessage(
+                    "AbstractUserDetailsAuthenticationProvider.badCredentials", "Bad credentials"));
+        }
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+                                                         UserDetails user) {
+        if (user instanceof PersonDetails personDetails && authentication.getCredentials() != null
+                && passwordEncoder.upgradeEncoding(user.getPassword())) {
+            passwordRehashService.rehashLater(personDetails.getId(), user.getUsername(), user.getPassword(),
+                    authentication.getCredentials().toString());
+        }
+        return super.createSuccessAuthentication(principal, authentication, user);
+    }
+
+    private String unknownUserHash() {
+        String hash = unknownUserHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode(UNKNOWN_USER_PASSWORD);
+            unknownUserHash = hash;
+        }
+        return hash;
+    }
+
+    private static final class LoadedUserToken extends UsernamePasswordAuthenticationToken {
+        private final transient UserDetails user;
+
+        private LoadedUserToken(String username, String password, UserDetails user) {
+            super(username, password);
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.exception.RefreshStoreUnavailableException;
+import com.example.auth_service.util.CircuitBreaker;
+import io.lettuce.core.RedisException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time budgets and a circuit breaker around the configured {@link RefreshTokenStore}, so a stalled Redis
+ * costs a request its budget instead of a Tomcat thread for the whole Lettuce command timeout. Calls run
+ * on a small bounded pool; a timeout, an error or a full pool is a failure, and after
+ * {@code failure-threshold} failures in a row the store isn't called at all for {@code open-duration}.
+ * <p>
+ * While the store is unavailable, {@code degraded-mode=fail} answers with
+ * {@link RefreshStoreUnavailableException} (503). {@code degraded-mode=accept} keeps users logged in instead:
+ * a refresh token whose signature was verified is accepted as {@link RefreshRotation.Outcome#UNVERIFIED}
+ * for {@code accept-window} after the outage began, and logins and revocations are queued and replayed in
+ * order once the store answers again. A session revoked by a queued write is never accepted unverified.
+ * Only a refresh that never reached the store (open circuit, full pool) is accepted: one that timed out may
+ * have rotated the token, and the client keeping the old one would later revoke its own session as reused.
+ */
+@Primary
+@Service
+@ConditionalOnProperty(name = "jwt.refresh.resilience.enabled", havingValue = "true")
+public class ResilientRefreshTokenStore implements RefreshTokenStore, MeterBinder {
+    public enum DegradedMode { FAIL, ACCEPT }
+
+    private final Logger logger = LoggerFactory.getLogger(ResilientRefreshTokenStore.class);
+
+    private final RefreshTokenStore delegate;
+    private final Duration rotateTimeout;
+    private final Duration readTimeout;
+    private final Duration writeTimeout;
+    private final CircuitBreaker circuitBreaker;
+    private final DegradedMode degradedMode;
+    private final Duration acceptWindow;
+    private final ThreadPoolExecutor executor;
+    private final Clock clock;
+
+    private final BlockingQueue<QueuedWrite> queuedWrites;
+    private final AtomicLong writeSequence = new AtomicLong();
+    // "<id>.<sid>" -> sequence of the queued save (positive) or revocation (negative) of that session,
+    // "<id>" -> sequence of the queued revocation of all sessions of the user
+    private final Map<String, Long> pendingMarks = new ConcurrentHashMap<>();
+    // when the current outage began, 0 while the store answers
+    private final AtomicLong outageStartedAt = new AtomicLong();
+
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder degradedAccepts = new LongAdder();
+    private final LongAdder droppedWrites = new LongAdder();
+
+    @Autowired
+    public ResilientRefreshTokenStore(RefreshTokenStore delegate,
+                                      @Value("${jwt.refresh.resilience.timeout.rotate:150ms}") Duration rotateTimeout,
+                                      @Value("${jwt.refresh.resilience.timeout.read:100ms}") Duration readTimeout,
+                                      @Value("${jwt.refresh.resilience.timeout.write:200ms}") Duration writeTimeout,
+                                      @Value("${jwt.refresh.resilience.failure-threshold:5}") int failureThreshold,
+                                      @Value("${jwt.refresh.resilience.open-duration:5s}") Duration openDuration,
+                                      @Value("${jwt.refresh.resilience.degraded-mode:fail}") String degradedMode,
+                                      @Value("${jwt.refresh.resilience.accept-window:2m}") Duration acceptWindow,
+                                      @Value("${jwt.refresh.resilience.max-queued-writes:10000}") int maxQueuedWrites,
+                                      @Value("${jwt.refresh.resilience.threads:16}") int threads,
+                                      @Value("${jwt.refresh.resilience.max-waiting:16}") int maxWaiting) {
+        this(delegate, rotateTimeout, readTimeout, writeTimeout,
+                new CircuitBreaker(failureThreshold, openDuration, Clock.systemUTC()),
+                DegradedMode.valueOf(degradedMode.trim().toUpperCase(Locale.ROOT)), acceptWindow, maxQueuedWrites,
+                newExecutor(threads, maxWaiting), Clock.systemUTC());
+    }
+
+    public ResilientRefreshTokenStore(RefreshTokenStore delegate, Duration rotateTimeout, Duration readTimeout,
+                                      Duration writeTimeout, CircuitBreaker circuitBreaker, DegradedMode degradedMode,
+                                      Duration acceptWindow, int maxQueuedWrites, ThreadPoolExecutor executor,
+                                      Clock clock) {
+        this.delegate = delegate;
+        this.rotateTimeout = rotateTimeout;
+        this.readTimeout = readTimeout;
+        this.writeTimeout = writeTimeout;
+        this.circuitBreaker = circuitBreaker;
+        this.degradedMode = degradedMode;
+        this.acceptWindow = acceptWindow;
+        this.queuedWrites = new LinkedBlockingQueue<>(maxQueuedWrites);
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    // a call that finds every thread busy and maxWaiting calls already waiting fails right away
+    public static ThreadPoolExecutor newExecutor(int threads, int maxWaiting) {
+        AtomicInteger created = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxWaiting), runnable -> {
+                    Thread thread = new Thread(runnable, "refresh-store-" + created.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void saveRefreshToken(Long id, String username, String role, String sessionId, String refreshToken,
+                                 String device) {
+        Runnable save = () -> delegate.saveRefreshToken(id, username, role, sessionId, refreshToken, device);
+        try {
+            call("save", writeTimeout, () -> {
+                save.run();
+                return null;
+            });
+        } catch (RefreshStoreUnavailableException e) {
+            if (degradedMode != DegradedMode.ACCEPT || !enqueue(save, id + "." + sessionId, false)) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public RefreshRotation rotate(Long id, String username, String sessionId, String presentedToken,
+                                  String nextToken) {
+        boolean hasSession = id != null && sessionId != null;
+        if (hasSession && revokedByQueuedWrite(id, sessionId)) {
+            return new RefreshRotation(RefreshRotation.Outcome.INVALID, null, null);
+        }
+        try {
+            return call("rotate", rotateTimeout,
+                    () -> delegate.rotate(id, username, sessionId, presentedToken, nextToken));
+        } catch (NotCalled e) {
+            if (degradedMode == DegradedMode.ACCEPT && hasSession && withinAcceptWindow()) {
+                degradedAccepts.increment();
+                return new RefreshRotation(RefreshRotation.Outcome.UNVERIFIED, id, null);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<RefreshSessionInfo> listSessions(Long id) {
+        return call("listSessions", readTimeout, () -> delegate.listSessions(id));
+    }
+
+    @Override
+    public boolean revokeSession(Long id, String sessionId) {
+        try {
+            return call("revokeSession", writeTimeout, () -> delegate.revokeSession(id, sessionId));
+        } catch (RefreshStoreUnavailableException e) {
+            if (degradedMode == DegradedMode.ACCEPT
+                    && enqueue(() -> delegate.revokeSession(id, sessionId), id + "." + sessionId, true)) {
+                return true;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void revokeAllSessions(Long id, String username) {
+        Runnable revoke = () -> delegate.revokeAllSessions(id, username);
+        try {
+            call("revokeAllSessions", writeTimeout, () -> {
+                revoke.run();
+                return null;
+            });
+        } catch (RefreshStoreUnavailableException e) {
+            if (degradedMode != DegradedMode.ACCEPT || !enqueue(revoke, id == null ? null : id.toString(), false)) {
+                throw e;
+            }
+        }
+    }
+
+    // no budget: runs off the request path, on the delegate's own schedule
+    @Override
+    public void sweepExpiredSessions() {
+        delegate.sweepExpiredSessions();
+    }
+
+    // oldest first; stops at the first write the store doesn't take, which also serves as the half-open probe
+    @Scheduled(fixedDelayString = "${jwt.refresh.resilience.replay-interval:1s}")
+    public void replayQueuedWrites() {
+        QueuedWrite next;
+        while ((next = queuedWrites.peek()) != null) {
+            QueuedWrite queued = next;
+            try {
+                call("replay", writeTimeout, () -> {
+                    queued.write.run();
+                    return null;
+                });
+            } catch (RefreshStoreUnavailableException e) {
+                return;
+            } catch (RuntimeException e) {
+                // would fail on every replay and block the writes behind it
+                droppedWrites.increment();
+                logger.warn("Dropping a queued refresh store write the store refused", e);
+            }
+            queuedWrites.poll();
+            if (queued.key != null) {
+                pendingMarks.remove(queued.key, queued.mark);
+            }
+        }
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    public int getQueuedWrites() {
+        return queuedWrites.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.refresh.store.circuit", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker of the refresh session store: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+        FunctionCounter.builder("auth.refresh.store.timeouts", timeouts, LongAdder::sum)
+                .description("Refresh store calls abandoned after their time budget")
+                .register(registry);
+        FunctionCounter.builder("auth.refresh.store.errors", errors, LongAdder::sum)
+                .description("Refresh store calls that failed within their time budget")
+                .register(registry);
+        FunctionCounter.builder("auth.refresh.store.rejections", rejections, LongAdder::sum)
+                .description("Refresh store calls refused by the open circuit or a full pool")
+                .register(registry);
+        FunctionCounter.builder("auth.refresh.store.degraded-accepts", degradedAccepts, LongAdder::sum)
+                .description("Refresh tokens accepted on their signature alone while the store was down")
+                .register(registry);
+        FunctionCounter.builder("auth.refresh.store.dropped-writes", droppedWrites, LongAdder::sum)
+                .description("Writes refused because the replay queue was full, or refused by the store on replay")
+                .register(registry);
+        Gauge.builder("auth.refresh.store.queued-writes", queuedWrites, BlockingQueue::size)
+                .description("Writes waiting to be replayed into the refresh store")
+                .register(registry);
+    }
+
+    private <T> T call(String operation, Duration budget, Callable<T> task) {
+        if (!circuitBreaker.tryAcquire()) {
+            rejections.increment();
+            throw new NotCalled(operation, "circuit open", retryAfter());
+        }
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            recordFailure();
+            throw new NotCalled(operation, "no free thread", retryAfter());
+        }
+        try {
+            T result = future.get(budget.toNanos(), TimeUnit.NANOSECONDS);
+            recordSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            // interrupts the Lettuce call, so the thread is free again
+            future.cancel(true);
+            timeouts.increment();
+            recordFailure();
+            throw unavailable(operation, "no answer within " + budget.toMillis() + "ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (!isInfrastructureFailure(cause)) {
+                // the store answered; a bug or a bad argument is no reason to open the circuit or answer 503
+                recordSuccess();
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(cause);
+            }
+            errors.increment();
+            recordFailure();
+            throw unavailable(operation, cause.getMessage());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            recordFailure();
+            throw unavailable(operation, "interrupted");
+        }
+    }
+
+    private static boolean isInfrastructureFailure(Throwable failure) {
+        // DataAccessException covers Spring Data Redis' translated exceptions and QueryTimeoutException
+        return failure instanceof RedisException || failure instanceof DataAccessException;
+    }
+
+    private void recordSuccess() {
+        circuitBreaker.onSuccess();
+        if (outageStartedAt.get() != 0 && outageStartedAt.getAndSet(0) != 0) {
+            logger.info("Refresh session store answers again, {} writes to replay", queuedWrites.size());
+        }
+    }
+
+    private void recordFailure() {
+        circuitBreaker.onFailure();
+        if (outageStartedAt.compareAndSet(0, clock.millis())) {
+            logger.warn("Refresh session store unavailable, degraded mode {}", degradedMode);
+        }
+    }
+
+    private RefreshStoreUnavailableException unavailable(String operation, String reason) {
+        return new RefreshStoreUnavailableException(message(operation, reason), retryAfter());
+    }
+
+    private Duration retryAfter() {
+        Duration remaining = circuitBreaker.remainingOpen();
+        return remaining.isZero() ? Duration.ofSeconds(1) : remaining;
+    }
+
+    private static String message(String operation, String reason) {
+        return "Refresh session store unavailable (" + operation + ": " + reason + ")";
+    }
+
+    private boolean withinAcceptWindow() {
+        long started = outageStartedAt.get();
+        return started != 0 && clock.millis() - started <= acceptWindow.toMillis();
+    }
+
+    private boolean enqueue(Runnable write, String key, boolean revokesSession) {
+        long sequence = writeSequence.incrementAndGet();
+        long mark = revokesSession ? -sequence : sequence;
+        if (key != null) {
+            pendingMarks.put(key, mark);
+        }
+        QueuedWrite queued = new QueuedWrite(write, key, mark);
+        if (!queuedWrites.offer(queued)) {
+            if (key != null) {
+                pendingMarks.remove(key, mark);
+            }
+            droppedWrites.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean revokedByQueuedWrite(Long id, String sessionId) {
+        if (pendingMarks.isEmpty()) {
+            return false;
+        }
+        Long session = pendingMarks.get(id + "." + sessionId);
+        if (session != null && session < 0) {
+            return true;
+        }
+        Long user = pendingMarks.get(id.toString());
+        // a login queued after the user logged out everywhere is a live session
+        return user != null && (session == null || session < user);
+    }
+
+    // the store wasn't called, so it certainly didn't apply the operation
+    private static final class NotCalled extends RefreshStoreUnavailableException {
+        private NotCalled(String operation, String reason, Duration retryAfter) {
+            super(message(operation, reason), retryAfter);
+        }
+    }
+
+    private static final class QueuedWrite {
+        private final Runnable write;
+        private final String key;
+        private final long mark;
+
+        private QueuedWrite(Runnable write, String key, long mark) {
+            this.write = write;
+            this.key = key;
+            this.mark = mark;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.auth_service.security;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user token version. Every access token carries the version that was current when it was minted
+ * ({@code ver} claim); bumping the version revokes all of the user's earlier tokens at once.
+ * <p>
+ * The filter only reads the node-local map. Bumps go through {@code HINCRBY} on a Redis hash and are
+ * published to the other instances; a full reload at startup and every {@code resync-interval} covers
+ * messages lost while an instance was disconnected. A bump Redis didn't take is retried every
+ * {@code retry-interval}. Users that were never bumped are at version 0.
+ */
+@Service
+public class TokenVersionService implements MessageListener {
+    static final String VERSIONS_KEY = "auth:token-versions";
+    static final String CHANNEL = "auth:token-versions";
+
+    private final Logger logger = LoggerFactory.getLogger(TokenVersionService.class);
+
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    // bumped here while Redis was unreachable
+    private final Set<Long> unpublished = ConcurrentHashMap.newKeySet();
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean syncEnabled;
+
+    @Autowired
+    public TokenVersionService(RedisTemplate<String, String> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               @Value("${jwt.token-version.sync.enabled:true}") boolean syncEnabled) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.syncEnabled = syncEnabled;
+    }
+
+    // node-local only, for tests and single-instance setups
+    public TokenVersionService() {
+        this(null, null, false);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        } catch (RuntimeException e) {
+            logger.warn("Can't subscribe to token version updates: {}", e.getMessage());
+        }
+        reload();
+    }
+
+    public long currentVersion(Long personId) {
+        return personId == null ? 0L : versions.getOrDefault(personId, 0L);
+    }
+
+    public boolean isStale(AccessTokenClaims claims) {
+        return claims.getVersion() < currentVersion(claims.getId());
+    }
+
+    // bumps once the current transaction has committed, or right away without one. Bumped before the commit,
+    // a login in between would get a token from the old row at the new version, and it would stay valid
+    public void bumpAfterCommit(Long personId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(personId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump(personId);
+            }
+        });
+    }
+
+    // revokes every access token of the user issued so far
+    public long bump(Long personId) {
+        long local = versions.merge(personId, 1L, Long::sum);
+        if (!syncEnabled) {
+            return local;
+        }
+        try {
+            return publish(personId);
+        } catch (RuntimeException e) {
+            // holds on this instance only: the others read versions from Redis, so it's retried until Redis takes it
+            unpublished.add(personId);
+            logger.warn("Can't publish token version of user id={}, retrying: {}", personId, e.getMessage());
+            return local;
+        }
+    }
+
+    // one increment per user covers any number of missed bumps: tokens issued before them all carry a lower version
+    @Scheduled(fixedDelayString = "${jwt.token-version.retry-interval:5s}")
+    public void publishPending() {
+        for (Long personId : unpublished) {
+            unpublished.remove(personId);
+            try {
+                publish(personId);
+            } catch (RuntimeException e) {
+                unpublished.add(personId);
+                logger.debug("Token versions still not published: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public int getUnpublished() {
+        return unpublished.size();
+    }
+
+    private long publish(Long personId) {
+        Long shared = redisTemplate.opsForHash().increment(VERSIONS_KEY, personId.toString(), 1L);
+        long version = apply(personId, shared);
+        redisTemplate.convertAndSend(CHANNEL, personId + ":" + version);
+        return version;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        try {
+            apply(Long.parseLong(body.substring(0, separator)), Long.parseLong(body.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            logger.warn("Ignoring malformed token version message '{}'", body);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.token-version.resync-interval:5m}",
+            initialDelayString = "${jwt.token-version.resync-interval:5m}")
+    public void reload() {
+        if (!syncEnabled) {
+            return;
+        }
+        int loaded = 0;
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash()
+                .scan(VERSIONS_KEY, ScanOptions.scanOptions().count(1000).build())) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                apply(Long.parseLong((String) entry.getKey()), Long.parseLong((String) entry.getValue()));
+                loaded++;
+            }
+            logger.debug("Loaded {} token versions from Redis", loaded);
+        } catch (RuntimeException e) {
+            logger.warn("Can't load token versions from Redis: {}", e.getMessage());
+        }
+    }
+
+    // versions only move forward, whatever order bumps and reloads arrive in
+    private long apply(Long personId, long version) {
+        return versions.merge(personId, version, Math::max);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.auth_service.security;
+
+import com.example.auth_service.util.BoundedLruCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers access tokens that already passed signature verification, so a client sending the
+ * same bearer token again skips HMAC checking and JSON parsing. Entries are keyed by a 128-bit
+ * SHA-256 prefix of the raw token and are dropped once the token's {@code exp} is reached or its
+ * signing key is retired.
+ * <p>
+ * The entry count is hard-capped by {@code jwt.cache.max-entries}; one entry costs roughly 250 bytes
+ * (key, LRU node and claims), so the default of 100 000 entries stays around 25 MB.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+    private final JWTKeyRing keyRing;
+    private final Clock clock;
+    private final boolean enabled;
+    private final BoundedLruCache<TokenKey, AccessTokenClaims> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    @Autowired
+    public VerifiedTokenCache(JWTKeyRing keyRing,
+                              @Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.max-entries:100000}") int maxEntries) {
+        this(keyRing, enabled, maxEntries, Clock.systemUTC());
+    }
+
+    public VerifiedTokenCache(JWTKeyRing keyRing, boolean enabled, int maxEntries, Clock clock) {
+        this.keyRing = keyRing;
+        this.enabled = enabled;
+        this.clock = clock;
+        this.entries = new BoundedLruCache<>(maxEntries, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public AccessTokenClaims get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        TokenKey key = TokenKey.of(token);
+        AccessTokenClaims claims = entries.get(key);
+        if (claims == null) {
+            misses.increment();
+            return null;
+        }
+        if (claims.isExpired(Instant.now(clock)) || !keyRing.hasKey(claims.getKid())) {
+            entries.remove(key);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return claims;
+    }
+
+    public void put(String token, AccessTokenClaims claims) {
+        if (enabled && !claims.isExpired(Instant.now(clock))) {
+            entries.put(TokenKey.of(token), claims);
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return entries.evictionCount() + expirations.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.cache.hits", this, VerifiedTokenCache::getHitCount)
+                .register(registry);
+        FunctionCounter.builder("auth.token.cache.misses", this, VerifiedTokenCache::getMissCount)
+                .register(registry);
+        FunctionCounter.builder("auth.token.cache.evictions", this, VerifiedTokenCache::getEvictionCount)
+                .register(registry);
+        Gauge.builder("auth.token.cache.size", this, VerifiedTokenCache::size)
+                .register(registry);
+    }
+
+    private static final class TokenKey {
+        private final long high;
+        private final long low;
+
+        private TokenKey(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        static TokenKey of(String token) {
+            MessageDigest digest = SHA_256.get();
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenKey(hash.getLong(), hash.getLong());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TokenKey other && high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high);
+        }
+    }
+}
@@ -5,6 +5,9 @@ import com.example.auth_service.dto.UserStatsDTO;
 import com.example.auth_service.entity.Person;
 import com.example.auth_service.mapper.PersonMapper;
 import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.security.PersonDetailsCache;
+import com.example.auth_service.security.PrincipalRevocationCheck;
+import com.example.auth_service.security.TokenVersionService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,10 +18,18 @@ import java.util.List;
 public class AdminService {
     private final PeopleRepository peopleRepository;
     private final PersonMapper personMapper;
+    private final TokenVersionService tokenVersionService;
+    private final PersonDetailsCache personDetailsCache;
+    private final PrincipalRevocationCheck principalRevocationCheck;
 
-    public AdminService(PeopleRepository peopleRepository, PersonMapper personMapper) {
+    public AdminService(PeopleRepository peopleRepository, PersonMapper personMapper,
+                        TokenVersionService tokenVersionService, PersonDetailsCache personDetailsCache,
+                        PrincipalRevocationCheck principalRevocationCheck) {
         this.peopleRepository = peopleRepository;
         this.personMapper = personMapper;
+        this.tokenVersionService = tokenVersionService;
+        this.personDetailsCache = personDetailsCache;
+        this.principalRevocationCheck = principalRevocationCheck;
     }
 
     @Transactional
@@ -28,6 +39,9 @@ public class AdminService {
 
         user.setRole("ROLE_ADMIN");
         peopleRepository.save(user);
+        tokenVersionService.bumpAfterCommit(personId);
+        personDetailsCache.invalidateAfterCommit(user.getUsername());
+        principalRevocationCheck.invalidateAfterCommit(personId);
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,339 @@
+package com.example.auth_service.service;
+
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonIdentityView;
+import com.example.auth_service.util.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Answers whether a username or email is free without touching the database for most values that are.
+ * Existing usernames and emails, lower-cased, are kept in two node-local Bloom filters; a value the filter
+ * has never seen is free, anything else is checked against the database. The filters are built by streaming
+ * the table when the application is ready and rebuilt every {@code rebuild-interval}, which also drops
+ * names freed by deleted or renamed users. New and changed users are added after their transaction
+ * commits, on this instance and, through Redis pub/sub, on every other one; additions Redis doesn't take
+ * are published again every {@code sync.retry-interval}. Until the first build finishes every check goes
+ * to the database.
+ */
+@Component
+public class AvailabilityIndex implements MessageListener, MeterBinder {
+    static final String CHANNEL = "auth:availability-additions";
+    private static final String USERNAME_PREFIX = "u:";
+    private static final String EMAIL_PREFIX = "e:";
+    // filters are sized for twice the users at build time, so they stay accurate until the next rebuild
+    private static final int MIN_ENTRIES = 100_000;
+    // beyond that, e.g. a bulk import during a Redis outage, the other instances wait for their next rebuild
+    private static final int MAX_UNPUBLISHED = 100_000;
+
+    private final Logger logger = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    private final PeopleRepository peopleRepository;
+    private final TransactionOperations transactionOperations;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxMemoryBytes;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+    private final boolean syncEnabled;
+    private final LongAdder filterAnswers = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rebuildFailures = new LongAdder();
+    // messages Redis didn't take, published again by publishPending()
+    private final Set<String> unpublished = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+    // null until the first build has finished
+    private volatile Filters current;
+    // the build in progress; additions go to it as well so none is lost when it replaces current
+    private volatile Filters building;
+
+    @Autowired
+    public AvailabilityIndex(PeopleRepository peopleRepository, TransactionOperations transactionOperations,
+                             RedisTemplate<String, String> redisTemplate,
+                             RedisMessageListenerContainer listenerContainer,
+                             @Value("${availability.index.enabled:true}") boolean enabled,
+                             @Value("${availability.index.max-entries:50000000}") int maxEntries,
+                             @Value("${availability.index.max-memory:128MB}") DataSize maxMemory,
+                             @Value("${availability.index.false-positive-rate:0.01}") double falsePositiveRate,
+                             @Value("${availability.index.rebuild-interval:6h}") Duration rebuildInterval,
+                             @Value("${availability.index.sync.enabled:true}") boolean syncEnabled) {
+        this.peopleRepository = peopleRepository;
+        this.transactionOperations = transactionOperations;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxMemoryBytes = maxMemory.toBytes();
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+        this.syncEnabled = enabled && syncEnabled;
+    }
+
+    // node-local and built only by calling rebuild(), for tests
+    public AvailabilityIndex(PeopleRepository peopleRepository, TransactionOperations transactionOperations,
+                             int maxEntries, DataSize maxMemory, double falsePositiveRate) {
+        this(peopleRepository, transactionOperations, null, null, true, maxEntries, maxMemory, falsePositiveRate,
+                Duration.ZERO, false);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        if (!syncEnabled) {
+            return;
+        }
+        try {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        } catch (RuntimeException e) {
+            logger.warn("Can't subscribe to availability index additions: {}", e.getMessage());
+        }
+    }
+
+    // after the seeders have run, and off the startup thread: a large table takes a while to read
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (rebuildInterval.isZero() || rebuildInterval.isNegative()) {
+            scheduler.execute(this::rebuild);
+        } else {
+            scheduler.scheduleWithFixedDelay(this::rebuild, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isUsernameAvailable(String username) {
+        Filters filters = current;
+        if (filters != null && !filters.usernames.mightContain(key(username))) {
+            filterAnswers.increment();
+            return true;
+        }
+        return checkDatabase(filters, peopleRepository.existsByUsername(username));
+    }
+
+    public boolean isEmailAvailable(String email) {
+        Filters filters = current;
+        if (filters != null && !filters.emails.mightContain(key(email))) {
+            filterAnswers.increment();
+            return true;
+        }
+        return checkDatabase(filters, peopleRepository.existsByEmail(email));
+    }
+
+    private boolean checkDatabase(Filters filters, boolean exists) {
+        databaseChecks.increment();
+        if (filters != null && !exists) {
+            falsePositives.increment();
+        }
+        return !exists;
+    }
+
+    // adds the user's username and email everywhere once the current transaction has committed
+    public void addAfterCommit(String username, String email) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addEverywhere(username, email);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addEverywhere(username, email);
+            }
+        });
+    }
+
+    private void addEverywhere(String username, String email) {
+        add(username, email);
+        if (syncEnabled) {
+            publishOrRetry(username == null ? null : USERNAME_PREFIX + username);
+            publishOrRetry(email == null ? null : EMAIL_PREFIX + email);
+        }
+    }
+
+    // until another instance gets the addition its filter answers "free" for the value without asking the
+    // database; registering it there still fails on the unique constraint
+    private void publishOrRetry(String message) {
+        if (message == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (RuntimeException e) {
+            if (unpublished.size() < MAX_UNPUBLISHED) {
+                unpublished.add(message);
+                logger.warn("Can't publish availability index addition, retrying: {}", e.getMessage());
+            } else {
+                logger.warn("Can't publish availability index addition, other instances get it at their next rebuild: {}",
+                        e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${availability.index.sync.retry-interval:5s}")
+    public void publishPending() {
+        for (String message : unpublished) {
+            try {
+                redisTemplate.convertAndSend(CHANNEL, message);
+            } catch (RuntimeException e) {
+                logger.debug("Availability index additions still not published: {}", e.getMessage());
+                return;
+            }
+            unpublished.remove(message);
+        }
+    }
+
+    public int getUnpublished() {
+        return unpublished.size();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(USERNAME_PREFIX)) {
+            add(body.substring(USERNAME_PREFIX.length()), null);
+        } else if (body.startsWith(EMAIL_PREFIX)) {
+            add(null, body.substring(EMAIL_PREFIX.length()));
+        }
+    }
+
+    private void add(String username, String email) {
+        Filters filters = current;
+        if (filters != null) {
+            filters.add(username, email);
+        }
+        Filters next = building;
+        if (next != null) {
+            next.add(username, email);
+        }
+    }
+
+    public void rebuild() {
+        long started = System.nanoTime();
+        try {
+            long users = peopleRepository.count();
+            int entries = (int) Math.min(maxEntries, Math.max(MIN_ENTRIES, users * 2));
+            Filters next = new Filters(entries, rateWithinBudget(entries));
+            // published before the table is read, so users committed during the read aren't missed
+            building = next;
+            transactionOperations.executeWithoutResult(status -> {
+                try (Stream<PersonIdentityView> identities = peopleRepository.streamIdentities()) {
+                    identities.forEach(identity -> next.add(identity.getUsername(), identity.getEmail()));
+                }
+            });
+            current = next;
+            logger.info("Availability index built from {} users in {} ms: {} bits per filter, {} hashes",
+                    users, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                    next.usernames.getBitCount(), next.usernames.getHashCount());
+        } catch (RuntimeException e) {
+            rebuildFailures.increment();
+            logger.warn("Can't build availability index, keeping the previous one: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    // the configured rate, or the best two filters of this size can reach within max-memory
+    private double rateWithinBudget(int entries) {
+        double bitsPerEntry = maxMemoryBytes * 8.0 / 2 / entries;
+        double reachable = Math.exp(-bitsPerEntry * Math.log(2) * Math.log(2));
+        return Math.min(0.5, Math.max(falsePositiveRate, reachable));
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.availability.checks", filterAnswers, LongAdder::sum)
+                .tag("answered-by", "filter")
+                .description("Availability checks")
+                .register(registry);
+        FunctionCounter.builder("auth.availability.checks", databaseChecks, LongAdder::sum)
+                .tag("answered-by", "database")
+                .description("Availability checks")
+                .register(registry);
+        FunctionCounter.builder("auth.availability.false-positives", falsePositives, LongAdder::sum)
+                .description("Database checks the filter asked for that found the value free")
+                .register(registry);
+        FunctionCounter.builder("auth.availability.rebuild-failures", rebuildFailures, LongAdder::sum)
+                .description("Index builds that failed and left the previous index in place")
+                .register(registry);
+        Gauge.builder("auth.availability.memory", this, index -> {
+                    Filters filters = index.current;
+                    return filters == null ? 0 : (filters.usernames.getBitCount() + filters.emails.getBitCount()) / 8.0;
+                })
+                .baseUnit("bytes")
+                .description("Heap held by the availability filters")
+                .register(registry);
+    }
+
+    private static final class Filters {
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+
+        private Filters(int entries, double falsePositiveRate) {
+            this.usernames = new BloomFilter(entries, falsePositiveRate);
+            this.emails = new BloomFilter(entries, falsePositiveRate);
+        }
+
+        private void add(String username, String email) {
+            if (username != null) {
+                usernames.add(key(username));
+            }
+            if (email != null) {
+                emails.add(key(email));
+            }
+        }
+    }
+}
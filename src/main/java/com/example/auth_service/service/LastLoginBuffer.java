@@ -0,0 +1,124 @@
+package com.example.auth_service.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind for {@code person.last_login}: a login only records the time in memory, repeated logins of
+ * the same user collapse into one entry, and every {@code last-login.flush-interval} the entries go to the
+ * database as one JDBC batch of {@code UPDATE}s. Holds at most {@code last-login.max-pending} users; the
+ * login that finds it full flushes before returning. Whatever is pending is flushed on shutdown, so
+ * last-login times lag by at most one interval and are only lost if the process dies.
+ */
+@Component
+public class LastLoginBuffer {
+    private static final String UPDATE = "UPDATE person SET last_login = ? WHERE id = ?";
+    private static final int BATCH_SIZE = 500;
+
+    private final Logger logger = LoggerFactory.getLogger(LastLoginBuffer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxPending;
+    private final Clock clock;
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Autowired
+    public LastLoginBuffer(JdbcTemplate jdbcTemplate,
+                           @Value("${last-login.max-pending:100000}") int maxPending) {
+        this(jdbcTemplate, maxPending, Clock.systemDefaultZone());
+    }
+
+    public LastLoginBuffer(JdbcTemplate jdbcTemplate, int maxPending, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPending = maxPending;
+        this.clock = clock;
+    }
+
+    public void record(Long userId) {
+        pending.merge(userId, LocalDateTime.now(clock), LastLoginBuffer::latest);
+        // one full-buffer flush at a time; the other logins go on while it runs
+        if (pending.size() >= maxPending && flushLock.tryLock()) {
+            try {
+                flushPending();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${last-login.flush-interval:5s}",
+            initialDelayString = "${last-login.flush-interval:5s}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flushPending() {
+        List<Object[]> batch = new ArrayList<>(Math.min(pending.size(), BATCH_SIZE));
+        for (Long userId : pending.keySet()) {
+            LocalDateTime lastLogin = pending.remove(userId);
+            if (lastLogin != null) {
+                batch.add(new Object[]{Timestamp.valueOf(lastLogin), userId});
+            }
+            if (batch.size() == BATCH_SIZE) {
+                write(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Object[]> batch) {
+        // ids in order, so concurrent flushes of several instances lock rows in the same order
+        batch.sort(Comparator.comparingLong(row -> (Long) row[1]));
+        try {
+            jdbcTemplate.batchUpdate(UPDATE, batch);
+        } catch (RuntimeException e) {
+            logger.warn("Can't write {} last-login times, retrying with the next flush: {}", batch.size(),
+                    e.getMessage());
+            // still bounded: what doesn't fit back is dropped
+            for (Object[] row : batch) {
+                if (pending.size() >= maxPending) {
+                    break;
+                }
+                pending.merge((Long) row[1], ((Timestamp) row[0]).toLocalDateTime(), LastLoginBuffer::latest);
+            }
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
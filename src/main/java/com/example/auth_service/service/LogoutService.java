@@ -1,23 +1,61 @@
 package com.example.auth_service.service;
 
-import com.example.auth_service.security.RefreshTokenService;
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.AccessTokenDenylist;
+import com.example.auth_service.security.RefreshTokenStore;
+import com.example.auth_service.security.TokenVersionService;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
 
 @Service
 public class LogoutService {
-    private final RefreshTokenService refreshTokenService;
+    private final RefreshTokenStore refreshTokenStore;
+    private final AccessTokenDenylist denylist;
+    private final TokenVersionService tokenVersionService;
 
-    public LogoutService(RefreshTokenService refreshTokenService) {
-        this.refreshTokenService = refreshTokenService;
+    public LogoutService(RefreshTokenStore refreshTokenStore, AccessTokenDenylist denylist,
+                         TokenVersionService tokenVersionService) {
+        this.refreshTokenStore = refreshTokenStore;
+        this.denylist = denylist;
+        this.tokenVersionService = tokenVersionService;
     }
 
-    public ResponseEntity<Map<String, String>> buildLogoutResponse(String username) {
-        refreshTokenService.deleteRefreshToken(username);
+    // ends every session of the user, e.g. after a role change
+    public ResponseEntity<Map<String, String>> buildLogoutResponse(Long personId, String username) {
+        refreshTokenStore.revokeAllSessions(personId, username);
+        return logoutResponse();
+    }
+
+    // ends the session of the presented refresh token; the user's other devices stay logged in
+    public ResponseEntity<Map<String, String>> buildLogoutResponse(Long personId, String username, String sessionId) {
+        if (personId == null || sessionId == null) {
+            // token issued before sessions existed, it has no session of its own
+            refreshTokenStore.revokeAllSessions(personId, username);
+        } else {
+            refreshTokenStore.revokeSession(personId, sessionId);
+        }
+        return logoutResponse();
+    }
+
+    // ends every session and invalidates every access token already handed out
+    public ResponseEntity<Map<String, String>> buildLogoutEverywhereResponse(Long personId, String username) {
+        refreshTokenStore.revokeAllSessions(personId, username);
+        tokenVersionService.bump(personId);
+        return logoutResponse();
+    }
+
+    private ResponseEntity<Map<String, String>> logoutResponse() {
+        // the access token of this request is dropped right away, other ones run out or fail the version check
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getDetails() instanceof AccessTokenClaims claims) {
+            denylist.revoke(claims);
+        }
 
         ResponseCookie deleteCookie = ResponseCookie.from("refreshToken", "")
                 .httpOnly(true)
@@ -0,0 +1,85 @@
+package com.example.auth_service.service;
+
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.security.PersonDetailsCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-encodes a password whose hash is outdated (other algorithm, lower cost, no {@code {id}} prefix) with
+ * the current policy, on a background thread after the login that presented it. The new hash only
+ * replaces the one that was verified, so a password changed in the meantime is left alone. When the
+ * queue is full the rehash is skipped; the next login tries again.
+ */
+@Service
+public class PasswordRehashService {
+    private static final int MAX_QUEUED = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(PasswordRehashService.class);
+
+    private final PeopleRepository peopleRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final PersonDetailsCache personDetailsCache;
+    private final ThreadPoolExecutor executor;
+    // one rehash per user at a time: concurrent logins of the same user would only race each other
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public PasswordRehashService(PeopleRepository peopleRepository, PasswordEncoder passwordEncoder,
+                                 PersonDetailsCache personDetailsCache) {
+        this.peopleRepository = peopleRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.personDetailsCache = personDetailsCache;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED), runnable -> {
+                    Thread thread = new Thread(runnable, "password-rehash");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public void rehashLater(Long personId, String username, String currentHash, String rawPassword) {
+        if (!inFlight.add(personId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    rehash(personId, username, currentHash, rawPassword);
+                } finally {
+                    inFlight.remove(personId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(personId);
+            logger.debug("Rehash queue full, skipped userId={}", personId);
+        }
+    }
+
+    public void rehash(Long personId, String username, String currentHash, String rawPassword) {
+        try {
+            String newHash = passwordEncoder.encode(rawPassword);
+            if (peopleRepository.updatePasswordIfUnchanged(personId, currentHash, newHash) == 1) {
+                // cached details still carry the old hash, which would be found outdated again
+                personDetailsCache.invalidate(username);
+                logger.debug("Rehashed password of userId={}", personId);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Can't rehash password of userId={}: {}", personId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
@@ -6,10 +6,16 @@ import com.example.auth_service.mapper.PersonConverter;
 import com.example.auth_service.mapper.PersonMapper;
 import com.example.auth_service.repository.PeopleRepository;
 import com.example.auth_service.security.PersonDetails;
+import com.example.auth_service.security.PersonDetailsCache;
+import com.example.auth_service.security.PrincipalRevocationCheck;
+import com.example.auth_service.security.RefreshTokenStore;
+import com.example.auth_service.security.TokenVersionService;
+import com.example.auth_service.validation.validator.PersonConflictTranslator;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.ws.rs.BadRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,9 +24,10 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -31,27 +38,54 @@ public class PeopleService {
     private final PersonConverter personConverter;
     private final PasswordEncoder passwordEncoder;
     private final KafkaTemplate<String, UserDeletedEvent> kafkaTemplate;
+    private final TokenVersionService tokenVersionService;
+    private final RefreshTokenStore refreshTokenStore;
+    private final LastLoginBuffer lastLoginBuffer;
+    private final PersonDetailsCache personDetailsCache;
+    private final AvailabilityIndex availabilityIndex;
+    private final PrincipalRevocationCheck principalRevocationCheck;
     private final Logger logger = LoggerFactory.getLogger(PeopleService.class);
 
-    public PeopleService(PeopleRepository peopleRepository, PersonMapper personMapper, PersonConverter personConverter, PasswordEncoder passwordEncoder, KafkaTemplate<String, UserDeletedEvent> kafkaTemplate) {
+    public PeopleService(PeopleRepository peopleRepository, PersonMapper personMapper, PersonConverter personConverter, PasswordEncoder passwordEncoder, KafkaTemplate<String, UserDeletedEvent> kafkaTemplate, TokenVersionService tokenVersionService, RefreshTokenStore refreshTokenStore, LastLoginBuffer lastLoginBuffer, PersonDetailsCache personDetailsCache, AvailabilityIndex availabilityIndex, PrincipalRevocationCheck principalRevocationCheck) {
         this.peopleRepository = peopleRepository;
         this.personMapper = personMapper;
         this.personConverter = personConverter;
         this.passwordEncoder = passwordEncoder;
         this.kafkaTemplate = kafkaTemplate;
+        this.tokenVersionService = tokenVersionService;
+        this.refreshTokenStore = refreshTokenStore;
+        this.lastLoginBuffer = lastLoginBuffer;
+        this.personDetailsCache = personDetailsCache;
+        this.availabilityIndex = availabilityIndex;
+        this.principalRevocationCheck = principalRevocationCheck;
     }
 
+    // a single INSERT; a taken username or email comes back from the unique indexes as a ValidationException.
+    // The password arrives hashed, so the transaction doesn't hold a connection while the hash is computed
     @Transactional
-    public PersonResponseDTO savePerson(PersonRequestDTO dto) {
-        Person person = personMapper.toEntity(dto);
-        peopleRepository.save(person);
+    public PersonResponseDTO savePerson(PersonRequestDTO dto, String encodedPassword) {
+        Person person = personMapper.toEntity(dto, encodedPassword);
+        try {
+            peopleRepository.saveAndFlush(person);
+        } catch (DataIntegrityViolationException e) {
+            throw PersonConflictTranslator.toValidationException(e, dto);
+        }
+        availabilityIndex.addAfterCommit(person.getUsername(), person.getEmail());
         return personMapper.toResponse(person);
     }
 
     @PreAuthorize("hasRole('ROLE_ADMIN') || #personId == authentication.principal.id")
     @Transactional
     public void deletePerson(Long personId) {
+        // /refresh trusts the session in Redis, so it has to go together with the account; its username and
+        // email stay in the availability index, which only answers "free" for sure, until the next rebuild
+        peopleRepository.findById(personId).ifPresent(person -> {
+            refreshTokenStore.revokeAllSessions(personId, person.getUsername());
+            personDetailsCache.invalidateAfterCommit(person.getUsername());
+        });
         peopleRepository.deleteById(personId);
+        tokenVersionService.bumpAfterCommit(personId);
+        principalRevocationCheck.invalidateAfterCommit(personId);
         kafkaTemplate.send("user-deleted", new UserDeletedEvent(personId));
         logger.info("Sent event to Kafka: userId = {}", personId);
     }
@@ -87,21 +121,51 @@ public class PeopleService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to update");
         }*/
 
+        String oldUsername = personToUpdate.getUsername();
         personConverter.updatePersonFromDtoWithFixedFields(dto, personToUpdate);
-
-        if (dto.getPassword() != null && !dto.getPassword().isBlank()) {
+        boolean passwordChanged = dto.getPassword() != null && !dto.getPassword().isBlank();
+        if (passwordChanged) {
             personToUpdate.setPassword(passwordEncoder.encode(dto.getPassword()));
         }
 
-        return personMapper.toResponse(peopleRepository.save(personToUpdate));
+        // flushed here so a taken username or email fails before sessions and tokens are touched
+        Person saved;
+        try {
+            saved = peopleRepository.saveAndFlush(personToUpdate);
+        } catch (DataIntegrityViolationException e) {
+            throw PersonConflictTranslator.toValidationException(e, dto);
+        }
+
+        if (!Objects.equals(oldUsername, personToUpdate.getUsername())) {
+            refreshTokenStore.revokeAllSessions(personToUpdate.getId(), oldUsername);
+        }
+        if (passwordChanged) {
+            // a stolen refresh token would otherwise keep minting access tokens after the change
+            tokenVersionService.bumpAfterCommit(personToUpdate.getId());
+            revokeAllSessionsAfterCommit(personToUpdate.getId(), oldUsername);
+        }
+
+        personDetailsCache.invalidateAfterCommit(oldUsername, personToUpdate.getUsername());
+        principalRevocationCheck.invalidateAfterCommit(personToUpdate.getId());
+        availabilityIndex.addAfterCommit(personToUpdate.getUsername(), personToUpdate.getEmail());
+        return personMapper.toResponse(saved);
     }
 
-    @Transactional
-    public void setLastLogin(Long userId) {
-        Person currentUser = peopleRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User with ID " + userId + " wasn't found!"));
+    private void revokeAllSessionsAfterCommit(Long personId, String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshTokenStore.revokeAllSessions(personId, username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refreshTokenStore.revokeAllSessions(personId, username);
+            }
+        });
+    }
 
-        currentUser.setLastLogin(LocalDateTime.now());
-        peopleRepository.save(currentUser);
+    // written behind in batches, see LastLoginBuffer; a user deleted meanwhile just updates no row
+    public void setLastLogin(Long userId) {
+        lastLoginBuffer.record(userId);
     }
 }
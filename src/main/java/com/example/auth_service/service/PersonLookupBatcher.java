@@ -0,0 +1,170 @@
+package com.example.auth_service.service;
+
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonCredentialsLookupView;
+import com.example.auth_service.repository.PersonCredentialsView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Looks users up by username, ignoring case, in batches: lookups that arrive within {@code window} of the
+ * first one share a single {@code WHERE lower(username) IN (...)} query, and so one pooled connection. A batch goes out early
+ * once it holds {@code max-size} distinct usernames; the lookup that fills it runs the query itself. Each
+ * lookup waits at most one window longer than a query of its own would take.
+ */
+@Component
+public class PersonLookupBatcher implements MeterBinder {
+    private final PeopleRepository peopleRepository;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Object lock = new Object();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private Batch current;
+
+    @Autowired
+    public PersonLookupBatcher(PeopleRepository peopleRepository,
+                               @Value("${user-lookup.batch.enabled:true}") boolean enabled,
+                               @Value("${user-lookup.batch.window:2ms}") Duration window,
+                               @Value("${user-lookup.batch.max-size:64}") int maxBatchSize,
+                               @Value("${user-lookup.batch.threads:4}") int threads) {
+        this(peopleRepository, window, maxBatchSize, enabled ? newScheduler(threads) : null);
+    }
+
+    // a null scheduler or zero window queries every lookup on its own
+    public PersonLookupBatcher(PeopleRepository peopleRepository, Duration window, int maxBatchSize,
+                               ScheduledExecutorService scheduler) {
+        this.peopleRepository = peopleRepository;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+    }
+
+    public static ScheduledExecutorService newScheduler(int threads) {
+        AtomicInteger created = new AtomicInteger();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "person-lookup-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    // null when there is no such user
+    public PersonCredentialsView find(String username) {
+        lookups.increment();
+        if (scheduler == null || windowNanos <= 0 || maxBatchSize <= 1) {
+            queries.increment();
+            return peopleRepository.findCredentialsByUsername(username).orElse(null);
+        }
+
+        String key = username.toLowerCase(Locale.ROOT);
+        CompletableFuture<PersonCredentialsView> result;
+        Batch full = null;
+        synchronized (lock) {
+            if (current == null) {
+                Batch batch = new Batch();
+                scheduler.schedule(() -> dispatch(batch), windowNanos, TimeUnit.NANOSECONDS);
+                current = batch;
+            }
+            current.usernames.putIfAbsent(key, username);
+            result = current.lookups.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (current.lookups.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+        if (full != null) {
+            run(full);
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void dispatch(Batch batch) {
+        synchronized (lock) {
+            // already sent because it filled up
+            if (current != batch) {
+                return;
+            }
+            current = null;
+        }
+        run(batch);
+    }
+
+    private void run(Batch batch) {
+        queries.increment();
+        try {
+            List<PersonCredentialsLookupView> people =
+                    peopleRepository.findCredentialsByUsernameIn(batch.lookups.keySet());
+            Map<String, PersonCredentialsView> byKey = new HashMap<>(people.size() * 2);
+            for (PersonCredentialsLookupView person : people) {
+                byKey.putIfAbsent(person.getUsernameKey(), person);
+            }
+            batch.lookups.forEach((key, result) -> result.complete(
+                    byKey.containsKey(key) ? byKey.get(key) : findUnmatched(batch.usernames.get(key))));
+        } catch (RuntimeException e) {
+            batch.lookups.values().forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    // Java and the database lower-case ASCII alike; beyond it a miss may only mean the two disagree, so such a
+    // username gets the single query, which lower-cases both sides in the database
+    private PersonCredentialsView findUnmatched(String username) {
+        if (username.chars().allMatch(c -> c < 128)) {
+            return null;
+        }
+        queries.increment();
+        return peopleRepository.findCredentialsByUsername(username).orElse(null);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.person-lookup.lookups", lookups, LongAdder::sum)
+                .description("User lookups by username")
+                .register(registry);
+        FunctionCounter.builder("auth.person-lookup.queries", queries, LongAdder::sum)
+                .description("Database queries that answered them; lookups / queries is the mean batch size")
+                .register(registry);
+    }
+
+    private static final class Batch {
+        // guarded by the batcher's lock until the batch is taken out of current
+        private final Map<String, CompletableFuture<PersonCredentialsView>> lookups = new HashMap<>();
+        // the username as typed, by key
+        private final Map<String, String> usernames = new HashMap<>();
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.auth_service.service;
+
+import com.example.auth_service.dto.PersonRequestDTO;
+import com.example.auth_service.dto.UserImportResultDTO;
+import com.example.auth_service.dto.UserImportSummaryDTO;
+import com.example.auth_service.entity.Person;
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.validation.validator.PersonConflictTranslator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users in bulk from an NDJSON or CSV upload without holding the upload in memory. Rows are read in
+ * chunks of {@code user-import.batch-size} and each row is validated like a registration. Usernames and
+ * emails repeated in the file or already taken are rejected with one query per chunk, the remaining
+ * passwords are hashed in parallel on a pool of their own, and the chunk is inserted as one JDBC batch.
+ * A result line per row is written as soon as its chunk is done, then a summary line. A batch that still
+ * hits a unique index, because a registration took a name in the meantime, is retried one row at a time.
+ */
+@Component
+public class UserImportService implements MeterBinder {
+    public enum Format { NDJSON, CSV }
+
+    private static final List<String> CSV_COLUMNS = List.of("username", "email", "password");
+
+    private final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    private final PeopleRepository peopleRepository;
+    private final EntityManager entityManager;
+    private final TransactionOperations transactionOperations;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final AvailabilityIndex availabilityIndex;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final ExecutorService hashingPool;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public UserImportService(PeopleRepository peopleRepository, EntityManager entityManager,
+                             TransactionOperations transactionOperations, PasswordEncoder passwordEncoder,
+                             Validator validator, AvailabilityIndex availabilityIndex, ObjectMapper objectMapper,
+                             @Value("${user-import.batch-size:500}") int batchSize,
+                             @Value("${user-import.hash-threads:0}") int hashThreads) {
+        this.peopleRepository = peopleRepository;
+        this.entityManager = entityManager;
+        this.transactionOperations = transactionOperations;
+        this.passwordEncoder = passwordEncoder;
+        this.validator = validator;
+        this.availabilityIndex = availabilityIndex;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.hashingPool = newHashingPool(hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors());
+    }
+
+    // separate from the login pool, whose bounded queue would turn an import into 503s for everyone else
+    private static ExecutorService newHashingPool(int threads) {
+        AtomicInteger created = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hashing-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        hashingPool.shutdownNow();
+    }
+
+    public UserImportSummaryDTO importUsers(InputStream input, Format format, OutputStream output) throws IOException {
+        long started = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Report report = new Report(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        List<Row> chunk = new ArrayList<>(batchSize);
+        int[] csvColumns = null;
+        long lineNumber = 0;
+        String failure = null;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && csvColumns == null) {
+                    csvColumns = csvColumns(line);
+                    if (csvColumns == null) {
+                        failure = "The first line must be a CSV header naming the username, email and password columns";
+                        break;
+                    }
+                    continue;
+                }
+                chunk.add(format == Format.CSV ? parseCsv(lineNumber, line, csvColumns) : parseJson(lineNumber, line));
+                if (chunk.size() == batchSize) {
+                    process(chunk);
+                    report.write(chunk);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (failure == null && !chunk.isEmpty()) {
+                process(chunk);
+                report.write(chunk);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("User import stopped at line {}", lineNumber, e);
+            // a chunk that fell back to single inserts may have committed some of its rows already
+            report.write(chunk.stream().filter(row -> row.id != null).toList());
+            failure = "Import stopped at line " + lineNumber + "; rows without a result weren't imported";
+        }
+
+        UserImportSummaryDTO summary = new UserImportSummaryDTO(report.created, report.rejected, failure == null, failure);
+        report.finish(summary);
+        logger.info("User import: {} created, {} rejected in {} ms{}", report.created, report.rejected,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), failure == null ? "" : ", incomplete");
+        return summary;
+    }
+
+    private Row parseJson(long line, String text) {
+        PersonRequestDTO person;
+        try {
+            person = objectMapper.readValue(text, PersonRequestDTO.class);
+        } catch (JsonProcessingException e) {
+            person = null;
+        }
+        if (person == null) {
+            return new Row(line, null, "Not a JSON object with username, email and password");
+        }
+        return validated(line, person);
+    }
+
+    private Row parseCsv(long line, String text, int[] columns) {
+        List<String> values = splitCsv(text);
+        if (values == null) {
+            return new Row(line, null, "Unterminated quoted value");
+        }
+        PersonRequestDTO person = new PersonRequestDTO();
+        person.setUsername(value(values, columns[0]));
+        person.setEmail(value(values, columns[1]));
+        person.setPassword(value(values, columns[2]));
+        return validated(line, person);
+    }
+
+    private Row validated(long line, PersonRequestDTO person) {
+        Set<ConstraintViolation<PersonRequestDTO>> violations = validator.validate(person);
+        if (violations.isEmpty()) {
+            return new Row(line, person, null);
+        }
+        String error = violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+        return new Row(line, person, error);
+    }
+
+    private void process(List<Row> chunk) {
+        rejectRepeatedOrTaken(chunk);
+        List<Row> accepted = chunk.stream().filter(row -> row.error == null).toList();
+        List<CompletableFuture<String>> hashes = accepted.stream()
+                .map(row -> CompletableFuture.supplyAsync(
+                        () -> passwordEncoder.encode(row.person.getPassword()), hashingPool))
+                .toList();
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).hash = hashes.get(i).join();
+        }
+        insert(accepted);
+    }
+
+    // the first row with a username or email wins, later rows and names someone already has are rejected
+    private void rejectRepeatedOrTaken(List<Row> chunk) {
+        Map<String, Row> usernames = new HashMap<>();
+        Map<String, Row> emails = new HashMap<>();
+        for (Row row : chunk) {
+            if (row.error != null) {
+                continue;
+            }
+            String username = key(row.person.getUsername());
+            String email = key(row.person.getEmail());
+            if (usernames.containsKey(username)) {
+                row.error = conflict("username");
+            } else if (emails.containsKey(email)) {
+                row.error = conflict("email");
+            } else {
+                usernames.put(username, row);
+                emails.put(email, row);
+            }
+        }
+        if (usernames.isEmpty()) {
+            return;
+        }
+        for (String username : peopleRepository.findTakenUsernames(usernames.keySet())) {
+            rejectTaken(usernames, username, "username");
+        }
+        for (String email : peopleRepository.findTakenEmails(emails.keySet())) {
+            rejectTaken(emails, email, "email");
+        }
+    }
+
+    // PostgreSQL's lower() and toLowerCase(Locale.ROOT) disagree on a few characters (e.g. 'İ'), so a key
+    // may come back that we never sent; such a row is left to the unique index when it's inserted
+    private void rejectTaken(Map<String, Row> rows, String key, String field) {
+        Row row = rows.get(key);
+        if (row == null) {
+            logger.debug("User import: taken {} '{}' matches no row of the batch", field, key);
+        } else if (row.error == null) {
+            row.error = conflict(field);
+        }
+    }
+
+    private void insert(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Person> people = rows.stream().map(Row::toPerson).toList();
+        try {
+            transactionOperations.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                peopleRepository.saveAll(people);
+                peopleRepository.flush();
+            });
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).id = people.get(i).getId();
+            }
+        } catch (DataIntegrityViolationException e) {
+            logger.info("User import batch hit a unique index, inserting its {} rows one by one", rows.size());
+            rows.forEach(this::insertOne);
+        }
+        for (Row row : rows) {
+            if (row.id != null) {
+                availabilityIndex.addAfterCommit(row.person.getUsername(), row.person.getEmail());
+            }
+        }
+    }
+
+    private void insertOne(Row row) {
+        Person person = row.toPerson();
+        try {
+            transactionOperations.executeWithoutResult(status -> peopleRepository.saveAndFlush(person));
+            row.id = person.getId();
+        } catch (DataIntegrityViolationException e) {
+            row.error = PersonConflictTranslator.conflictingField(e).map(this::conflict).orElseThrow(() -> e);
+        }
+    }
+
+    private String conflict(String field) {
+        return field + ": " + PersonConflictTranslator.message(field);
+    }
+
+    // positions of username, email and password in the header, null when one is missing
+    private static int[] csvColumns(String header) {
+        // spreadsheet exports often start with a byte order mark
+        List<String> names = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        if (names == null) {
+            return null;
+        }
+        names = names.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+        int[] columns = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(CSV_COLUMNS.get(i));
+            if (columns[i] < 0) {
+                return null;
+            }
+        }
+        return columns;
+    }
+
+    // RFC 4180 fields of one line: quoted fields may hold commas and doubled quotes, not line breaks
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String value(List<String> values, int column) {
+        return column < values.size() ? values.get(column) : null;
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.user-import.rows", created, LongAdder::sum)
+                .tag("result", "created")
+                .description("Rows of bulk imports")
+                .register(registry);
+        FunctionCounter.builder("auth.user-import.rows", rejected, LongAdder::sum)
+                .tag("result", "rejected")
+                .description("Rows of bulk imports")
+                .register(registry);
+    }
+
+    private static final class Row {
+        private final long line;
+        // null when the line couldn't be read at all
+        private final PersonRequestDTO person;
+        private String error;
+        private String hash;
+        private Long id;
+
+        private Row(long line, PersonRequestDTO person, String error) {
+            this.line = line;
+            this.person = person;
+            this.error = error;
+        }
+
+        private Person toPerson() {
+            Person person = new Person();
+            person.setUsername(this.person.getUsername());
+            person.setEmail(this.person.getEmail());
+            person.setPassword(hash);
+            person.setRole("ROLE_USER");
+            return person;
+        }
+    }
+
+    // one NDJSON line per row, flushed per chunk so the client sees progress
+    private final class Report {
+        private final Writer writer;
+        private long created;
+        private long rejected;
+
+        private Report(Writer writer) {
+            this.writer = writer;
+        }
+
+        private void write(List<Row> chunk) throws IOException {
+            for (Row row : chunk) {
+                String username = row.person == null ? null : row.person.getUsername();
+                if (row.id != null) {
+                    created++;
+                    UserImportService.this.created.increment();
+                    writeLine(UserImportResultDTO.created(row.line, username, row.id));
+                } else {
+                    rejected++;
+                    UserImportService.this.rejected.increment();
+                    writeLine(UserImportResultDTO.rejected(row.line, username, row.error));
+                }
+            }
+            writer.flush();
+        }
+
+        private void finish(UserImportSummaryDTO summary) throws IOException {
+            writeLine(summary);
+            writer.flush();
+        }
+
+        private void writeLine(Object value) throws IOException {
+            writer.write(objectMapper.writeValueAsString(value));
+            writer.write('\n');
+        }
+    }
+}
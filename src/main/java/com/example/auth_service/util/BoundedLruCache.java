@@ -0,0 +1,135 @@
+package com.example.auth_service.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU map split into independently locked stripes, so concurrent requests
+ * for different keys rarely contend. Each stripe evicts its least recently used entry
+ * once it holds {@code maxEntries / stripes} entries, which keeps the total hard-capped.
+ */
+public class BoundedLruCache<K, V> {
+    private final Stripe<K, V>[] stripes;
+    private final int mask;
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public BoundedLruCache(int maxEntries, int concurrency) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(concurrency, maxEntries)));
+        int perStripe = Math.max(1, maxEntries / stripeCount);
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(perStripe, evictions);
+        }
+        this.mask = stripeCount - 1;
+    }
+
+    public V get(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.computeIfAbsent(key, mappingFunction);
+        }
+    }
+
+    // runs under the stripe's lock, so it can't interleave with remove or removeIf of the same key
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.compute(key, remappingFunction);
+        }
+    }
+
+    public V remove(K key) {
+        Stripe<K, V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    public int removeIf(BiPredicate<? super K, ? super V> predicate) {
+        int removed = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Map.Entry<K, V>> iterator = stripe.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<K, V> entry = iterator.next();
+                    if (predicate.test(entry.getKey(), entry.getValue())) {
+                        iterator.remove();
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Stripe<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+        private final LongAdder evictions;
+
+        private Stripe(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.auth_service.util;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row it opens and
+ * {@link #tryAcquire} refuses every call for {@code openDuration}; then a single trial call is let through
+ * (half-open), and its outcome either closes the breaker or opens it for another period.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        if (failureThreshold <= 0 || openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("failureThreshold and openDuration must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.clock = clock;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.millis() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.millis();
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.millis() - openedAt >= openMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    // until the next trial call is let through; zero unless open
+    public synchronized Duration remainingOpen() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(Math.max(0, openedAt + openMillis - clock.millis()));
+    }
+}
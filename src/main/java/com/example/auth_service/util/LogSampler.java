@@ -0,0 +1,23 @@
+package com.example.auth_service.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets one event in {@code rate} through, so a burst of identical failures (a client retrying with
+ * an expired token, a scanner sending garbage) costs a handful of log lines instead of one per request.
+ */
+public class LogSampler {
+    private final int rate;
+    private final AtomicLong events = new AtomicLong();
+
+    public LogSampler(int rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+        this.rate = rate;
+    }
+
+    public boolean sample() {
+        return rate == 1 || events.getAndIncrement() % rate == 0;
+    }
+}
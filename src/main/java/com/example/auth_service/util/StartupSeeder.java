@@ -52,7 +52,7 @@ public class StartupSeeder implements CommandLineRunner {
     }
 
     private void ensureAccount(String email, String username, String role, String rawPassword, boolean resetPasswordFlag) {
-        persons.findFirstByEmail(email).ifPresentOrElse(existing -> {
+        persons.findByEmail(email).ifPresentOrElse(existing -> {
             boolean changed = false;
 
             // выровнять username/role при необходимости
@@ -0,0 +1,60 @@
+package com.example.auth_service.util;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Token bucket per key: up to {@code capacity} attempts at once, then one more every {@code refillPeriod}.
+ * Buckets live in a {@link BoundedLruCache}, so a flood of distinct keys evicts the least recently used
+ * ones instead of growing the map; an idle bucket has refilled anyway and is the same as a missing one.
+ */
+public class TokenBucketLimiter {
+    private final BoundedLruCache<String, Bucket> buckets;
+    private final int capacity;
+    private final long refillMillis;
+    private final Clock clock;
+
+    public TokenBucketLimiter(int capacity, Duration refillPeriod, int maxKeys, Clock clock) {
+        if (capacity <= 0 || refillPeriod.isNegative() || refillPeriod.isZero()) {
+            throw new IllegalArgumentException("capacity and refillPeriod must be positive");
+        }
+        this.buckets = new BoundedLruCache<>(maxKeys, Runtime.getRuntime().availableProcessors() * 4);
+        this.capacity = capacity;
+        this.refillMillis = refillPeriod.toMillis();
+        this.clock = clock;
+    }
+
+    // 0 when a token was taken, otherwise the milliseconds until the next one
+    public long tryAcquire(String key) {
+        long now = clock.millis();
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+        synchronized (bucket) {
+            long elapsed = Math.max(0, now - bucket.updatedAt);
+            bucket.tokens = Math.min(capacity, bucket.tokens + (double) elapsed / refillMillis);
+            bucket.updatedAt = Math.max(now, bucket.updatedAt);
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - bucket.tokens) * refillMillis));
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long evictionCount() {
+        return buckets.evictionCount();
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long updatedAt;
+
+        private Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
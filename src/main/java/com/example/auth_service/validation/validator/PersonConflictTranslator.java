@@ -0,0 +1,57 @@
+package com.example.auth_service.validation.validator;
+
+import com.example.auth_service.exception.ValidationException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Turns a unique constraint violation on {@code person} into the field error the request would have got
+ * from a check before the insert. Usernames and emails aren't looked up in advance; the insert or update
+ * itself fails on the unique index, which also holds for two requests racing for the same name.
+ */
+public final class PersonConflictTranslator {
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private PersonConflictTranslator() {
+    }
+
+    // "username" or "email", empty when the violation isn't one of the person uniqueness constraints
+    public static Optional<String> conflictingField(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                if (!UNIQUE_VIOLATION.equals(violation.getSQLState())) {
+                    return Optional.empty();
+                }
+                // PostgreSQL names the index, H2 the index behind the constraint; both contain the column
+                String constraint = violation.getConstraintName() != null
+                        ? violation.getConstraintName() : String.valueOf(violation.getSQLException().getMessage());
+                constraint = constraint.toLowerCase(Locale.ROOT);
+                if (constraint.contains("person_username")) {
+                    return Optional.of("username");
+                }
+                if (constraint.contains("person_email")) {
+                    return Optional.of("email");
+                }
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static String message(String field) {
+        return field.equals("username") ? "This username is already taken!" : "This email is already taken!";
+    }
+
+    // rethrows the original exception when it isn't a username or email conflict
+    public static ValidationException toValidationException(DataIntegrityViolationException e, Object target) {
+        String field = conflictingField(e).orElseThrow(() -> e);
+        BindingResult bindingResult = new BeanPropertyBindingResult(target, "person");
+        bindingResult.rejectValue(field, field + ".taken", message(field));
+        return new ValidationException(bindingResult);
+    }
+}
@@ -0,0 +1,23 @@
+-- The schema db-init/init.sql creates; databases made from that dump are baselined at this version.
+CREATE TABLE person (
+    id bigint NOT NULL,
+    username character varying(100) NOT NULL,
+    password character varying(255) NOT NULL,
+    email character varying(50) NOT NULL,
+    role character varying(100) NOT NULL,
+    last_login timestamp without time zone
+);
+
+CREATE SEQUENCE person_id_seq
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+ALTER SEQUENCE person_id_seq OWNED BY person.id;
+
+ALTER TABLE ONLY person ALTER COLUMN id SET DEFAULT nextval('person_id_seq'::regclass);
+
+ALTER TABLE ONLY person
+    ADD CONSTRAINT person_pkey PRIMARY KEY (id);
@@ -0,0 +1,20 @@
+-- Usernames and emails become unique regardless of case. The indexes are built CONCURRENTLY, so the
+-- table keeps taking writes meanwhile; a build that fails leaves an INVALID index behind, which has to be
+-- dropped (and the migration repaired) before running it again.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM person GROUP BY lower(username) HAVING count(*) > 1) THEN
+        RAISE EXCEPTION 'person.username has values that differ only in case, resolve them before migrating';
+    END IF;
+    IF EXISTS (SELECT 1 FROM person GROUP BY lower(email) HAVING count(*) > 1) THEN
+        RAISE EXCEPTION 'person.email has values that differ only in case, resolve them before migrating';
+    END IF;
+END
+$$;
+
+-- carries every column login reads, so a lookup by username is an index-only scan
+CREATE UNIQUE INDEX CONCURRENTLY person_username_lower_key
+    ON person (lower(username)) INCLUDE (id, username, password, email, role);
+
+CREATE UNIQUE INDEX CONCURRENTLY person_email_lower_key
+    ON person (lower(email));
@@ -0,0 +1,4 @@
+-- Hibernate reserves blocks of 50 ids per nextval (pooled optimizer) instead of reading each id back after
+-- its insert, which is what lets it batch inserts. Ids handed out before stay valid; the column default
+-- still draws from the same sequence, so rows inserted outside the application don't collide either.
+ALTER SEQUENCE person_id_seq INCREMENT BY 50;
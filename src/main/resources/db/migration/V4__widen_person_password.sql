@@ -0,0 +1,4 @@
+-- Databases created from the dump before argon2 support have password varchar(100), too short for an
+-- argon2 hash. Widening a varchar is a catalog change only; neither the table nor the index carrying the
+-- column is rewritten.
+ALTER TABLE person ALTER COLUMN password TYPE varchar(255);
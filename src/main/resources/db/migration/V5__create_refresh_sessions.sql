@@ -0,0 +1,14 @@
+-- Table of jwt.refresh.store=jdbc. Earlier releases created it at startup, hence IF NOT EXISTS.
+CREATE TABLE IF NOT EXISTS refresh_sessions (
+    user_id BIGINT NOT NULL,
+    session_id VARCHAR(64) NOT NULL,
+    role VARCHAR(32) NOT NULL,
+    token_digest VARCHAR(22) NOT NULL,
+    previous_digest VARCHAR(11) NOT NULL,
+    device VARCHAR(32) NOT NULL,
+    created_at BIGINT NOT NULL,
+    last_used_at BIGINT NOT NULL,
+    PRIMARY KEY (user_id, session_id)
+);
+
+CREATE INDEX IF NOT EXISTS refresh_sessions_last_used ON refresh_sessions (last_used_at);
@@ -0,0 +1,98 @@
+package com.example.auth_service.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.AccessTokenCodec;
+import com.example.auth_service.security.JWTUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access-token minting and verification through the java-jwt builder/verifier versus
+ * {@link AccessTokenCodec}. Run with {@code -prof gc} to get {@code gc.alloc.rate.norm},
+ * the bytes allocated per token.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessTokenCodecBenchmark {
+    private static final String SECRET = "benchmark-secret";
+
+    private Algorithm algorithm;
+    private JWTVerifier verifier;
+    private AccessTokenCodec codec;
+    private String auth0Token;
+    private String codecToken;
+
+    @Setup
+    public void setUp() {
+        algorithm = Algorithm.HMAC256(SECRET);
+        verifier = JWT.require(algorithm)
+                .withSubject(JWTUtil.ACCESS_SUBJECT)
+                .withIssuer(JWTUtil.ISSUER)
+                .build();
+        codec = new AccessTokenCodec("k1", SECRET.getBytes(StandardCharsets.UTF_8));
+        auth0Token = signAuth0PerCallAlgorithm();
+        codecToken = signCodec();
+    }
+
+    // what JWTUtil did originally: fresh Algorithm (and Mac) for every token
+    @Benchmark
+    public String signAuth0PerCallAlgorithm() {
+        return JWT.create()
+                .withKeyId("k1")
+                .withSubject(JWTUtil.ACCESS_SUBJECT)
+                .withClaim("id", 42L)
+                .withClaim("username", "john")
+                .withClaim("role", "ROLE_USER")
+                .withClaim("ver", 0L)
+                .withIssuedAt(new Date())
+                .withIssuer(JWTUtil.ISSUER)
+                .withExpiresAt(Date.from(ZonedDateTime.now().plusMinutes(60).toInstant()))
+                .sign(Algorithm.HMAC256(SECRET));
+    }
+
+    @Benchmark
+    public String signAuth0CachedAlgorithm() {
+        Instant now = Instant.now();
+        return JWT.create()
+                .withKeyId("k1")
+                .withSubject(JWTUtil.ACCESS_SUBJECT)
+                .withClaim("id", 42L)
+                .withClaim("username", "john")
+                .withClaim("role", "ROLE_USER")
+                .withClaim("ver", 0L)
+                .withIssuedAt(now)
+                .withIssuer(JWTUtil.ISSUER)
+                .withExpiresAt(now.plusSeconds(3600))
+                .sign(algorithm);
+    }
+
+    @Benchmark
+    public String signCodec() {
+        long now = Instant.now().getEpochSecond();
+        return codec.encode(42L, "john", "ROLE_USER", 0L, "t1", now, now + 3600);
+    }
+
+    @Benchmark
+    public AccessTokenClaims verifyAuth0() {
+        DecodedJWT jwt = verifier.verify(auth0Token);
+        return AccessTokenClaims.from(jwt);
+    }
+
+    @Benchmark
+    public AccessTokenClaims verifyCodec() {
+        return codec.decode(codecToken);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.auth_service.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import com.example.auth_service.config.JWTFilter;
+import com.example.auth_service.entity.Person;
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonCredentialsView;
+import com.example.auth_service.security.AccessTokenDenylist;
+import com.example.auth_service.security.JWTKeyRing;
+import com.example.auth_service.security.JWTUtil;
+import com.example.auth_service.security.PersonDetailsCache;
+import com.example.auth_service.security.PersonDetailsService;
+import com.example.auth_service.security.PrincipalRevocationCheck;
+import com.example.auth_service.security.TokenVersionService;
+import com.example.auth_service.security.VerifiedTokenCache;
+import com.example.auth_service.service.PersonLookupBatcher;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Requests per second through {@link JWTFilter} for an authenticated route, with the principal loaded
+ * from the database ({@code stateless=false}) and built from token claims ({@code stateless=true}).
+ * The repository is a stub that parks for {@code dbRoundTripMicros} to stand in for a PostgreSQL query.
+ * <p>
+ * {@code profileRequestLoggingHeader} adds back the INFO line with the raw Authorization header that the
+ * filter used to write on every request (to a file appender, as in production), so it is the "before"
+ * of {@code profileRequest}. {@code loginRequest} is a public route that the filter now skips.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JWTFilterBenchmark {
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    @Param({"300"})
+    public long dbRoundTripMicros;
+
+    private JWTFilter filter;
+    private String authorizationHeader;
+    private Logger headerLogger;
+    private FileAppender<ILoggingEvent> appender;
+
+    @Setup
+    public void setUp() throws IOException {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d %-5level [%thread] %logger{36} - %msg%n");
+        encoder.start();
+        appender = new FileAppender<>();
+        appender.setContext(loggerContext);
+        appender.setFile(File.createTempFile("jwt-filter-benchmark", ".log").getAbsolutePath());
+        appender.setEncoder(encoder);
+        appender.start();
+        headerLogger = loggerContext.getLogger(JWTFilter.class.getName() + ".header");
+        headerLogger.setAdditive(false);
+        headerLogger.addAppender(appender);
+
+        Person person = new Person();
+        person.setId(42L);
+        person.setUsername("john");
+        person.setPassword("hash");
+        person.setEmail("john@gmail.com");
+        person.setRole("ROLE_USER");
+
+        PeopleRepository peopleRepository = mock(PeopleRepository.class);
+        PersonCredentialsView credentials =
+                new SpelAwareProxyProjectionFactory().createProjection(PersonCredentialsView.class, person);
+        when(peopleRepository.findCredentialsByUsername("john")).thenAnswer(invocation -> {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbRoundTripMicros));
+            return Optional.of(credentials);
+        });
+
+        JWTKeyRing keyRing = new JWTKeyRing("k1", "benchmark-secret");
+        JWTUtil jwtUtil = new JWTUtil(keyRing);
+        // the revocation check re-reads the user once per ttl, which is negligible over a measurement window
+        PrincipalRevocationCheck revocationCheck =
+                new PrincipalRevocationCheck(peopleRepository, false, Duration.ofSeconds(30), 1000);
+
+        // stateful mode is measured against a plain database lookup: no batching, no user details cache
+        PersonDetailsService personDetailsService = new PersonDetailsService(
+                new PersonLookupBatcher(peopleRepository, Duration.ZERO, 1, null),
+                new PersonDetailsCache(null, null, false, 1, Duration.ofMinutes(1), false, Clock.systemUTC()));
+        filter = new JWTFilter(jwtUtil, personDetailsService,
+                new VerifiedTokenCache(keyRing, true, 1000), revocationCheck,
+                new TokenVersionService(),
+                new AccessTokenDenylist(null, null, false, 100_000, 0.001, Duration.ofMinutes(60), Clock.systemUTC()),
+                stateless, 100);
+        authorizationHeader = "Bearer " + jwtUtil.generateAccessToken(42L, "john", "ROLE_USER");
+    }
+
+    @TearDown
+    public void tearDown() {
+        appender.stop();
+        new File(appender.getFile()).delete();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse profileRequest() throws Exception {
+        return request("/profile");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse profileRequestLoggingHeader() throws Exception {
+        headerLogger.info("Authorization header = {}", authorizationHeader);
+        return request("/profile");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse loginRequest() throws Exception {
+        return request("/login");
+    }
+
+    private MockHttpServletResponse request(String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader("Authorization", authorizationHeader);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.auth_service.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.auth_service.security.JWTKeyRing;
+import com.example.auth_service.security.JWTUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old per-call {@code Algorithm.HMAC256(secret)} + {@code JWT.require(...).build()}
+ * path with the key ring, where algorithm and verifier are built once per key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JWTUtilBenchmark {
+    private static final String SECRET = "benchmark-secret";
+
+    private JWTUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JWTUtil(new JWTKeyRing("k1", SECRET));
+        token = jwtUtil.generateAccessToken(42L, "john", "ROLE_USER");
+    }
+
+    @Benchmark
+    public DecodedJWT verifyRebuildingVerifier() {
+        return JWT.require(Algorithm.HMAC256(SECRET))
+                .withSubject(JWTUtil.ACCESS_SUBJECT)
+                .withIssuer(JWTUtil.ISSUER)
+                .build()
+                .verify(token);
+    }
+
+    @Benchmark
+    public DecodedJWT verifyWithKeyRing() {
+        return jwtUtil.validateAccessToken(token);
+    }
+
+    @Benchmark
+    public String signRebuildingAlgorithm() {
+        return JWT.create()
+                .withSubject(JWTUtil.ACCESS_SUBJECT)
+                .withClaim("id", 42L)
+                .withClaim("username", "john")
+                .withClaim("role", "ROLE_USER")
+                .withIssuedAt(new Date())
+                .withIssuer(JWTUtil.ISSUER)
+                .withExpiresAt(Date.from(ZonedDateTime.now().plusMinutes(60).toInstant()))
+                .sign(Algorithm.HMAC256(SECRET));
+    }
+
+    @Benchmark
+    public String signWithKeyRing() {
+        return jwtUtil.generateAccessToken(42L, "john", "ROLE_USER");
+    }
+}
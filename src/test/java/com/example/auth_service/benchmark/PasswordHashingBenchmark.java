@@ -0,0 +1,41 @@
+package com.example.auth_service.benchmark;
+
+import com.example.auth_service.security.PasswordHashing;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins per second one instance can verify, per hashing cost: run with {@code -t} set to the number of
+ * cores of the instance type to get its ceiling, with {@code -t 1} for the per-login latency. bcrypt
+ * costs are strengths (each step doubles the work), argon2 costs are iterations at 19 MiB.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashingBenchmark {
+    @Param({"bcrypt:10", "bcrypt:11", "bcrypt:12", "bcrypt:13", "argon2:2", "argon2:3", "argon2:4"})
+    public String cost;
+
+    private PasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        String algorithm = cost.substring(0, cost.indexOf(':'));
+        int value = Integer.parseInt(cost.substring(cost.indexOf(':') + 1));
+        encoder = PasswordHashing.BCRYPT.equals(algorithm)
+                ? PasswordHashing.encoder(algorithm, value, 19456, PasswordHashing.MIN_ARGON2_ITERATIONS)
+                : PasswordHashing.encoder(algorithm, PasswordHashing.MIN_BCRYPT_STRENGTH, 19456, value);
+        hash = encoder.encode("Test234!");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return encoder.matches("Test234!", hash);
+    }
+}
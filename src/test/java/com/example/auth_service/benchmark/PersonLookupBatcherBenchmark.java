@@ -0,0 +1,97 @@
+package com.example.auth_service.benchmark;
+
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonCredentialsLookupView;
+import com.example.auth_service.repository.PersonCredentialsView;
+import com.example.auth_service.service.PersonLookupBatcher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * User lookups per second against a connection pool of {@code poolSize} connections, one query each at
+ * {@code dbRoundTripMicros} plus {@code perRowMicros} per username in it. {@code windowMicros=0} is one
+ * query per lookup, as before batching; the other values trace how throughput moves with the batch window
+ * (at 64 threads a short window already fills most of a batch). Sample the latency with {@code -bm sample}
+ * to see what the window adds per lookup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(64)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonLookupBatcherBenchmark {
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    @Param({"0", "100", "500", "1000", "2000", "5000"})
+    public long windowMicros;
+
+    @Param({"300"})
+    public long dbRoundTripMicros;
+
+    @Param({"5"})
+    public long perRowMicros;
+
+    @Param({"10"})
+    public int poolSize;
+
+    private ScheduledExecutorService scheduler;
+    private PersonLookupBatcher batcher;
+
+    @Setup
+    public void setUp() {
+        Semaphore connections = new Semaphore(poolSize);
+        PeopleRepository peopleRepository = mock(PeopleRepository.class);
+        when(peopleRepository.findCredentialsByUsername(anyString())).thenAnswer(invocation ->
+                query(connections, List.of(invocation.<String>getArgument(0))).stream().findFirst());
+        when(peopleRepository.findCredentialsByUsernameIn(any())).thenAnswer(invocation ->
+                query(connections, invocation.getArgument(0)));
+
+        scheduler = PersonLookupBatcher.newScheduler(4);
+        batcher = new PersonLookupBatcher(peopleRepository, Duration.of(windowMicros, ChronoUnit.MICROS), 64, scheduler);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public PersonCredentialsView lookup() {
+        return batcher.find("user" + ThreadLocalRandom.current().nextInt(10_000));
+    }
+
+    private List<PersonCredentialsLookupView> query(Semaphore connections, Collection<String> usernames) throws InterruptedException {
+        connections.acquire();
+        try {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbRoundTripMicros + perRowMicros * usernames.size()));
+            return usernames.stream().map(PersonLookupBatcherBenchmark::person).toList();
+        } finally {
+            connections.release();
+        }
+    }
+
+    private static PersonCredentialsLookupView person(String username) {
+        return PROJECTIONS.createProjection(PersonCredentialsLookupView.class, Map.of("usernameKey", username,
+                "id", (long) username.hashCode(), "username", username, "email", username + "@gmail.com",
+                "role", "ROLE_USER"));
+    }
+}
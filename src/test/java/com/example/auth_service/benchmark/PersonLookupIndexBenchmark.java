@@ -0,0 +1,129 @@
+package com.example.auth_service.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency by username and by email on a {@code person} table of {@code rows} users, in a real
+ * PostgreSQL given by {@code -Dbench.jdbc.url}, {@code -Dbench.jdbc.username} and
+ * {@code -Dbench.jdbc.password}. The table lives in its own {@code lookup_bench} schema and is filled once;
+ * later runs reuse it. {@code schema=before} is the table with only its primary key and the queries the
+ * repository used to run; {@code schema=after} adds the indexes of {@code V2__person_lookup_indexes.sql}
+ * and runs the current case-insensitive queries. The login query's plan is printed at setup and should read
+ * {@code Index Only Scan using person_username_lower_key}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonLookupIndexBenchmark {
+    private static final String BEFORE_LOGIN =
+            "SELECT id, username, password, email, role, last_login FROM person WHERE username = ?";
+    private static final String BEFORE_EMAIL =
+            "SELECT id, username, password, email, role, last_login FROM person WHERE email = ?";
+    private static final String AFTER_LOGIN =
+            "SELECT id, username, password, email, role FROM person WHERE lower(username) = lower(?)";
+    private static final String AFTER_EMAIL =
+            "SELECT id, username, password, email, role, last_login FROM person WHERE lower(email) = lower(?)";
+
+    @Param({"before", "after"})
+    public String schema;
+
+    @Param({"10000000"})
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement login;
+    private PreparedStatement email;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/postgres"),
+                System.getProperty("bench.jdbc.username", "postgres"),
+                System.getProperty("bench.jdbc.password", "postgres"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS lookup_bench");
+            statement.execute("SET search_path TO lookup_bench");
+            statement.execute("CREATE TABLE IF NOT EXISTS person (id bigserial PRIMARY KEY, " +
+                    "username varchar(100) NOT NULL, password varchar(255) NOT NULL, email varchar(50) NOT NULL, " +
+                    "role varchar(100) NOT NULL, last_login timestamp)");
+            if (count(statement) != rows) {
+                statement.execute("TRUNCATE person RESTART IDENTITY");
+                // bcrypt-sized hashes, so the covering index is as wide as in production
+                statement.execute("INSERT INTO person (username, password, email, role) " +
+                        "SELECT 'user' || g, '{bcrypt}$2a$10$' || rpad(md5(g::text), 53, 'x'), " +
+                        "'user' || g || '@gmail.com', 'ROLE_USER' FROM generate_series(1, " + rows + ") g");
+            }
+            if (schema.equals("after")) {
+                statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS person_username_lower_key " +
+                        "ON person (lower(username)) INCLUDE (id, username, password, email, role)");
+                statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS person_email_lower_key ON person (lower(email))");
+            } else {
+                statement.execute("DROP INDEX IF EXISTS person_username_lower_key");
+                statement.execute("DROP INDEX IF EXISTS person_email_lower_key");
+            }
+            // index-only scans need an up to date visibility map
+            statement.execute("VACUUM ANALYZE person");
+        }
+
+        login = connection.prepareStatement(schema.equals("after") ? AFTER_LOGIN : BEFORE_LOGIN);
+        email = connection.prepareStatement(schema.equals("after") ? AFTER_EMAIL : BEFORE_EMAIL);
+        printPlan(schema.equals("after") ? AFTER_LOGIN : BEFORE_LOGIN);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public String loginLookup() throws SQLException {
+        login.setString(1, "user" + randomId());
+        return first(login);
+    }
+
+    @Benchmark
+    public String emailLookup() throws SQLException {
+        email.setString(1, "user" + randomId() + "@gmail.com");
+        return first(email);
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(rows) + 1;
+    }
+
+    private int count(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM person")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void printPlan(String query) throws SQLException {
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + query)) {
+            explain.setString(1, "user" + randomId());
+            try (ResultSet plan = explain.executeQuery()) {
+                while (plan.next()) {
+                    System.out.println(plan.getString(1));
+                }
+            }
+        }
+    }
+
+    private static String first(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getString("username") : null;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.auth_service.benchmark;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.auth_service.entity.Person;
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonCredentialsView;
+import com.example.auth_service.security.JWTKeyRing;
+import com.example.auth_service.security.JWTUtil;
+import com.example.auth_service.security.PersonDetails;
+import com.example.auth_service.security.PersonDetailsCache;
+import com.example.auth_service.security.PersonDetailsService;
+import com.example.auth_service.security.RefreshRotation;
+import com.example.auth_service.security.RedisRefreshTokenStore;
+import com.example.auth_service.service.PersonLookupBatcher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.security.core.GrantedAuthority;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latency of the work behind {@code GET /refresh} against a local Redis. {@code refreshWithDatabase} is
+ * what the endpoint used to do: two user lookups (a stub that parks for {@code dbRoundTripMicros}) and a
+ * GET of the stored token. {@code rotateFromSession} is what it does now: sign a successor refresh token
+ * and swap it in with one script call that also returns id and role (each thread owns a session).
+ * Sample mode prints p50/p99/p99.9 per method.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RefreshBenchmark {
+    @Param({"300"})
+    public long dbRoundTripMicros;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisTemplate<String, String> redisTemplate;
+    private RedisRefreshTokenStore refreshTokenStore;
+    private PersonDetailsService personDetailsService;
+    private JWTUtil jwtUtil;
+    private String refreshToken;
+
+    @Setup
+    public void setUp() throws IOException {
+        redisServer = new RedisServer(6399);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6399));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashValueSerializer(new StringRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+
+        Person person = new Person();
+        person.setId(42L);
+        person.setUsername("john");
+        person.setPassword("hash");
+        person.setEmail("john@gmail.com");
+        person.setRole("ROLE_USER");
+        PeopleRepository peopleRepository = mock(PeopleRepository.class);
+        PersonCredentialsView credentials =
+                new SpelAwareProxyProjectionFactory().createProjection(PersonCredentialsView.class, person);
+        when(peopleRepository.findCredentialsByUsername("john")).thenAnswer(invocation -> {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbRoundTripMicros));
+            return Optional.of(credentials);
+        });
+        // the database path this benchmark compares against, so no batching and no user details cache
+        personDetailsService = new PersonDetailsService(new PersonLookupBatcher(peopleRepository, Duration.ZERO, 1, null),
+                new PersonDetailsCache(null, null, false, 1, Duration.ofMinutes(1), false, Clock.systemUTC()));
+
+        jwtUtil = new JWTUtil(new JWTKeyRing("k1", "benchmark-secret"));
+        refreshToken = jwtUtil.generateRefreshToken(42L, "john");
+        refreshTokenStore = new RedisRefreshTokenStore(redisTemplate);
+        // the layout the old code read: the raw token under the username
+        redisTemplate.opsForValue().set("legacy:john", refreshToken);
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Benchmark
+    public String refreshWithDatabase() {
+        String username = jwtUtil.validateRefreshToken(refreshToken).getClaim("username").asString();
+        Long id = ((PersonDetails) personDetailsService.loadUserByUsername(username)).getId();
+        String role = personDetailsService.loadUserByUsername(username).getAuthorities().stream()
+                .findFirst()
+                .map(GrantedAuthority::getAuthority)
+                .orElse("ROLE_USER");
+        if (!refreshToken.equals(redisTemplate.opsForValue().get("legacy:" + username))) {
+            throw new IllegalStateException("token mismatch");
+        }
+        return jwtUtil.generateAccessToken(id, username, role);
+    }
+
+    @Benchmark
+    public String rotateFromSession(ThreadSession session) {
+        DecodedJWT jwt = jwtUtil.validateRefreshToken(session.refreshToken);
+        Long id = jwt.getClaim("id").asLong();
+        String username = jwt.getClaim("username").asString();
+        String sessionId = jwt.getClaim("sid").asString();
+        String next = jwtUtil.generateRefreshToken(id, username, sessionId);
+        RefreshRotation rotation = refreshTokenStore.rotate(id, username, sessionId, session.refreshToken, next);
+        if (rotation.getOutcome() != RefreshRotation.Outcome.ROTATED) {
+            throw new IllegalStateException("rotation failed: " + rotation.getOutcome());
+        }
+        session.refreshToken = next;
+        return jwtUtil.generateAccessToken(rotation.getId(), username, rotation.getRole());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadSession {
+        private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+        String refreshToken;
+
+        @Setup
+        public void setUp(RefreshBenchmark benchmark) {
+            long id = THREAD_IDS.incrementAndGet();
+            String username = "user-" + id;
+            String sessionId = benchmark.jwtUtil.newSessionId();
+            refreshToken = benchmark.jwtUtil.generateRefreshToken(id, username, sessionId);
+            benchmark.refreshTokenStore.saveRefreshToken(id, username, "ROLE_USER", sessionId, refreshToken, null);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.auth_service.benchmark;
+
+import com.example.auth_service.security.JWTKeyRing;
+import com.example.auth_service.security.JWTUtil;
+import com.example.auth_service.security.RedisRefreshTokenStore;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.ValueEncoding;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Redis memory of refresh sessions: the layout before sessions (the raw refresh JWT under the username,
+ * one key per user) against the digest buckets of {@link RedisRefreshTokenStore}. Loads the given number of
+ * users (default 1,000,000) with one session each into an embedded Redis and prints the growth of
+ * {@code used_memory} and the encoding of a bucket. Not a JMH benchmark, run the class itself:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.auth_service.benchmark.RefreshSessionMemoryReport -Dexec.args="1000000"
+ * </pre>
+ */
+public class RefreshSessionMemoryReport {
+    private static final int PORT = 6398;
+    private static final String DEVICE = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+
+    public static void main(String[] args) throws IOException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        RedisServer redisServer = new RedisServer(PORT);
+        redisServer.start();
+        LettuceConnectionFactory connectionFactory =
+                new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", PORT));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try {
+            RedisTemplate<String, String> redisTemplate = new RedisTemplate<>();
+            redisTemplate.setConnectionFactory(connectionFactory);
+            redisTemplate.setKeySerializer(new StringRedisSerializer());
+            redisTemplate.setValueSerializer(new StringRedisSerializer());
+            redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+            redisTemplate.setHashValueSerializer(new StringRedisSerializer());
+            redisTemplate.afterPropertiesSet();
+            JWTUtil jwtUtil = new JWTUtil(new JWTKeyRing("k1", "memory-report-secret"));
+
+            long before = usedMemory(redisTemplate);
+            for (long id = 1; id <= users; id++) {
+                String username = "user-" + id;
+                redisTemplate.opsForValue().set(username, jwtUtil.generateRefreshToken(id, username),
+                        Duration.ofDays(7));
+            }
+            report("raw JWT per username", usedMemory(redisTemplate) - before, users,
+                    encoding(redisTemplate, "user-1"));
+            flush(redisTemplate);
+
+            RedisRefreshTokenStore refreshTokenStore = new RedisRefreshTokenStore(redisTemplate);
+            before = usedMemory(redisTemplate);
+            for (long id = 1; id <= users; id++) {
+                String username = "user-" + id;
+                String sessionId = jwtUtil.newSessionId();
+                refreshTokenStore.saveRefreshToken(id, username, "ROLE_USER", sessionId,
+                        jwtUtil.generateRefreshToken(id, username, sessionId), DEVICE);
+            }
+            report("digest buckets", usedMemory(redisTemplate) - before, users,
+                    encoding(redisTemplate, "auth:rt:1"));
+        } finally {
+            connectionFactory.destroy();
+            redisServer.stop();
+        }
+    }
+
+    private static void report(String layout, long bytes, int users, ValueEncoding encoding) {
+        System.out.printf("%-22s %,14d bytes  %6.1f MiB  %5d bytes/session  encoding=%s%n",
+                layout, bytes, bytes / 1024.0 / 1024.0, bytes / users, encoding.raw());
+    }
+
+    private static long usedMemory(RedisTemplate<String, String> redisTemplate) {
+        Properties info = redisTemplate.execute((RedisCallback<Properties>) connection ->
+                connection.serverCommands().info("memory"));
+        return Long.parseLong(info.getProperty("used_memory"));
+    }
+
+    private static ValueEncoding encoding(RedisTemplate<String, String> redisTemplate, String key) {
+        return redisTemplate.execute((RedisCallback<ValueEncoding>) connection ->
+                connection.keyCommands().encodingOf(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void flush(RedisTemplate<String, String> redisTemplate) {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+    }
+}
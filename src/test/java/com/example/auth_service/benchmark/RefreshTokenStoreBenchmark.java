@@ -0,0 +1,106 @@
+package com.example.auth_service.benchmark;
+
+import com.example.auth_service.security.InMemoryRefreshTokenStore;
+import com.example.auth_service.security.JdbcRefreshTokenStore;
+import com.example.auth_service.security.RedisRefreshTokenStore;
+import com.example.auth_service.security.RefreshRotation;
+import com.example.auth_service.security.RefreshTokenStore;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One session's life, login → refresh → logout, against each {@link RefreshTokenStore}: an embedded
+ * Redis on localhost, the in-process store, and the JDBC store on an in-memory H2 behind a Hikari pool.
+ * Tokens are plain strings, signing costs the same for every store. Sample mode prints p50/p99/p99.9
+ * per store.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RefreshTokenStoreBenchmark {
+    @Param({"redis", "memory", "jdbc"})
+    public String store;
+
+    private final AtomicLong users = new AtomicLong();
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private HikariDataSource dataSource;
+    private RefreshTokenStore refreshTokenStore;
+
+    @Setup
+    public void setUp() throws IOException {
+        Duration reuseGrace = Duration.ofSeconds(5);
+        switch (store) {
+            case "redis" -> {
+                redisServer = new RedisServer(6397);
+                redisServer.start();
+                connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6397));
+                connectionFactory.afterPropertiesSet();
+                connectionFactory.start();
+                RedisTemplate<String, String> redisTemplate = new RedisTemplate<>();
+                redisTemplate.setConnectionFactory(connectionFactory);
+                redisTemplate.setKeySerializer(new StringRedisSerializer());
+                redisTemplate.setValueSerializer(new StringRedisSerializer());
+                redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+                redisTemplate.setHashValueSerializer(new StringRedisSerializer());
+                redisTemplate.afterPropertiesSet();
+                refreshTokenStore = new RedisRefreshTokenStore(redisTemplate, reuseGrace, 10, 65536, Clock.systemUTC());
+            }
+            case "memory" -> refreshTokenStore = new InMemoryRefreshTokenStore(reuseGrace, 10, 1_000_000,
+                    Clock.systemUTC());
+            case "jdbc" -> {
+                dataSource = new HikariDataSource();
+                dataSource.setJdbcUrl("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+                dataSource.setUsername("sa");
+                new ResourceDatabasePopulator(new ClassPathResource("db/migration/V5__create_refresh_sessions.sql"))
+                        .execute(dataSource);
+                refreshTokenStore =
+                        new JdbcRefreshTokenStore(new JdbcTemplate(dataSource), reuseGrace, 10, Clock.systemUTC());
+            }
+            default -> throw new IllegalArgumentException("Unknown store " + store);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+            redisServer.stop();
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public RefreshRotation loginRefreshLogout() {
+        long id = users.incrementAndGet();
+        String username = "user-" + id;
+        refreshTokenStore.saveRefreshToken(id, username, "ROLE_USER", "s1", "login-" + id, "JMH");
+        RefreshRotation rotation = refreshTokenStore.rotate(id, username, "s1", "login-" + id, "refresh-" + id);
+        if (rotation.getOutcome() != RefreshRotation.Outcome.ROTATED) {
+            throw new IllegalStateException("rotation failed: " + rotation.getOutcome());
+        }
+        refreshTokenStore.revokeSession(id, "s1");
+        return rotation;
+    }
+}
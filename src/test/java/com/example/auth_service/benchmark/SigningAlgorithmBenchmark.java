@@ -0,0 +1,85 @@
+package com.example.auth_service.benchmark;
+
+import com.example.auth_service.security.JWTKeyRing;
+import com.example.auth_service.security.JWTUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify cost of an access token with the current claim set for HS256 and ES256 as issued by
+ * {@link JWTUtil}. java-jwt has no EdDSA support, so Ed25519 is measured with the JDK provider over the
+ * same signing input to show what switching libraries would buy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SigningAlgorithmBenchmark {
+    private JWTUtil hs256;
+    private JWTUtil es256;
+    private String hs256Token;
+    private String es256Token;
+
+    private KeyPair ed25519Keys;
+    private byte[] signingInput;
+    private byte[] ed25519Signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        hs256 = new JWTUtil(new JWTKeyRing("k1", "benchmark-secret"));
+        es256 = new JWTUtil(new JWTKeyRing("benchmark-secret", "k1", "", "ES256", "", ""));
+        hs256Token = hs256.generateAccessToken(42L, "john", "ROLE_USER");
+        es256Token = es256.generateAccessToken(42L, "john", "ROLE_USER");
+
+        ed25519Keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        String header = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"alg\":\"EdDSA\",\"typ\":\"JWT\",\"kid\":\"k1\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = hs256Token.substring(hs256Token.indexOf('.') + 1, hs256Token.lastIndexOf('.'));
+        signingInput = (header + "." + payload).getBytes(StandardCharsets.US_ASCII);
+        ed25519Signature = signEd25519();
+    }
+
+    @Benchmark
+    public String signHs256() {
+        return hs256.generateAccessToken(42L, "john", "ROLE_USER");
+    }
+
+    @Benchmark
+    public Object verifyHs256() {
+        return hs256.validateAccessToken(hs256Token);
+    }
+
+    @Benchmark
+    public String signEs256() {
+        return es256.generateAccessToken(42L, "john", "ROLE_USER");
+    }
+
+    @Benchmark
+    public Object verifyEs256() {
+        return es256.validateAccessToken(es256Token);
+    }
+
+    @Benchmark
+    public byte[] signEd25519() throws Exception {
+        Signature signature = Signature.getInstance("Ed25519");
+        signature.initSign(ed25519Keys.getPrivate());
+        signature.update(signingInput);
+        return signature.sign();
+    }
+
+    @Benchmark
+    public boolean verifyEd25519() throws Exception {
+        Signature signature = Signature.getInstance("Ed25519");
+        signature.initVerify(ed25519Keys.getPublic());
+        signature.update(signingInput);
+        return signature.verify(ed25519Signature);
+    }
+}
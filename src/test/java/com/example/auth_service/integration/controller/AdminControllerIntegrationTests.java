@@ -10,7 +10,6 @@ import com.example.auth_service.service.LogoutService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
-import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,6 +21,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -30,6 +30,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import java.util.Map;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -39,12 +40,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
-@Import(TestLogoutConfig.class)
 public class AdminControllerIntegrationTests {
 
     @Autowired private MockMvc mockMvc;
     @Autowired private JWTUtil jwtUtil;
     @Autowired private PeopleRepository peopleRepository;
+    @Autowired private PasswordEncoder passwordEncoder;
 
     private static final Long PERSON_ID = 1L;
     private static final String USERNAME = "john";
@@ -328,6 +329,62 @@ public class AdminControllerIntegrationTests {
         }
     }
 
+    @Nested
+    class methodImportUsersTests {
+        @Test
+        void importUsers_shouldCreateUsersAndStreamOneResultPerRow() throws Exception {
+            Person admin = createSamplePerson("ROLE_ADMIN");
+            String token = jwtUtil.generateAccessToken(admin.getId(), admin.getUsername(), "ROLE_ADMIN");
+            String body = "{\"username\": \"alice\", \"email\": \"alice@gmail.com\", \"password\": \"Password1!\"}\n" +
+                    "{\"username\": \"USER\", \"email\": \"other@gmail.com\", \"password\": \"Password1!\"}\n";
+
+            String response = mockMvc.perform(post("/admin/import")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .content(body))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                    .andReturn().getResponse().getContentAsString();
+
+            String[] lines = response.split("\n");
+            assertEquals(3, lines.length);
+            assertTrue(lines[0].contains("\"status\":\"created\""));
+            assertTrue(lines[1].contains("username: This username is already taken!"));
+            assertTrue(lines[2].contains("\"created\":1"));
+            Person alice = peopleRepository.findByUsername("alice").orElseThrow();
+            assertEquals("ROLE_USER", alice.getRole());
+            assertTrue(passwordEncoder.matches("Password1!", alice.getPassword()));
+        }
+
+        @Test
+        void importUsers_shouldReadCsv() throws Exception {
+            Person admin = createSamplePerson("ROLE_ADMIN");
+            String token = jwtUtil.generateAccessToken(admin.getId(), admin.getUsername(), "ROLE_ADMIN");
+
+            mockMvc.perform(post("/admin/import")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .contentType("text/csv")
+                            .content("username,email,password\nbob,bob@gmail.com,Password1!\n"))
+                    .andExpect(status().isOk());
+
+            assertTrue(peopleRepository.findByEmail("bob@gmail.com").isPresent());
+        }
+
+        @Test
+        void importUsers_shouldBeForbidden_forUsers() throws Exception {
+            Person user = createSamplePerson("ROLE_USER");
+            String token = jwtUtil.generateAccessToken(user.getId(), user.getUsername(), "ROLE_USER");
+
+            mockMvc.perform(post("/admin/import")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .content("{\"username\": \"alice\", \"email\": \"alice@gmail.com\", \"password\": \"Password1!\"}"))
+                    .andExpect(status().isForbidden());
+
+            assertTrue(peopleRepository.findByUsername("alice").isEmpty());
+        }
+    }
+
     private static PersonResponseDTO createSampleResponseDTO() {
         PersonResponseDTO response = new PersonResponseDTO();
         response.setId(PERSON_ID);
@@ -4,19 +4,24 @@ import com.example.auth_service.dto.PersonResponseDTO;
 import com.example.auth_service.dto.UserDeletedEvent;
 import com.example.auth_service.entity.Person;
 import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.exception.ServiceOverloadedException;
+import com.example.auth_service.exception.TooManyLoginAttemptsException;
 import com.example.auth_service.security.JWTUtil;
+import com.example.auth_service.security.LoginThrottle;
+import com.example.auth_service.security.PasswordHashingExecutor;
 import com.example.auth_service.security.PersonDetails;
 import com.example.auth_service.security.PersonDetailsService;
-import com.example.auth_service.security.RefreshTokenService;
+import com.example.auth_service.security.RefreshSessionInfo;
+import com.example.auth_service.security.RefreshTokenStore;
+import com.example.auth_service.service.LastLoginBuffer;
 import com.example.auth_service.service.PeopleService;
-import com.example.auth_service.validation.validator.PersonValidator;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.context.annotation.Import;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -27,12 +32,18 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.containsString;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -40,25 +51,34 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SpringBootTest
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
-@Import(TestAuthConfig.class)
 public class AuthControllerTest {
 
     @Autowired private MockMvc mockMvc;
     @Autowired private PeopleRepository peopleRepository;
     @Autowired private PeopleService peopleService;
-    @Autowired private PersonValidator personValidator;
     @Autowired private JWTUtil jwtUtil;
+    @Autowired private LastLoginBuffer lastLoginBuffer;
 
     @MockBean private KafkaTemplate<String, UserDeletedEvent> kafkaTemplate;
-    @Autowired private RefreshTokenService refreshTokenService;
+    @SpyBean private RefreshTokenStore refreshTokenStore;
     @MockBean private AuthenticationManager authenticationManager;
     @MockBean private PersonDetailsService personDetailsService;
+    @SpyBean private PasswordHashingExecutor passwordHashingExecutor;
+    @SpyBean private LoginThrottle loginThrottle;
 
     @AfterEach
     void clearDatabase() {
         peopleRepository.deleteAll();
     }
 
+    // /login and /registration answer from the password hashing pool
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
     @Nested
     class performAuthenticationTests {
 
@@ -75,7 +95,7 @@ public class AuthControllerTest {
 
         @Test
         void performAuthentication_success() throws Exception {
-            mockMvc.perform(post("/login")
+            performAsync(post("/login")
                             .contentType(MediaType.APPLICATION_JSON)
                             .content("""
                                     {
@@ -93,7 +113,7 @@ public class AuthControllerTest {
             when(authenticationManager.authenticate(any(Authentication.class)))
                     .thenThrow(new BadCredentialsException("Invalid credentials"));
 
-            mockMvc.perform(post("/login")
+            performAsync(post("/login")
                             .contentType(MediaType.APPLICATION_JSON)
                             .content("""
                         {
@@ -109,9 +129,10 @@ public class AuthControllerTest {
 
         @Test
         void performAuthentication_shouldReturn500_whenSaveRefreshTokenFails() throws Exception {
-            ((FakeRefreshTokenService) refreshTokenService).setShouldThrow(true);
+            doThrow(new RuntimeException("Simulated failure")).when(refreshTokenStore)
+                    .saveRefreshToken(any(), any(), any(), any(), any(), any());
 
-            mockMvc.perform(post("/login")
+            performAsync(post("/login")
                             .contentType(MediaType.APPLICATION_JSON)
                             .content("""
                                     {
@@ -125,10 +146,48 @@ public class AuthControllerTest {
         }
 
         @Test
-        void performAuthentication_shouldReturn404_whenSetLastLoginFails() throws Exception {
-            peopleRepository.deleteAll(); // maria123 исчезает
+        void performAuthentication_shouldReturn503_whenPasswordHashingQueueIsFull() throws Exception {
+            doThrow(new ServiceOverloadedException("Password hashing queue is full", Duration.ofSeconds(2)))
+                    .when(passwordHashingExecutor).submit(any());
+
+            mockMvc.perform(post("/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    {
+                                        "username": "maria123",
+                                        "password": "password"
+                                    }
+                                    """))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                    .andExpect(jsonPath("$.path").value("/login"));
+            verify(authenticationManager, never()).authenticate(any());
+        }
+
+        @Test
+        void performAuthentication_shouldReturn429BeforeHashing_whenThrottled() throws Exception {
+            doThrow(new TooManyLoginAttemptsException(Duration.ofSeconds(12)))
+                    .when(loginThrottle).check(any(), eq("maria123"));
 
             mockMvc.perform(post("/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    {
+                                        "username": "maria123",
+                                        "password": "password"
+                                    }
+                                    """))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "12"))
+                    .andExpect(jsonPath("$.path").value("/login"));
+            verify(passwordHashingExecutor, never()).submit(any());
+        }
+
+        @Test
+        void performAuthentication_shouldWriteLastLoginBehind() throws Exception {
+            Long id = peopleRepository.findByUsername("maria123").orElseThrow().getId();
+
+            performAsync(post("/login")
                             .contentType(MediaType.APPLICATION_JSON)
                             .content("""
                             {
@@ -136,8 +195,28 @@ public class AuthControllerTest {
                                 "password": "password"
                             }
                             """))
-                    .andExpect(status().isNotFound())
-                    .andExpect(jsonPath("$.message").value(containsString("error: User with ID")));
+                    .andExpect(status().isOk());
+
+            assertNull(peopleRepository.findById(id).orElseThrow().getLastLogin());
+            lastLoginBuffer.flush();
+            assertNotNull(peopleRepository.findById(id).orElseThrow().getLastLogin());
+        }
+
+        @Test
+        void performAuthentication_shouldSucceed_whenUserIsDeletedBeforeLastLoginIsWritten() throws Exception {
+            performAsync(post("/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                            {
+                                "username": "maria123",
+                                "password": "password"
+                            }
+                            """))
+                    .andExpect(status().isOk());
+            peopleRepository.deleteAll(); // maria123 исчезает
+
+            lastLoginBuffer.flush();
+            assertEquals(0, lastLoginBuffer.pendingCount());
         }
     }
 
@@ -145,7 +224,7 @@ public class AuthControllerTest {
     class registrationTests {
         @Test
         void register_success() throws Exception {
-            mockMvc.perform(post("/registration")
+            performAsync(post("/registration")
                             .contentType(MediaType.APPLICATION_JSON)
                             .content("""
                                     {
@@ -179,22 +258,40 @@ public class AuthControllerTest {
         }
 
         @Test
-        void register_shouldThrowsException_whenUserWithSuchDataIsAlreadyRegistered() throws Exception {
+        void register_shouldReturnFieldError_whenUsernameIsTaken() throws Exception {
             peopleRepository.save(createSamplePerson("maria12", "ROLE_USER"));
 
-            mockMvc.perform(post("/registration")
+            performAsync(post("/registration")
                             .contentType(MediaType.APPLICATION_JSON)
                             .content("""
                                     {
                                        "username": "maria12",
                                        "password": "Test234!",
+                                       "email": "maria.new@gmail.com"
+                                     }
+                                    """))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value("username: This username is already taken!"))
+                    .andExpect(jsonPath("$.path").value("/registration"));
+            assertEquals(1, peopleRepository.count());
+        }
+
+        @Test
+        void register_shouldReturnFieldError_whenEmailIsTaken() throws Exception {
+            peopleRepository.save(createSamplePerson("maria12", "ROLE_USER"));
+
+            performAsync(post("/registration")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    {
+                                       "username": "maria13",
+                                       "password": "Test234!",
                                        "email": "maria12@gmail.com"
                                      }
                                     """))
                     .andExpect(status().isBadRequest())
-                    .andExpect(jsonPath("$.message", Matchers.allOf(
-                            containsString("This username is already taken!"),
-                            containsString("This email is already taken!"))));
+                    .andExpect(jsonPath("$.message").value("email: This email is already taken!"));
+            assertEquals(1, peopleRepository.count());
         }
     }
 
@@ -313,6 +410,27 @@ public class AuthControllerTest {
                     .andExpect(jsonPath("$.email").value("mari25@gmail.com"));
         }
 
+        @Test
+        void updateUserInfo_shouldReturnFieldError_whenUsernameIsTaken() throws Exception {
+            peopleRepository.save(createSamplePerson("anna12", "ROLE_USER"));
+            UsernamePasswordAuthenticationToken auth =
+                    new UsernamePasswordAuthenticationToken(personDetails, null, personDetails.getAuthorities());
+            SecurityContextHolder.getContext().setAuthentication(auth);
+
+            mockMvc.perform(patch("/update")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    {
+                                        "username": "anna12"
+                                    }
+                                    """))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value("username: This username is already taken!"))
+                    .andExpect(jsonPath("$.path").value("/update"));
+            assertEquals("maria12", peopleRepository.findById(personDetails.getId()).orElseThrow().getUsername());
+        }
+
         @Test
         void updateUserInfo_shouldThrowsValidationException_whenDataIsNotCorrect() throws Exception {
             UsernamePasswordAuthenticationToken auth =
@@ -355,6 +473,67 @@ public class AuthControllerTest {
         }
     }
 
+    @Nested
+    class sessionsTests {
+        private Person saved;
+        private String token;
+
+        @BeforeEach
+        void setUp() {
+            saved = peopleRepository.save(createSamplePerson("maria12", "ROLE_USER"));
+            token = jwtUtil.generateAccessToken(saved.getId(), saved.getUsername(), "ROLE_USER");
+            when(personDetailsService.loadUserByUsername("maria12")).thenReturn(new PersonDetails(saved));
+            refreshTokenStore.saveRefreshToken(saved.getId(), "maria12", "ROLE_USER", "sid-1", "refresh-1", "Firefox");
+            refreshTokenStore.saveRefreshToken(saved.getId(), "maria12", "ROLE_USER", "sid-2", "refresh-2", "Chrome");
+        }
+
+        @Test
+        void getSessions_shouldListTheUsersSessions() throws Exception {
+            mockMvc.perform(get("/sessions")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[*].sessionId", Matchers.containsInAnyOrder("sid-1", "sid-2")));
+        }
+
+        @Test
+        void getSessions_shouldReturn401_whenTokenIsMissing() throws Exception {
+            mockMvc.perform(get("/sessions"))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(jsonPath("$.path").value("/sessions"));
+        }
+
+        @Test
+        void revokeSession_shouldRevokeOnlyThatSession() throws Exception {
+            mockMvc.perform(delete("/sessions/sid-1")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andExpect(status().isNoContent());
+
+            assertEquals(List.of("sid-2"), refreshTokenStore.listSessions(saved.getId()).stream()
+                    .map(RefreshSessionInfo::getSessionId).toList());
+        }
+
+        @Test
+        void revokeSession_shouldReturn404_whenSessionIsUnknown() throws Exception {
+            mockMvc.perform(delete("/sessions/unknown")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.error").value("Session not found"));
+
+            assertEquals(2, refreshTokenStore.listSessions(saved.getId()).size());
+        }
+
+        @Test
+        void revokeAllSessions_shouldRevokeEverySessionAndDropTheCookie() throws Exception {
+            mockMvc.perform(delete("/sessions")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.SET_COOKIE, containsString("refreshToken=")));
+
+            assertTrue(refreshTokenStore.listSessions(saved.getId()).isEmpty());
+        }
+    }
+
     private Person createSamplePerson(String username, String role) {
         Person person = new Person();
         person.setUsername(username);
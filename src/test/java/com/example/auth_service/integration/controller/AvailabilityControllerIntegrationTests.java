@@ -0,0 +1,72 @@
+package com.example.auth_service.integration.controller;
+
+import com.example.auth_service.dto.UserDeletedEvent;
+import com.example.auth_service.entity.Person;
+import com.example.auth_service.repository.PeopleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AvailabilityControllerIntegrationTests {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private PeopleRepository peopleRepository;
+
+    @MockBean
+    private KafkaTemplate<String, UserDeletedEvent> kafkaTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Person person = new Person();
+        person.setUsername("maria12");
+        person.setPassword("encodedPassword");
+        person.setEmail("maria12@gmail.com");
+        person.setRole("ROLE_USER");
+        peopleRepository.save(person);
+    }
+
+    @AfterEach
+    void clearDatabase() {
+        peopleRepository.deleteAll();
+    }
+
+    @Test
+    void checkAvailability_shouldReportTakenUsernameIgnoringCase_andFreeEmail() throws Exception {
+        mockMvc.perform(get("/availability")
+                        .param("username", "Maria12")
+                        .param("email", "anna@gmail.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(false))
+                .andExpect(jsonPath("$.email").value(true));
+    }
+
+    @Test
+    void checkAvailability_shouldAnswerOnlyWhatWasAsked() throws Exception {
+        mockMvc.perform(get("/availability").param("email", "maria12@gmail.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(false))
+                .andExpect(jsonPath("$.username").doesNotExist());
+    }
+
+    @Test
+    void checkAvailability_shouldReturn400_whenNothingIsAsked() throws Exception {
+        mockMvc.perform(get("/availability"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.message").value("username or email is required"))
+                .andExpect(jsonPath("$.path").value("/availability"));
+    }
+}
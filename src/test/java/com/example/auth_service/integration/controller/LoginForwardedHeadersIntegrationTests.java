@@ -0,0 +1,58 @@
+package com.example.auth_service.integration.controller;
+
+import com.example.auth_service.dto.UserDeletedEvent;
+import com.example.auth_service.security.LoginThrottle;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.Mockito.verify;
+
+// a real Tomcat: the forwarded headers are resolved by its RemoteIpValve, which MockMvc doesn't run
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "server.forward-headers-strategy=native")
+@ActiveProfiles("test")
+public class LoginForwardedHeadersIntegrationTests {
+
+    @Autowired private TestRestTemplate restTemplate;
+
+    @MockBean private KafkaTemplate<String, UserDeletedEvent> kafkaTemplate;
+    @SpyBean private LoginThrottle loginThrottle;
+
+    private void login(HttpHeaders headers) {
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.postForEntity("/login", new HttpEntity<>("""
+                {
+                    "username": "maria123",
+                    "password": "wrong"
+                }
+                """, headers), String.class);
+    }
+
+    @Test
+    void login_shouldThrottleClientAddress_forwardedByTrustedProxy() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Forwarded-For", "203.0.113.7");
+
+        login(headers);
+
+        verify(loginThrottle).check("203.0.113.7", "maria123");
+    }
+
+    @Test
+    void login_shouldThrottleConnectionAddress_whenNothingIsForwarded() {
+        login(new HttpHeaders());
+
+        verify(loginThrottle).check(matches("127\\.0\\.0\\.1|0:0:0:0:0:0:0:1"), eq("maria123"));
+    }
+}
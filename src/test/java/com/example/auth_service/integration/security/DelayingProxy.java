@@ -0,0 +1,113 @@
+package com.example.auth_service.integration.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// TCP proxy in front of a local server that holds every request chunk for the current delay: a Redis brownout
+final class DelayingProxy implements AutoCloseable {
+    private static final Chunk END = new Chunk(null, 0);
+
+    private final ServerSocket serverSocket;
+    private final int targetPort;
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+    private volatile long delayNanos;
+
+    DelayingProxy(int targetPort) throws IOException {
+        this.targetPort = targetPort;
+        this.serverSocket = new ServerSocket(0);
+        start("delaying-proxy-accept", this::accept);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // applies to chunks arriving from now on; chunks already held keep their delay
+    void setDelay(Duration delay) {
+        delayNanos = delay.toNanos();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                Socket server = new Socket("localhost", targetPort);
+                sockets.add(client);
+                sockets.add(server);
+                pipe(client, server, true);
+                pipe(server, client, false);
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    // replies pass straight through, requests wait; order is kept either way
+    private void pipe(Socket from, Socket to, boolean delayed) {
+        BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+        start("delaying-proxy-read", () -> {
+            byte[] buffer = new byte[8192];
+            try {
+                InputStream in = from.getInputStream();
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    long due = System.nanoTime() + (delayed ? delayNanos : 0);
+                    chunks.add(new Chunk(Arrays.copyOf(buffer, read), due));
+                }
+            } catch (IOException ignored) {
+                // connection closed
+            }
+            chunks.add(END);
+        });
+        start("delaying-proxy-write", () -> {
+            try {
+                OutputStream out = to.getOutputStream();
+                for (Chunk chunk = chunks.take(); chunk != END; chunk = chunks.take()) {
+                    long wait = chunk.due - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    out.write(chunk.data);
+                    out.flush();
+                }
+                to.shutdownOutput();
+            } catch (IOException | InterruptedException ignored) {
+                // connection closed
+            }
+        });
+    }
+
+    private static void start(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static final class Chunk {
+        private final byte[] data;
+        private final long due;
+
+        private Chunk(byte[] data, long due) {
+            this.data = data;
+            this.due = due;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.auth_service.integration.security;
+
+import com.example.auth_service.security.InMemoryRefreshTokenStore;
+import com.example.auth_service.security.RefreshTokenStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRefreshTokenStoreTests extends RefreshTokenStoreContractTests {
+
+    @Override
+    protected RefreshTokenStore createStore(Duration reuseGrace, int maxSessions, Clock clock) {
+        return new InMemoryRefreshTokenStore(reuseGrace, maxSessions, 1000, clock);
+    }
+
+    @Test
+    void save_shouldDropUsers_whenFull() {
+        RefreshTokenStore store = new InMemoryRefreshTokenStore(Duration.ofSeconds(5), 10, 2, Clock.systemUTC());
+        for (long id = 1; id <= 3; id++) {
+            store.saveRefreshToken(id, "user-" + id, "ROLE_USER", "s1", "t" + id, null);
+        }
+
+        long users = LongStream.rangeClosed(1, 3).filter(id -> !store.listSessions(id).isEmpty()).count();
+        assertEquals(2, users);
+        assertEquals(1, store.listSessions(3L).size());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.auth_service.integration.security;
+
+import com.example.auth_service.security.JdbcRefreshTokenStore;
+import com.example.auth_service.security.RefreshTokenStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+import java.time.Clock;
+import java.time.Duration;
+
+class JdbcRefreshTokenStoreTests extends RefreshTokenStoreContractTests {
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void createDatabase() {
+        DataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:refresh-sessions;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V5__create_refresh_sessions.sql"))
+                .execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM refresh_sessions");
+    }
+
+    @Override
+    protected RefreshTokenStore createStore(Duration reuseGrace, int maxSessions, Clock clock) {
+        return new JdbcRefreshTokenStore(jdbcTemplate, reuseGrace, maxSessions, clock);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.auth_service.integration.security;
+
+import com.example.auth_service.security.RedisRefreshTokenStore;
+import com.example.auth_service.security.RefreshRotation;
+import com.example.auth_service.security.RefreshTokenStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.ValueEncoding;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// runs the session scripts against a real (embedded) Redis
+class RedisRefreshTokenStoreIntegrationTests extends RefreshTokenStoreContractTests {
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashValueSerializer(new StringRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void clean() {
+        redisTemplate.delete(List.of("auth:rt:1", "auth:rt:2", "john", "auth:rt-sweep:lease", "auth:rt-sweep:cursor"));
+    }
+
+    @Override
+    protected RefreshTokenStore createStore(Duration reuseGrace, int maxSessions, Clock clock) {
+        return new RedisRefreshTokenStore(redisTemplate, reuseGrace, maxSessions, 65536, clock);
+    }
+
+    @Test
+    void rotate_shouldReportTokenStoredBeforeSessions() {
+        RefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate);
+        redisTemplate.opsForValue().set("john", "raw-token");
+
+        assertEquals(RefreshRotation.Outcome.LEGACY, store.rotate(null, "john", null, "raw-token", null).getOutcome());
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(null, "john", null, "other", null).getOutcome());
+
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t1", null);
+        assertFalse(redisTemplate.hasKey("john"));
+    }
+
+    @Test
+    void revokeAll_shouldDeleteEmptyBucket() {
+        RefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate);
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "phone", "p0", null);
+
+        store.revokeAllSessions(1L, "john");
+
+        assertFalse(redisTemplate.hasKey("auth:rt:1"));
+    }
+
+    @Test
+    void save_shouldKeepBucketInCompactEncoding() {
+        RefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate);
+        for (int i = 0; i < 10; i++) {
+            store.saveRefreshToken(1L, "john", "ROLE_ADMIN", "session-" + i, "token-" + i,
+                    "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
+        }
+
+        ValueEncoding encoding = redisTemplate.execute((RedisCallback<ValueEncoding>) connection ->
+                connection.keyCommands().encodingOf("auth:rt:1".getBytes(StandardCharsets.UTF_8)));
+        assertNotEquals(ValueEncoding.RedisValueEncoding.HASHTABLE, encoding);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.auth_service.integration.security;
+
+import com.example.auth_service.security.RefreshRotation;
+import com.example.auth_service.security.RefreshSessionInfo;
+import com.example.auth_service.security.RefreshTokenStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// what every RefreshTokenStore has to do; one subclass per backend, several callers racing on the same token
+abstract class RefreshTokenStoreContractTests {
+    private static final int THREADS = 16;
+
+    protected abstract RefreshTokenStore createStore(Duration reuseGrace, int maxSessions, Clock clock);
+
+    private RefreshTokenStore store() {
+        return createStore(Duration.ofSeconds(5), 10, Clock.systemUTC());
+    }
+
+    @Test
+    void rotate_shouldReplaceTokenAndRejectUnknownOnes() {
+        RefreshTokenStore store = store();
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t0", null);
+
+        RefreshRotation rotation = store.rotate(1L, "john", "s1", "t0", "t1");
+
+        assertEquals(RefreshRotation.Outcome.ROTATED, rotation.getOutcome());
+        assertEquals(1L, rotation.getId());
+        assertEquals("ROLE_USER", rotation.getRole());
+        assertEquals(RefreshRotation.Outcome.ROTATED, store.rotate(1L, "john", "s1", "t1", "t2").getOutcome());
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(1L, "john", "other", "t2", "t3").getOutcome());
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(2L, "nobody", "s1", "t2", "t3").getOutcome());
+    }
+
+    @Test
+    void rotate_shouldRevokeSession_whenRotatedTokenIsReused() {
+        RefreshTokenStore store = createStore(Duration.ZERO, 10, Clock.systemUTC());
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t0", null);
+        store.rotate(1L, "john", "s1", "t0", "t1");
+
+        RefreshRotation reuse = store.rotate(1L, "john", "s1", "t0", "stolen");
+
+        assertEquals(RefreshRotation.Outcome.REUSED, reuse.getOutcome());
+        assertEquals(1L, reuse.getId());
+        // the legitimate holder of t1 is logged out together with the thief
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(1L, "john", "s1", "t1", "t2").getOutcome());
+        assertTrue(store.listSessions(1L).isEmpty());
+    }
+
+    @Test
+    void rotate_shouldLetExactlyOneConcurrentRefreshWin_andTolerateTheOthersWithinGrace() throws Exception {
+        RefreshTokenStore store = createStore(Duration.ofMinutes(1), 10, Clock.systemUTC());
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t0", null);
+
+        List<RefreshRotation> results = race(i -> store.rotate(1L, "john", "s1", "t0", "next-" + i));
+
+        List<Integer> winners = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            RefreshRotation.Outcome outcome = results.get(i).getOutcome();
+            if (outcome == RefreshRotation.Outcome.ROTATED) {
+                winners.add(i);
+            } else {
+                assertEquals(RefreshRotation.Outcome.RACED, outcome);
+            }
+        }
+        assertEquals(1, winners.size());
+        String winningToken = "next-" + winners.get(0);
+        assertEquals(RefreshRotation.Outcome.ROTATED,
+                store.rotate(1L, "john", "s1", winningToken, "after").getOutcome());
+    }
+
+    @Test
+    void rotate_shouldRevokeSession_whenStolenTokenRacesTheOwner_withoutGrace() throws Exception {
+        RefreshTokenStore store = createStore(Duration.ZERO, 10, Clock.systemUTC());
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t0", null);
+
+        List<RefreshRotation> results = race(i -> store.rotate(1L, "john", "s1", "t0", "next-" + i));
+
+        long rotated = results.stream().filter(r -> r.getOutcome() == RefreshRotation.Outcome.ROTATED).count();
+        long reused = results.stream().filter(r -> r.getOutcome() == RefreshRotation.Outcome.REUSED).count();
+        assertEquals(1, rotated);
+        // the first replay deletes the session; later ones find nothing
+        assertEquals(1, reused);
+        assertTrue(store.listSessions(1L).isEmpty());
+    }
+
+    @Test
+    void save_shouldKeepSessionsOfOtherDevices() {
+        MutableClock clock = new MutableClock();
+        RefreshTokenStore store = createStore(Duration.ofSeconds(5), 10, clock);
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "phone", "p0", "Android");
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "laptop", "l0", "Firefox");
+
+        assertEquals(RefreshRotation.Outcome.ROTATED, store.rotate(1L, "john", "phone", "p0", "p1").getOutcome());
+        clock.advance(1000);
+        assertEquals(RefreshRotation.Outcome.ROTATED, store.rotate(1L, "john", "laptop", "l0", "l1").getOutcome());
+
+        List<RefreshSessionInfo> sessions = store.listSessions(1L);
+        assertEquals(List.of("laptop", "phone"), sessions.stream().map(RefreshSessionInfo::getSessionId).toList());
+        assertEquals("Firefox", sessions.get(0).getDevice());
+        assertEquals(sessions.get(0).getLastUsedAt().plus(RefreshTokenStore.REFRESH_TOKEN_TTL),
+                sessions.get(0).getExpiresAt());
+    }
+
+    @Test
+    void save_shouldEvictLeastRecentlyUsedSession_whenLimitIsReached() {
+        MutableClock clock = new MutableClock();
+        RefreshTokenStore store = createStore(Duration.ofSeconds(5), 2, clock);
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "a", "a0", null);
+        clock.advance(1000);
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "b", "b0", null);
+        clock.advance(1000);
+        store.rotate(1L, "john", "a", "a0", "a1");
+        clock.advance(1000);
+
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "c", "c0", null);
+
+        assertEquals(List.of("c", "a"), store.listSessions(1L).stream()
+                .map(RefreshSessionInfo::getSessionId).toList());
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(1L, "john", "b", "b0", "b1").getOutcome());
+    }
+
+    @Test
+    void save_shouldDropExpiredSessions() {
+        MutableClock clock = new MutableClock();
+        RefreshTokenStore store = createStore(Duration.ofSeconds(5), 10, clock);
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "old", "o0", null);
+        clock.advance(TimeUnit.DAYS.toMillis(8));
+
+        assertTrue(store.listSessions(1L).isEmpty());
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(1L, "john", "old", "o0", "o1").getOutcome());
+
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "new", "n0", null);
+        assertEquals(List.of("new"), store.listSessions(1L).stream().map(RefreshSessionInfo::getSessionId).toList());
+    }
+
+    @Test
+    void sweep_shouldRemoveExpiredSessionsOfIdleUsers() {
+        MutableClock clock = new MutableClock();
+        RefreshTokenStore store = createStore(Duration.ofSeconds(5), 10, clock);
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "old", "o0", null);
+        clock.advance(TimeUnit.DAYS.toMillis(8));
+
+        store.sweepExpiredSessions();
+
+        assertFalse(store.revokeSession(1L, "old"));
+    }
+
+    @Test
+    void revoke_shouldEndOneOrAllSessions() {
+        RefreshTokenStore store = store();
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "phone", "p0", null);
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "laptop", "l0", null);
+        store.saveRefreshToken(2L, "maria", "ROLE_USER", "phone", "m0", null);
+
+        assertTrue(store.revokeSession(1L, "phone"));
+        assertFalse(store.revokeSession(1L, "phone"));
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(1L, "john", "phone", "p0", "p1").getOutcome());
+        assertEquals(1, store.listSessions(1L).size());
+
+        store.revokeAllSessions(1L, "john");
+        assertTrue(store.listSessions(1L).isEmpty());
+        assertEquals(1, store.listSessions(2L).size());
+    }
+
+    protected static final class MutableClock extends Clock {
+        private long millis = System.currentTimeMillis();
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    private interface Attempt {
+        RefreshRotation run(int index);
+    }
+
+    private static List<RefreshRotation> race(Attempt attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<RefreshRotation>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int index = i;
+                Callable<RefreshRotation> task = () -> {
+                    start.await();
+                    return attempt.run(index);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            List<RefreshRotation> results = new ArrayList<>();
+            for (Future<RefreshRotation> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
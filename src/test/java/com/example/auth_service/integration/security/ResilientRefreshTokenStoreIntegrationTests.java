@@ -0,0 +1,136 @@
+package com.example.auth_service.integration.security;
+
+import com.example.auth_service.exception.RefreshStoreUnavailableException;
+import com.example.auth_service.security.RedisRefreshTokenStore;
+import com.example.auth_service.security.RefreshRotation;
+import com.example.auth_service.security.RefreshSessionInfo;
+import com.example.auth_service.security.ResilientRefreshTokenStore;
+import com.example.auth_service.util.CircuitBreaker;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Lettuce talks to the embedded Redis through a proxy that can hold requests back, like a Redis in a brownout
+class ResilientRefreshTokenStoreIntegrationTests {
+    private static final Duration BUDGET = Duration.ofMillis(100);
+    private static final Duration SLOW = Duration.ofSeconds(1);
+
+    private static RedisServer redisServer;
+    private static DelayingProxy proxy;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private ResilientRefreshTokenStore store;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        proxy = new DelayingProxy(port);
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("localhost", proxy.getPort()),
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(2)).build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashValueSerializer(new StringRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        proxy.close();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.delete("auth:rt:1");
+        store = new ResilientRefreshTokenStore(
+                new RedisRefreshTokenStore(redisTemplate, Duration.ofSeconds(5), 10, 65536, Clock.systemUTC()),
+                BUDGET, BUDGET, BUDGET, new CircuitBreaker(3, Duration.ofSeconds(1), Clock.systemUTC()),
+                ResilientRefreshTokenStore.DegradedMode.ACCEPT, Duration.ofMinutes(1), 100,
+                ResilientRefreshTokenStore.newExecutor(4, 4), Clock.systemUTC());
+    }
+
+    @AfterEach
+    void tearDown() {
+        proxy.setDelay(Duration.ZERO);
+        store.stop();
+    }
+
+    @Test
+    void shouldKeepLatencyBoundedWhileRedisIsSlow() {
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t0", null);
+        proxy.setDelay(SLOW);
+
+        long worst = 0;
+        int unverified = 0;
+        for (int i = 0; i < 50; i++) {
+            long started = System.nanoTime();
+            try {
+                if (store.rotate(1L, "john", "s1", "t0", "t1").getOutcome() == RefreshRotation.Outcome.UNVERIFIED) {
+                    unverified++;
+                }
+            } catch (RefreshStoreUnavailableException e) {
+                // the calls that opened the circuit
+            }
+            worst = Math.max(worst, System.nanoTime() - started);
+        }
+
+        assertTrue(Duration.ofNanos(worst).toMillis() < 500, "worst call took " + Duration.ofNanos(worst));
+        assertEquals(CircuitBreaker.State.OPEN, store.getState());
+        assertTrue(unverified >= 40, "accepted unverified: " + unverified);
+    }
+
+    @Test
+    void shouldReplayQueuedLogoutOnceRedisRecovers() throws InterruptedException {
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t0", null);
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s2", "u0", null);
+        proxy.setDelay(SLOW);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RefreshStoreUnavailableException.class, () -> store.listSessions(1L));
+        }
+
+        assertTrue(store.revokeSession(1L, "s1"));
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(1L, "john", "s1", "t0", "t1").getOutcome());
+        assertEquals(RefreshRotation.Outcome.UNVERIFIED, store.rotate(1L, "john", "s2", "u0", "u1").getOutcome());
+
+        proxy.setDelay(Duration.ZERO);
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (store.getQueuedWrites() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            store.replayQueuedWrites();
+        }
+
+        assertEquals(0, store.getQueuedWrites());
+        assertEquals(CircuitBreaker.State.CLOSED, store.getState());
+        assertEquals(List.of("s2"), store.listSessions(1L).stream().map(RefreshSessionInfo::getSessionId).toList());
+        assertEquals(RefreshRotation.Outcome.ROTATED, store.rotate(1L, "john", "s2", "u0", "u1").getOutcome());
+    }
+}
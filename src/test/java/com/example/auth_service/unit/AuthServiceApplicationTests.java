@@ -2,8 +2,11 @@ package com.example.auth_service.unit;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
+// the Flyway migrations are PostgreSQL's; the test profile builds the H2 schema from the entities instead
 @SpringBootTest
+@ActiveProfiles("test")
 class AuthServiceApplicationTests {
 
 	@Test
@@ -0,0 +1,140 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.AccessTokenDenylist;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AccessTokenDenylistTests {
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    @Test
+    void shouldRevokeTokenLocally() {
+        AccessTokenDenylist denylist = localDenylist(CLOCK);
+        AccessTokenClaims claims = claims("jti-1", NOW.plusSeconds(600));
+
+        denylist.revoke(claims);
+
+        assertTrue(denylist.isRevoked(claims));
+        assertFalse(denylist.isRevoked(claims("jti-2", NOW.plusSeconds(600))));
+    }
+
+    @Test
+    void shouldIgnoreTokensWithoutJti() {
+        AccessTokenDenylist denylist = localDenylist(CLOCK);
+        AccessTokenClaims legacy = claims(null, NOW.plusSeconds(600));
+
+        denylist.revoke(legacy);
+
+        assertFalse(denylist.isRevoked(legacy));
+    }
+
+    @Test
+    void shouldApplyRevocationsFromOtherInstances() {
+        AccessTokenDenylist denylist = localDenylist(CLOCK);
+
+        denylist.onMessage(new DefaultMessage("auth:denylist".getBytes(StandardCharsets.UTF_8),
+                "jti-1".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertTrue(denylist.isRevoked(claims("jti-1", NOW.plusSeconds(600))));
+    }
+
+    @Test
+    void shouldKeepRevocation_forOneFullGenerationAfterRotation() {
+        MutableClock clock = new MutableClock(NOW);
+        AccessTokenDenylist denylist = localDenylist(clock);
+        AccessTokenClaims claims = claims("jti-1", NOW.plus(Duration.ofMinutes(60)));
+        denylist.revoke(claims);
+
+        clock.now = NOW.plus(Duration.ofMinutes(61));
+
+        assertTrue(denylist.isRevoked(claims));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStoreRevocationWithTokenLifetime_andPublishIt() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        AccessTokenDenylist denylist = syncedDenylist(redisTemplate);
+
+        denylist.revoke(claims("jti-1", NOW.plusSeconds(600)));
+
+        verify(valueOperations).set("auth:denylist:jti-1", "1", Duration.ofSeconds(600));
+        verify(redisTemplate).convertAndSend(anyString(), eq("jti-1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldNotAskRedis_whenFilterRulesTokenOut() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        AccessTokenDenylist denylist = syncedDenylist(redisTemplate);
+
+        assertFalse(denylist.isRevoked(claims("jti-1", NOW.plusSeconds(600))));
+
+        verify(redisTemplate, never()).hasKey(anyString());
+    }
+
+    @Test
+    void shouldIgnoreAlreadyExpiredTokens() {
+        AccessTokenDenylist denylist = localDenylist(CLOCK);
+        AccessTokenClaims expired = claims("jti-1", NOW.minusSeconds(1));
+
+        denylist.revoke(expired);
+
+        assertFalse(denylist.isRevoked(expired));
+    }
+
+    private static AccessTokenDenylist localDenylist(Clock clock) {
+        return new AccessTokenDenylist(null, null, false, 1000, 0.001, Duration.ofMinutes(60), clock);
+    }
+
+    private static AccessTokenDenylist syncedDenylist(RedisTemplate<String, String> redisTemplate) {
+        return new AccessTokenDenylist(redisTemplate, mock(RedisMessageListenerContainer.class), true,
+                1000, 0.001, Duration.ofMinutes(60), CLOCK);
+    }
+
+    private static AccessTokenClaims claims(String jti, Instant expiresAt) {
+        return new AccessTokenClaims("k1", jti, 1L, "john", "ROLE_USER", 0L, expiresAt);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
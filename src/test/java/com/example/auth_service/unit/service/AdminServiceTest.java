@@ -5,6 +5,9 @@ import com.example.auth_service.dto.UserStatsDTO;
 import com.example.auth_service.entity.Person;
 import com.example.auth_service.mapper.PersonMapper;
 import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.security.PersonDetailsCache;
+import com.example.auth_service.security.PrincipalRevocationCheck;
+import com.example.auth_service.security.TokenVersionService;
 import com.example.auth_service.service.AdminService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
@@ -35,6 +38,15 @@ class AdminServiceTest {
     @Mock
     private PeopleRepository peopleRepository;
 
+    @Mock
+    private TokenVersionService tokenVersionService;
+
+    @Mock
+    private PersonDetailsCache personDetailsCache;
+
+    @Mock
+    private PrincipalRevocationCheck principalRevocationCheck;
+
     @InjectMocks
     private AdminService adminService;
 
@@ -56,7 +68,8 @@ class AdminServiceTest {
         };
 
         PersonMapper personMapper = new PersonMapper(modelMapper, passwordEncoder);
-        adminService = new AdminService(peopleRepository, personMapper);
+        adminService = new AdminService(peopleRepository, personMapper, tokenVersionService, personDetailsCache,
+                principalRevocationCheck);
     }
 
     @Nested
@@ -71,6 +84,9 @@ class AdminServiceTest {
             adminService.promotePerson(PERSON_ID);
 
             verify(peopleRepository).save(person);
+            verify(tokenVersionService).bumpAfterCommit(PERSON_ID);
+            verify(personDetailsCache).invalidateAfterCommit(USERNAME);
+            verify(principalRevocationCheck).invalidateAfterCommit(PERSON_ID);
             assertEquals("ROLE_ADMIN", person.getRole());
         }
 
@@ -0,0 +1,162 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonIdentityView;
+import com.example.auth_service.service.AvailabilityIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityIndexTests {
+    @Mock
+    private PeopleRepository peopleRepository;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AvailabilityIndex(peopleRepository, TransactionOperations.withoutTransaction(),
+                1_000_000, DataSize.ofMegabytes(4), 0.001);
+        index.bindTo(registry);
+    }
+
+    @Test
+    void isUsernameAvailable_shouldAskDatabase_untilIndexIsBuilt() {
+        when(peopleRepository.existsByUsername("john")).thenReturn(true);
+
+        assertFalse(index.isReady());
+        assertFalse(index.isUsernameAvailable("john"));
+        verify(peopleRepository).existsByUsername("john");
+    }
+
+    @Test
+    void isUsernameAvailable_shouldAnswerFreeValuesFromFilter() {
+        build();
+
+        assertTrue(index.isUsernameAvailable("anna"));
+        assertTrue(index.isEmailAvailable("anna@gmail.com"));
+
+        verify(peopleRepository, never()).existsByUsername(anyString());
+        verify(peopleRepository, never()).existsByEmail(anyString());
+        assertEquals(2.0, registry.get("auth.availability.checks").tag("answered-by", "filter").functionCounter().count());
+    }
+
+    @Test
+    void isUsernameAvailable_shouldConfirmKnownValuesInDatabase_ignoringCase() {
+        build();
+        when(peopleRepository.existsByUsername("JOHN")).thenReturn(true);
+        when(peopleRepository.existsByEmail("John@Gmail.com")).thenReturn(true);
+
+        assertFalse(index.isUsernameAvailable("JOHN"));
+        assertFalse(index.isEmailAvailable("John@Gmail.com"));
+        assertEquals(2.0, registry.get("auth.availability.checks").tag("answered-by", "database").functionCounter().count());
+    }
+
+    @Test
+    void isUsernameAvailable_shouldCountFalsePositive_whenDatabaseFindsValueFree() {
+        build();
+        // deleted since the build: still in the filter, gone from the table
+        when(peopleRepository.existsByUsername("john")).thenReturn(false);
+
+        assertTrue(index.isUsernameAvailable("john"));
+        assertEquals(1.0, registry.get("auth.availability.false-positives").functionCounter().count());
+    }
+
+    @Test
+    void addAfterCommit_shouldMakeNewUserKnown() {
+        build();
+        when(peopleRepository.existsByUsername("anna")).thenReturn(true);
+
+        index.addAfterCommit("anna", "anna@gmail.com");
+
+        assertFalse(index.isUsernameAvailable("anna"));
+        verify(peopleRepository).existsByUsername("anna");
+    }
+
+    @Test
+    void onMessage_shouldAddValuesRegisteredOnOtherInstances() {
+        build();
+        when(peopleRepository.existsByEmail("anna@gmail.com")).thenReturn(true);
+
+        index.onMessage(new DefaultMessage("auth:availability-additions".getBytes(StandardCharsets.UTF_8),
+                "e:anna@gmail.com".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertFalse(index.isEmailAvailable("anna@gmail.com"));
+    }
+
+    @Test
+    void publishPending_shouldRetryAdditionRedisMissed_untilItTakesIt() {
+        RedisTemplate<String, String> redisTemplate = mock();
+        AvailabilityIndex syncedIndex = new AvailabilityIndex(peopleRepository,
+                TransactionOperations.withoutTransaction(), redisTemplate, mock(RedisMessageListenerContainer.class),
+                true, 1_000_000, DataSize.ofMegabytes(4), 0.001, Duration.ZERO, true);
+        doThrow(new RedisConnectionFailureException("down"))
+                .doThrow(new RedisConnectionFailureException("down"))
+                .doThrow(new RedisConnectionFailureException("still down"))
+                .doReturn(1L)
+                .when(redisTemplate).convertAndSend(eq("auth:availability-additions"), anyString());
+
+        syncedIndex.addAfterCommit("anna", "anna@gmail.com");
+        assertEquals(2, syncedIndex.getUnpublished());
+
+        syncedIndex.publishPending();
+        assertEquals(2, syncedIndex.getUnpublished());
+
+        syncedIndex.publishPending();
+        assertEquals(0, syncedIndex.getUnpublished());
+        // two failed sends, one retry that stops at the first failure, two that go through
+        verify(redisTemplate, times(5)).convertAndSend(eq("auth:availability-additions"), anyString());
+    }
+
+    @Test
+    void rebuild_shouldKeepPreviousIndex_whenReadFails() {
+        build();
+        when(peopleRepository.streamIdentities()).thenThrow(new IllegalStateException("database down"));
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertTrue(index.isUsernameAvailable("anna"));
+        assertEquals(1.0, registry.get("auth.availability.rebuild-failures").functionCounter().count());
+    }
+
+    private void build() {
+        when(peopleRepository.count()).thenReturn(1L);
+        when(peopleRepository.streamIdentities()).thenReturn(Stream.of(identity("john", "john@gmail.com")));
+        index.rebuild();
+    }
+
+    private static PersonIdentityView identity(String username, String email) {
+        return new PersonIdentityView() {
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.service.LastLoginBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LastLoginBufferTests {
+    private static final Instant NOW = Instant.parse("2025-06-20T10:00:00Z");
+    private static final Timestamp NOW_TIMESTAMP = Timestamp.valueOf(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC));
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batchCaptor;
+
+    private LastLoginBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new LastLoginBuffer(jdbcTemplate, 3, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldCoalesceRepeatedLoginsIntoOneBatch() {
+        buffer.record(2L);
+        buffer.record(1L);
+        buffer.record(2L);
+        verifyNoInteractions(jdbcTemplate);
+
+        buffer.flush();
+
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE person SET last_login = ? WHERE id = ?"), batchCaptor.capture());
+        List<Object[]> batch = batchCaptor.getValue();
+        assertEquals(2, batch.size());
+        assertArrayEquals(new Object[]{NOW_TIMESTAMP, 1L}, batch.get(0));
+        assertArrayEquals(new Object[]{NOW_TIMESTAMP, 2L}, batch.get(1));
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void shouldNotWriteWhenNothingIsPending() {
+        buffer.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void shouldFlushWhenFull() {
+        buffer.record(1L);
+        buffer.record(2L);
+        verifyNoInteractions(jdbcTemplate);
+
+        buffer.record(3L);
+
+        verify(jdbcTemplate).batchUpdate(anyString(), batchCaptor.capture());
+        assertEquals(3, batchCaptor.getValue().size());
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void shouldKeepTimesForNextFlush_whenWriteFails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(new int[]{1, 1});
+        buffer.record(1L);
+        buffer.record(2L);
+
+        buffer.flush();
+        assertEquals(2, buffer.pendingCount());
+
+        buffer.flush();
+        assertEquals(0, buffer.pendingCount());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+}
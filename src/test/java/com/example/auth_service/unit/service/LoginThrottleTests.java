@@ -0,0 +1,135 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.exception.TooManyLoginAttemptsException;
+import com.example.auth_service.security.LoginThrottle;
+import com.example.auth_service.util.CircuitBreaker;
+import com.example.auth_service.util.TokenBucketLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LoginThrottleTests {
+    private static final Instant NOW = Instant.parse("2025-06-20T10:00:20Z");
+
+    private final MutableClock clock = new MutableClock(NOW);
+
+    @Test
+    void check_shouldRejectExcessAttemptsFromOneAddress() {
+        LoginThrottle throttle = localThrottle(2, 100);
+
+        throttle.check("1.2.3.4", "john");
+        throttle.check("1.2.3.4", "maria");
+        TooManyLoginAttemptsException e = assertThrows(TooManyLoginAttemptsException.class,
+                () -> throttle.check("1.2.3.4", "max"));
+
+        assertEquals(Duration.ofSeconds(10), e.getRetryAfter());
+        throttle.check("5.6.7.8", "max");
+    }
+
+    @Test
+    void check_shouldRejectExcessAttemptsForOneUsernameFromManyAddresses() {
+        LoginThrottle throttle = localThrottle(100, 2);
+
+        throttle.check("10.0.0.1", "john");
+        throttle.check("10.0.0.2", "John");
+
+        assertThrows(TooManyLoginAttemptsException.class, () -> throttle.check("10.0.0.3", "JOHN"));
+        throttle.check("10.0.0.3", "maria");
+    }
+
+    @Test
+    void check_shouldCountRejectionsPerLimit() {
+        LoginThrottle throttle = localThrottle(1, 100);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        throttle.bindTo(registry);
+
+        throttle.check("1.2.3.4", "john");
+        assertThrows(TooManyLoginAttemptsException.class, () -> throttle.check("1.2.3.4", "john"));
+
+        assertEquals(1.0, registry.get("auth.login.throttle.rejections").tag("limit", "ip").functionCounter().count());
+        assertEquals(0.0, registry.get("auth.login.throttle.rejections").tag("limit", "username").functionCounter().count());
+        assertEquals(1.0, registry.get("auth.login.throttle.buckets").tag("limit", "ip").gauge().value());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void check_shouldApplyGlobalLimitUntilWindowEnds() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString())).thenReturn(1L, 2L, 3L);
+        LoginThrottle throttle = globalThrottle(redisTemplate);
+
+        throttle.check("1.2.3.4", "John");
+        throttle.check("1.2.3.4", "john");
+        TooManyLoginAttemptsException e = assertThrows(TooManyLoginAttemptsException.class,
+                () -> throttle.check("1.2.3.4", "john"));
+
+        // one-minute windows, 20 seconds into the current one
+        assertEquals(Duration.ofSeconds(40), e.getRetryAfter());
+        verify(valueOperations, times(3)).increment("auth:login-attempts:john:" + NOW.getEpochSecond() / 60);
+        verify(redisTemplate).expire(anyString(), eq(Duration.ofMinutes(2)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void check_shouldAllowAndStopAskingRedis_whenItIsDown() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString())).thenThrow(new IllegalStateException("down"));
+        LoginThrottle throttle = globalThrottle(redisTemplate);
+
+        for (int i = 0; i < 5; i++) {
+            throttle.check("1.2.3.4", "john");
+        }
+
+        verify(valueOperations, times(2)).increment(anyString());
+    }
+
+    private LoginThrottle localThrottle(int ipCapacity, int usernameCapacity) {
+        return new LoginThrottle(new TokenBucketLimiter(ipCapacity, Duration.ofSeconds(10), 1000, clock),
+                new TokenBucketLimiter(usernameCapacity, Duration.ofSeconds(10), 1000, clock),
+                null, 0, Duration.ofMinutes(1), new CircuitBreaker(2, Duration.ofSeconds(10), clock), clock);
+    }
+
+    private LoginThrottle globalThrottle(RedisTemplate<String, String> redisTemplate) {
+        return new LoginThrottle(null, null, redisTemplate, 2, Duration.ofMinutes(1),
+                new CircuitBreaker(2, Duration.ofSeconds(10), clock), clock);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
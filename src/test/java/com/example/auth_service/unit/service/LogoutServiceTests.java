@@ -1,7 +1,11 @@
 package com.example.auth_service.unit.service;
 
-import com.example.auth_service.security.RefreshTokenService;
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.AccessTokenDenylist;
+import com.example.auth_service.security.RefreshTokenStore;
+import com.example.auth_service.security.TokenVersionService;
 import com.example.auth_service.service.LogoutService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,30 +14,49 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class LogoutServiceTests {
 
     @Mock
-    private RefreshTokenService refreshTokenService;
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private AccessTokenDenylist denylist;
+
+    @Mock
+    private TokenVersionService tokenVersionService;
 
     @InjectMocks
     private LogoutService logoutService;
 
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Nested
     class LogoutResponseTests {
         @Test
         void buildLogoutResponse_shouldDeleteRefreshTokenAndReturnProperResponse() {
             String username = "john";
 
-            ResponseEntity<Map<String, String>> response = logoutService.buildLogoutResponse(username);
+            ResponseEntity<Map<String, String>> response = logoutService.buildLogoutResponse(1L, username);
 
-            verify(refreshTokenService).deleteRefreshToken(username);
+            verify(refreshTokenStore).revokeAllSessions(1L, username);
 
             Map<String, String> responseBody = response.getBody();
             assertNotNull(responseBody);
@@ -46,5 +69,52 @@ class LogoutServiceTests {
             assertTrue(setCookieHeader.contains("HttpOnly"));
             assertTrue(setCookieHeader.contains("Secure"));
         }
+
+        @Test
+        void buildLogoutResponse_shouldRevokeAccessTokenOfTheRequest() {
+            AccessTokenClaims claims = new AccessTokenClaims("k1", "jti-1", 1L, "john", "ROLE_USER", 0L,
+                    Instant.now().plusSeconds(60));
+            UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken("john", null, List.of());
+            authentication.setDetails(claims);
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+
+            logoutService.buildLogoutResponse(1L, "john");
+
+            verify(denylist).revoke(claims);
+        }
+
+        @Test
+        void buildLogoutResponse_shouldOnlyDeleteRefreshToken_whenNoAccessToken() {
+            logoutService.buildLogoutResponse(1L, "john");
+
+            verify(refreshTokenStore).revokeAllSessions(1L, "john");
+            verifyNoInteractions(denylist);
+        }
+
+        @Test
+        void buildLogoutResponse_shouldOnlyEndPresentedSession() {
+            logoutService.buildLogoutResponse(1L, "john", "s1");
+
+            verify(refreshTokenStore).revokeSession(1L, "s1");
+            verify(refreshTokenStore, never()).revokeAllSessions(any(), anyString());
+            verifyNoInteractions(tokenVersionService);
+        }
+
+        @Test
+        void buildLogoutResponse_shouldDropPreSessionToken_whenTokenHasNoSession() {
+            logoutService.buildLogoutResponse(null, "john", null);
+
+            verify(refreshTokenStore).revokeAllSessions(null, "john");
+        }
+
+        @Test
+        void buildLogoutEverywhereResponse_shouldEndAllSessionsAndAccessTokens() {
+            ResponseEntity<Map<String, String>> response = logoutService.buildLogoutEverywhereResponse(1L, "john");
+
+            verify(refreshTokenStore).revokeAllSessions(1L, "john");
+            verify(tokenVersionService).bump(1L);
+            assertTrue(response.getHeaders().getFirst(HttpHeaders.SET_COOKIE).contains("Max-Age=0"));
+        }
     }
 }
@@ -0,0 +1,97 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.exception.ServiceOverloadedException;
+import com.example.auth_service.security.PasswordHashingExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new PasswordHashingExecutor(PasswordHashingExecutor.newExecutor(1, 2), Duration.ofSeconds(3));
+        executor.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.stop();
+    }
+
+    @Test
+    void submit_shouldCompleteWithResultOfTask() throws Exception {
+        assertEquals("hash", executor.submit(() -> "hash").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_shouldCompleteExceptionally_whenTaskThrows() {
+        CompletableFuture<String> future = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void submit_shouldShedWork_whenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        executor.submit(() -> {
+            running.countDown();
+            return await();
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        executor.submit(this::await);
+        executor.submit(this::await);
+
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class,
+                () -> executor.submit(() -> "rejected"));
+
+        assertEquals(Duration.ofSeconds(3), e.getRetryAfter());
+        assertEquals(2, executor.getQueued());
+        assertEquals(2.0, registry.get("auth.password.pool.queued").gauge().value());
+        assertEquals(1.0, registry.get("auth.password.pool.active").gauge().value());
+        assertEquals(1.0, registry.get("auth.password.pool.rejections").functionCounter().count());
+    }
+
+    @Test
+    void submit_shouldRecordTimeSpentInQueue() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        executor.submit(() -> {
+            running.countDown();
+            return await();
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit(() -> "hash");
+
+        Thread.sleep(50);
+        release.countDown();
+        queued.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2.0, registry.get("auth.password.pool.wait").functionTimer().count());
+        assertTrue(registry.get("auth.password.pool.wait").functionTimer().totalTime(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    private String await() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "hash";
+    }
+}
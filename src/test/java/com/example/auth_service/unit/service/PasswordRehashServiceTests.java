@@ -0,0 +1,101 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.entity.Person;
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.security.PasswordHashing;
+import com.example.auth_service.security.PersonDetails;
+import com.example.auth_service.security.PersonDetailsCache;
+import com.example.auth_service.security.PersonDetailsService;
+import com.example.auth_service.security.RehashingAuthenticationProvider;
+import com.example.auth_service.service.PasswordRehashService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PasswordRehashServiceTests {
+    private final PasswordEncoder passwordEncoder = PasswordHashing.encoder(PasswordHashing.BCRYPT, 5, 1024, 2);
+
+    @Mock
+    private PeopleRepository peopleRepository;
+
+    @Mock
+    private PersonDetailsService personDetailsService;
+
+    @Mock
+    private PersonDetailsCache personDetailsCache;
+
+    private PasswordRehashService rehashService;
+
+    @AfterEach
+    void tearDown() {
+        if (rehashService != null) {
+            rehashService.stop();
+        }
+    }
+
+    @Test
+    void rehash_shouldReplaceOnlyTheVerifiedHash() {
+        rehashService = new PasswordRehashService(peopleRepository, passwordEncoder, personDetailsCache);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        when(peopleRepository.updatePasswordIfUnchanged(eq(1L), eq(legacy), anyString())).thenReturn(1);
+
+        rehashService.rehash(1L, "john", legacy, "secret");
+
+        verify(peopleRepository).updatePasswordIfUnchanged(eq(1L), eq(legacy),
+                argThat(hash -> hash.startsWith("{bcrypt}$2a$05$") && passwordEncoder.matches("secret", hash)));
+        verify(personDetailsCache).invalidate("john");
+    }
+
+    @Test
+    void login_shouldRehashOutdatedPasswordInBackground() {
+        rehashService = new PasswordRehashService(peopleRepository, passwordEncoder, personDetailsCache);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+        when(personDetailsService.loadUserByUsername("john")).thenReturn(new PersonDetails(person(legacy)));
+
+        provider().authenticate(new UsernamePasswordAuthenticationToken("john", "secret"));
+
+        verify(peopleRepository, timeout(5_000)).updatePasswordIfUnchanged(eq(1L), eq(legacy), anyString());
+    }
+
+    @Test
+    void login_shouldLeaveCurrentHashAlone() {
+        rehashService = spy(new PasswordRehashService(peopleRepository, passwordEncoder, personDetailsCache));
+        String current = passwordEncoder.encode("secret");
+        when(personDetailsService.loadUserByUsername("john")).thenReturn(new PersonDetails(person(current)));
+
+        provider().authenticate(new UsernamePasswordAuthenticationToken("john", "secret"));
+
+        verify(rehashService, never()).rehashLater(any(), any(), any(), any());
+        verifyNoInteractions(peopleRepository);
+    }
+
+    private RehashingAuthenticationProvider provider() {
+        RehashingAuthenticationProvider provider = new RehashingAuthenticationProvider(rehashService);
+        provider.setUserDetailsService(personDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        return provider;
+    }
+
+    private static Person person(String passwordHash) {
+        Person person = new Person();
+        person.setId(1L);
+        person.setUsername("john");
+        person.setEmail("john@gmail.com");
+        person.setPassword(passwordHash);
+        person.setRole("ROLE_USER");
+        return person;
+    }
+}
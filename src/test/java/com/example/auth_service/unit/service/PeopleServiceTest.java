@@ -5,13 +5,21 @@ import com.example.auth_service.dto.PersonResponseDTO;
 import com.example.auth_service.dto.PersonUpdateDTO;
 import com.example.auth_service.dto.UserDeletedEvent;
 import com.example.auth_service.entity.Person;
+import com.example.auth_service.exception.ValidationException;
 import com.example.auth_service.mapper.PersonConverter;
 import com.example.auth_service.mapper.PersonConverterImpl;
 import com.example.auth_service.mapper.PersonMapper;
 import com.example.auth_service.repository.PeopleRepository;
 import com.example.auth_service.security.PersonDetails;
+import com.example.auth_service.security.PersonDetailsCache;
+import com.example.auth_service.security.PrincipalRevocationCheck;
+import com.example.auth_service.security.RefreshTokenStore;
+import com.example.auth_service.security.TokenVersionService;
+import com.example.auth_service.service.AvailabilityIndex;
+import com.example.auth_service.service.LastLoginBuffer;
 import com.example.auth_service.service.PeopleService;
 import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -20,13 +28,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.validation.FieldError;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.SQLException;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -56,6 +69,24 @@ class PeopleServiceTest {
     @Mock
     private KafkaTemplate<String, UserDeletedEvent> kafkaTemplate;
 
+    @Mock
+    private TokenVersionService tokenVersionService;
+
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private LastLoginBuffer lastLoginBuffer;
+
+    @Mock
+    private PersonDetailsCache personDetailsCache;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private PrincipalRevocationCheck principalRevocationCheck;
+
     @InjectMocks
     private PeopleService peopleService;
 
@@ -67,7 +98,7 @@ class PeopleServiceTest {
         ModelMapper modelMapper = new ModelMapper();
 
         PersonMapper personMapper = new PersonMapper(modelMapper, passwordEncoder);
-        peopleService = new PeopleService(peopleRepository, personMapper, personConverter, passwordEncoder, kafkaTemplate);
+        peopleService = new PeopleService(peopleRepository, personMapper, personConverter, passwordEncoder, kafkaTemplate, tokenVersionService, refreshTokenStore, lastLoginBuffer, personDetailsCache, availabilityIndex, principalRevocationCheck);
     }
 
     @Test
@@ -78,18 +109,15 @@ class PeopleServiceTest {
         dto.setEmail("john@gmail.com");
         dto.setPassword("secret");
 
-        // Мокаем поведение passwordEncoder
-        when(passwordEncoder.encode("secret")).thenReturn("encoded-secret");
-
         // Гарантируем, что объект, переданный в save(...), получит id = 1L
-        when(peopleRepository.save(any(Person.class))).thenAnswer(invocation -> {
+        when(peopleRepository.saveAndFlush(any(Person.class))).thenAnswer(invocation -> {
             Person p = invocation.getArgument(0);
             p.setId(1L); // здесь мы симулируем "БД назначила ID"
             return p;
         });
 
         // Act
-        PersonResponseDTO result = peopleService.savePerson(dto);
+        PersonResponseDTO result = peopleService.savePerson(dto, "encoded-secret");
 
         // Debug (временно)
         System.out.println("Result DTO ID: " + result.getId());
@@ -99,8 +127,37 @@ class PeopleServiceTest {
         assertEquals("john", result.getUsername());
         assertEquals("john@gmail.com", result.getEmail());
 
-        verify(passwordEncoder).encode("secret");
-        verify(peopleRepository).save(any(Person.class));
+        verify(passwordEncoder, never()).encode(any());
+        verify(peopleRepository).saveAndFlush(argThat(saved -> saved.getPassword().equals("encoded-secret")));
+        verify(availabilityIndex).addAfterCommit("john", "john@gmail.com");
+    }
+
+    @Test
+    void savePerson_shouldReportTakenUsernameAsFieldError() {
+        PersonRequestDTO dto = new PersonRequestDTO();
+        dto.setUsername("john");
+        dto.setEmail("john@gmail.com");
+        dto.setPassword("secret");
+        when(peopleRepository.saveAndFlush(any(Person.class))).thenThrow(uniqueViolation("person_username_lower_key"));
+
+        ValidationException e = assertThrows(ValidationException.class, () -> peopleService.savePerson(dto, "encoded-secret"));
+
+        FieldError error = e.getBindingResult().getFieldError();
+        assertEquals("username", error.getField());
+        assertEquals("This username is already taken!", error.getDefaultMessage());
+    }
+
+    @Test
+    void savePerson_shouldRethrow_whenViolationIsNotAUniquenessConflict() {
+        PersonRequestDTO dto = new PersonRequestDTO();
+        dto.setUsername("john");
+        dto.setEmail("john@gmail.com");
+        dto.setPassword("secret");
+        DataIntegrityViolationException notNull = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException("null value", "23502"), null));
+        when(peopleRepository.saveAndFlush(any(Person.class))).thenThrow(notNull);
+
+        assertSame(notNull, assertThrows(DataIntegrityViolationException.class, () -> peopleService.savePerson(dto, "encoded-secret")));
     }
 
     @Test
@@ -165,7 +222,7 @@ class PeopleServiceTest {
             when(passwordEncoder.encode("secret")).thenReturn("encoded-secret");
 
             // when
-            when(peopleRepository.save(person)).thenReturn(person);
+            when(peopleRepository.saveAndFlush(person)).thenReturn(person);
 
             PersonResponseDTO result = peopleService.updateCurrentUserInfo(updateDTO);
 
@@ -173,7 +230,63 @@ class PeopleServiceTest {
             assertEquals("encoded-secret", person.getPassword());
             assertEquals("john", result.getUsername());
             verify(peopleRepository).findById(1L);
-            verify(peopleRepository).save(person);
+            verify(peopleRepository).saveAndFlush(person);
+            verify(tokenVersionService).bumpAfterCommit(person.getId());
+            verify(principalRevocationCheck).invalidateAfterCommit(person.getId());
+            verify(refreshTokenStore).revokeAllSessions(person.getId(), "john");
+        }
+
+        @Test
+        void updateCurrentUserInfo_shouldRevokeSessionsAfterCommit_whenPasswordChanges() {
+            PersonUpdateDTO updateDTO = new PersonUpdateDTO();
+            updateDTO.setPassword("secret");
+
+            when(peopleRepository.findById(1L)).thenReturn(Optional.of(person));
+            when(passwordEncoder.encode("secret")).thenReturn("encoded-secret");
+            when(peopleRepository.saveAndFlush(person)).thenReturn(person);
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                peopleService.updateCurrentUserInfo(updateDTO);
+                verify(refreshTokenStore, never()).revokeAllSessions(any(), any());
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            verify(refreshTokenStore).revokeAllSessions(1L, "john");
+        }
+
+        @Test
+        void updateCurrentUserInfo_shouldDropSessionOfOldUsername_whenUsernameChanges() {
+            PersonUpdateDTO updateDTO = new PersonUpdateDTO();
+            updateDTO.setUsername("johnny");
+
+            when(peopleRepository.findById(1L)).thenReturn(Optional.of(person));
+            when(peopleRepository.saveAndFlush(person)).thenReturn(person);
+
+            peopleService.updateCurrentUserInfo(updateDTO);
+
+            verify(refreshTokenStore).revokeAllSessions(1L, "john");
+            verify(personDetailsCache).invalidateAfterCommit("john", "johnny");
+            verify(availabilityIndex).addAfterCommit("johnny", person.getEmail());
+        }
+
+        @Test
+        void updateCurrentUserInfo_shouldReportTakenEmail_andKeepSessions() {
+            PersonUpdateDTO updateDTO = new PersonUpdateDTO();
+            updateDTO.setUsername("johnny");
+            updateDTO.setEmail("taken@gmail.com");
+
+            when(peopleRepository.findById(1L)).thenReturn(Optional.of(person));
+            when(peopleRepository.saveAndFlush(person)).thenThrow(uniqueViolation("person_email_lower_key"));
+
+            ValidationException e = assertThrows(ValidationException.class,
+                    () -> peopleService.updateCurrentUserInfo(updateDTO));
+
+            assertEquals("email", e.getBindingResult().getFieldError().getField());
+            verify(refreshTokenStore, never()).revokeAllSessions(any(), anyString());
+            verify(personDetailsCache, never()).invalidateAfterCommit(any(String[].class));
         }
 
         @Test
@@ -230,22 +343,11 @@ class PeopleServiceTest {
     class SetLastLoginTests {
 
         @Test
-        void checkingThatLastLoginWasAssignedSuccessfully() {
-            Person person = createSamplePerson();
-
-            when(peopleRepository.findById(1L)).thenReturn(Optional.of(person));
-
+        void shouldRecordLoginInBufferWithoutTouchingDatabase() {
             peopleService.setLastLogin(1L);
 
-            assertNotNull(person.getLastLogin());
-            verify(peopleRepository).save(person);
-        }
-
-        @Test
-        void shouldThrowException_whenUserNotFound() {
-            when(peopleRepository.findById(99L)).thenReturn(Optional.empty());
-
-            assertThrows(EntityNotFoundException.class, () -> peopleService.setLastLogin(99L));
+            verify(lastLoginBuffer).record(1L);
+            verifyNoInteractions(peopleRepository);
         }
     }
 
@@ -259,9 +361,26 @@ class PeopleServiceTest {
             peopleService.deletePerson(personId);
 
             verify(peopleRepository).deleteById(personId);
+            verify(tokenVersionService).bumpAfterCommit(personId);
+            verify(principalRevocationCheck).invalidateAfterCommit(personId);
             verify(kafkaTemplate).send(eq("user-deleted"),argThat(event ->
                     event != null && event.getPersonId().equals(personId)));
         }
+
+        @Test
+        void shouldDeleteRefreshSession_ofDeletedPerson() {
+            when(peopleRepository.findById(1L)).thenReturn(Optional.of(createSamplePerson()));
+
+            peopleService.deletePerson(1L);
+
+            verify(refreshTokenStore).revokeAllSessions(1L, "john");
+            verify(personDetailsCache).invalidateAfterCommit("john");
+        }
     }
 
+    private static DataIntegrityViolationException uniqueViolation(String constraint) {
+        SQLException cause = new SQLException("duplicate key value violates unique constraint \"" + constraint + "\"", "23505");
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", cause, constraint));
+    }
 }
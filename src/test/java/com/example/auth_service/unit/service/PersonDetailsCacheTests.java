@@ -0,0 +1,221 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.entity.Person;
+import com.example.auth_service.security.PersonDetails;
+import com.example.auth_service.security.PersonDetailsCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PersonDetailsCacheTests {
+    private static final Instant NOW = Instant.parse("2025-06-20T10:00:00Z");
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final PersonDetailsCache cache = new PersonDetailsCache(100, Duration.ofMinutes(1), clock);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<String, PersonDetails> loader = username -> {
+        loads.incrementAndGet();
+        return details(username, "ROLE_USER");
+    };
+
+    @Test
+    void get_shouldLoadOnceAndServeFromCache() {
+        cache.get("john", loader);
+        PersonDetails second = cache.get("john", loader);
+
+        assertEquals("john", second.getUsername());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_shouldReloadAfterTtl() {
+        cache.get("john", loader);
+
+        clock.now = NOW.plus(Duration.ofMinutes(1));
+        cache.get("john", loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_shouldRunOneLoadForConcurrentMisses() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, PersonDetails> slowLoader = username -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return details(username, "ROLE_USER");
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<PersonDetails> first = pool.submit(() -> cache.get("john", slowLoader));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            CompletableFuture<?>[] waiters = new CompletableFuture<?>[7];
+            for (int i = 0; i < waiters.length; i++) {
+                waiters[i] = CompletableFuture.supplyAsync(() -> cache.get("john", slowLoader), pool);
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals("john", first.get(5, TimeUnit.SECONDS).getUsername());
+            CompletableFuture.allOf(waiters).get(5, TimeUnit.SECONDS);
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_shouldNotCacheFailedLoads() {
+        Function<String, PersonDetails> missing = username -> {
+            loads.incrementAndGet();
+            throw new UsernameNotFoundException("Username doesn't found!");
+        };
+
+        assertThrows(UsernameNotFoundException.class, () -> cache.get("ghost", missing));
+        assertThrows(UsernameNotFoundException.class, () -> cache.get("ghost", missing));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidate_shouldDropEntry() {
+        cache.get("john", loader);
+
+        cache.invalidate("john");
+        PersonDetails reloaded = cache.get("john", username -> details(username, "ROLE_ADMIN"));
+
+        assertEquals("ROLE_ADMIN", reloaded.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void get_shouldShareEntryAcrossCase_andInvalidateShouldDropIt() {
+        cache.get("John", loader);
+        cache.get("john", loader);
+        assertEquals(1, loads.get());
+
+        cache.invalidate("john");
+        cache.get("JOHN", loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidate_shouldDiscardLoadThatWasRunningMeanwhile() {
+        cache.get("john", username -> {
+            cache.invalidate("john");
+            return details(username, "ROLE_USER");
+        });
+
+        cache.get("john", loader);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void invalidate_shouldBroadcastAndPeersShouldEvict() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        PersonDetailsCache local = new PersonDetailsCache(redisTemplate, mock(RedisMessageListenerContainer.class),
+                true, 100, Duration.ofMinutes(1), true, clock);
+        PersonDetailsCache peer = new PersonDetailsCache(100, Duration.ofMinutes(1), clock);
+        peer.get("john", loader);
+
+        local.invalidate("john");
+        peer.onMessage(new DefaultMessage("auth:person-details-invalidations".getBytes(StandardCharsets.UTF_8),
+                "john".getBytes(StandardCharsets.UTF_8)), null);
+        peer.get("john", loader);
+
+        verify(redisTemplate).convertAndSend(anyString(), eq("john"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateAfterCommit_shouldApplyRightAway_withoutTransaction() {
+        cache.get("john", loader);
+
+        cache.invalidateAfterCommit("john", null);
+        cache.get("john", loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void bindTo_shouldPublishHitRatioAndLoadTime() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("john", loader);
+        cache.get("john", loader);
+        cache.get("john", loader);
+        cache.get("maria", loader);
+
+        assertEquals(0.5, registry.get("auth.person-details.cache.hit-ratio").gauge().value());
+        assertEquals(2.0, registry.get("auth.person-details.cache.loads").functionTimer().count());
+        assertEquals(2.0, registry.get("auth.person-details.cache.size").gauge().value());
+    }
+
+    private static PersonDetails details(String username, String role) {
+        Person person = new Person();
+        person.setId(1L);
+        person.setUsername(username);
+        person.setEmail(username + "@gmail.com");
+        person.setRole(role);
+        return new PersonDetails(person);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,19 +1,22 @@
 package com.example.auth_service.unit.service;
 
-import com.example.auth_service.entity.Person;
 import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonCredentialsView;
 import com.example.auth_service.security.PersonDetails;
+import com.example.auth_service.security.PersonDetailsCache;
 import com.example.auth_service.security.PersonDetailsService;
+import com.example.auth_service.service.PersonLookupBatcher;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
-import java.util.Collections;
-import java.util.List;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -24,17 +27,22 @@ class PersonDetailsServiceTests {
     @Mock
     private PeopleRepository peopleRepository;
 
-    @InjectMocks
     private PersonDetailsService personDetailsService;
 
+    @BeforeEach
+    void setUp() {
+        personDetailsService = new PersonDetailsService(new PersonLookupBatcher(peopleRepository, Duration.ZERO, 1, null),
+                new PersonDetailsCache(100, Duration.ofMinutes(1), Clock.systemUTC()));
+    }
+
     @Nested
     class loadUserByUsernameTests {
 
         @Test
         void shouldTakeUsername_andReturnPersonDetails() {
             // given
-            Person person = createSamplePerson();
-            when(peopleRepository.findByUsername("john")).thenReturn(List.of(person));
+            PersonCredentialsView person = createSamplePerson();
+            when(peopleRepository.findCredentialsByUsername("john")).thenReturn(Optional.of(person));
 
             // when
             PersonDetails result = (PersonDetails) personDetailsService.loadUserByUsername("john");
@@ -44,12 +52,23 @@ class PersonDetailsServiceTests {
             assertEquals("john@gmail.com", result.getEmail());
             assertEquals("ROLE_USER", result.getAuthorities().iterator().next().getAuthority());
 
-            verify(peopleRepository).findByUsername("john");
+            verify(peopleRepository).findCredentialsByUsername("john");
+        }
+
+        @Test
+        void shouldAnswerRepeatedLookupsFromCache() {
+            when(peopleRepository.findCredentialsByUsername("john")).thenReturn(Optional.of(createSamplePerson()));
+
+            personDetailsService.loadUserByUsername("john");
+            PersonDetails result = (PersonDetails) personDetailsService.loadUserByUsername("john");
+
+            assertEquals("john", result.getUsername());
+            verify(peopleRepository, times(1)).findCredentialsByUsername("john");
         }
 
         @Test
         void shouldReturnException_whenUserNotFound() {
-            when(peopleRepository.findByUsername("john")).thenReturn(Collections.emptyList());
+            when(peopleRepository.findCredentialsByUsername("john")).thenReturn(Optional.empty());
             UsernameNotFoundException exception = assertThrows(UsernameNotFoundException.class,
                     () -> personDetailsService.loadUserByUsername("john"));
 
@@ -57,12 +76,32 @@ class PersonDetailsServiceTests {
         }
     }
 
-    private static Person createSamplePerson() {
-        Person person = new Person();
-        person.setId(1L);
-        person.setUsername("john");
-        person.setEmail("john@gmail.com");
-        person.setRole("ROLE_USER");
-        return person;
+    private static PersonCredentialsView createSamplePerson() {
+        return new PersonCredentialsView() {
+            @Override
+            public Long getId() {
+                return 1L;
+            }
+
+            @Override
+            public String getUsername() {
+                return "john";
+            }
+
+            @Override
+            public String getPassword() {
+                return null;
+            }
+
+            @Override
+            public String getEmail() {
+                return "john@gmail.com";
+            }
+
+            @Override
+            public String getRole() {
+                return "ROLE_USER";
+            }
+        };
     }
 }
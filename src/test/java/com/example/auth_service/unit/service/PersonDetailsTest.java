@@ -1,10 +1,14 @@
 package com.example.auth_service.unit.service;
 
 import com.example.auth_service.entity.Person;
+import com.example.auth_service.security.AccessTokenClaims;
 import com.example.auth_service.security.PersonDetails;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class PersonDetailsTest {
 
@@ -43,5 +47,16 @@ class PersonDetailsTest {
         assertEquals(1L, details.getId());
         assertEquals("john@gmail.com", details.getEmail());
     }
-}
 
+    @Test
+    void shouldBuildSlimPrincipalFromClaims() {
+        AccessTokenClaims claims = new AccessTokenClaims("k1", 1L, "john", "ROLE_USER", Instant.now());
+
+        PersonDetails details = PersonDetails.fromClaims(claims);
+
+        assertEquals(1L, details.getId());
+        assertEquals("john", details.getUsername());
+        assertEquals("ROLE_USER", details.getAuthorities().iterator().next().getAuthority());
+        assertNull(details.getPassword());
+    }
+}
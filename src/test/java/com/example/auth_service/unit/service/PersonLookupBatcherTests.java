@@ -0,0 +1,188 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonCredentialsLookupView;
+import com.example.auth_service.repository.PersonCredentialsView;
+import com.example.auth_service.service.PersonLookupBatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PersonLookupBatcherTests {
+    @Mock
+    private PeopleRepository peopleRepository;
+
+    private final ScheduledExecutorService scheduler = PersonLookupBatcher.newScheduler(2);
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void find_shouldAnswerLookupsWithinWindowWithOneQuery() throws Exception {
+        when(peopleRepository.findCredentialsByUsernameIn(any())).thenAnswer(invocation -> people(invocation.getArgument(0)));
+        PersonLookupBatcher batcher = new PersonLookupBatcher(peopleRepository, Duration.ofMillis(200), 64, scheduler);
+
+        CompletableFuture<PersonCredentialsView> john = CompletableFuture.supplyAsync(() -> batcher.find("john"), callers);
+        CompletableFuture<PersonCredentialsView> maria = CompletableFuture.supplyAsync(() -> batcher.find("maria"), callers);
+        CompletableFuture<PersonCredentialsView> johnAgain = CompletableFuture.supplyAsync(() -> batcher.find("john"), callers);
+        CompletableFuture<PersonCredentialsView> ghost = CompletableFuture.supplyAsync(() -> batcher.find("ghost"), callers);
+
+        assertEquals("john", john.get(5, TimeUnit.SECONDS).getUsername());
+        assertEquals("maria", maria.get(5, TimeUnit.SECONDS).getUsername());
+        assertEquals("john", johnAgain.get(5, TimeUnit.SECONDS).getUsername());
+        assertNull(ghost.get(5, TimeUnit.SECONDS));
+        verify(peopleRepository).findCredentialsByUsernameIn(Set.of("john", "maria", "ghost"));
+        verify(peopleRepository, never()).findCredentialsByUsername(anyString());
+    }
+
+    @Test
+    void find_shouldSendFullBatchWithoutWaitingForWindow() throws Exception {
+        when(peopleRepository.findCredentialsByUsernameIn(any())).thenAnswer(invocation -> people(invocation.getArgument(0)));
+        PersonLookupBatcher batcher = new PersonLookupBatcher(peopleRepository, Duration.ofMinutes(1), 2, scheduler);
+
+        CompletableFuture<PersonCredentialsView> john = CompletableFuture.supplyAsync(() -> batcher.find("john"), callers);
+        CompletableFuture<PersonCredentialsView> maria = CompletableFuture.supplyAsync(() -> batcher.find("maria"), callers);
+
+        assertEquals("john", john.get(5, TimeUnit.SECONDS).getUsername());
+        assertEquals("maria", maria.get(5, TimeUnit.SECONDS).getUsername());
+    }
+
+    @Test
+    void find_shouldFailEveryLookupOfBatch_whenQueryFails() {
+        when(peopleRepository.findCredentialsByUsernameIn(any())).thenThrow(new IllegalStateException("database down"));
+        PersonLookupBatcher batcher = new PersonLookupBatcher(peopleRepository, Duration.ofMillis(10), 64, scheduler);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> batcher.find("john"));
+
+        assertEquals("database down", e.getMessage());
+    }
+
+    @Test
+    void find_shouldStartNewBatchAfterPreviousWasSent() throws Exception {
+        CountDownLatch firstQuery = new CountDownLatch(1);
+        when(peopleRepository.findCredentialsByUsernameIn(any())).thenAnswer(invocation -> {
+            firstQuery.countDown();
+            return people(invocation.getArgument(0));
+        });
+        PersonLookupBatcher batcher = new PersonLookupBatcher(peopleRepository, Duration.ofMillis(10), 64, scheduler);
+
+        assertEquals("john", batcher.find("john").getUsername());
+        assertTrue(firstQuery.await(5, TimeUnit.SECONDS));
+        assertEquals("maria", batcher.find("maria").getUsername());
+
+        verify(peopleRepository).findCredentialsByUsernameIn(Set.of("john"));
+        verify(peopleRepository).findCredentialsByUsernameIn(Set.of("maria"));
+    }
+
+    @Test
+    void find_shouldMatchUsernamesIgnoringCase() throws Exception {
+        when(peopleRepository.findCredentialsByUsernameIn(any())).thenAnswer(invocation -> people(invocation.getArgument(0)));
+        PersonLookupBatcher batcher = new PersonLookupBatcher(peopleRepository, Duration.ofMillis(200), 64, scheduler);
+
+        CompletableFuture<PersonCredentialsView> lower = CompletableFuture.supplyAsync(() -> batcher.find("john"), callers);
+        CompletableFuture<PersonCredentialsView> mixed = CompletableFuture.supplyAsync(() -> batcher.find("John"), callers);
+
+        assertEquals("john", lower.get(5, TimeUnit.SECONDS).getUsername());
+        assertEquals("john", mixed.get(5, TimeUnit.SECONDS).getUsername());
+        verify(peopleRepository).findCredentialsByUsernameIn(Set.of("john"));
+    }
+
+    @Test
+    void find_shouldMatchRowsByTheDatabasesLowerCase() {
+        // a database lower() that folds the dotted capital I to a plain i, unlike toLowerCase()
+        when(peopleRepository.findCredentialsByUsernameIn(Set.of("ilker")))
+                .thenReturn(List.of(person("\u0130lker", "ilker")));
+        PersonLookupBatcher batcher = new PersonLookupBatcher(peopleRepository, Duration.ofMillis(10), 64, scheduler);
+
+        assertEquals("\u0130lker", batcher.find("ilker").getUsername());
+        verify(peopleRepository, never()).findCredentialsByUsername(anyString());
+    }
+
+    @Test
+    void find_shouldQueryNonAsciiUsernameOnItsOwn_whenTheBatchMissesIt() {
+        when(peopleRepository.findCredentialsByUsernameIn(Set.of("i\u0307lker"))).thenReturn(List.of());
+        when(peopleRepository.findCredentialsByUsername("\u0130lker")).thenReturn(Optional.of(person("\u0130lker")));
+        PersonLookupBatcher batcher = new PersonLookupBatcher(peopleRepository, Duration.ofMillis(10), 64, scheduler);
+
+        assertEquals("\u0130lker", batcher.find("\u0130lker").getUsername());
+    }
+
+    @Test
+    void find_shouldQueryDirectly_whenBatchingIsOff() {
+        when(peopleRepository.findCredentialsByUsername("john")).thenReturn(Optional.of(person("john")));
+        PersonLookupBatcher batcher = new PersonLookupBatcher(peopleRepository, Duration.ZERO, 64, null);
+
+        assertEquals("john", batcher.find("john").getUsername());
+        verify(peopleRepository, never()).findCredentialsByUsernameIn(any());
+    }
+
+    // every username but "ghost" exists
+    private static List<PersonCredentialsLookupView> people(Collection<String> usernames) {
+        return usernames.stream()
+                .filter(username -> !username.equals("ghost"))
+                .map(PersonLookupBatcherTests::person)
+                .toList();
+    }
+
+    private static PersonCredentialsLookupView person(String username) {
+        return person(username, username);
+    }
+
+    private static PersonCredentialsLookupView person(String username, String usernameKey) {
+        return new PersonCredentialsLookupView() {
+            @Override
+            public String getUsernameKey() {
+                return usernameKey;
+            }
+
+            @Override
+            public Long getId() {
+                return (long) username.hashCode();
+            }
+
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getPassword() {
+                return "hash";
+            }
+
+            @Override
+            public String getEmail() {
+                return username + "@gmail.com";
+            }
+
+            @Override
+            public String getRole() {
+                return "ROLE_USER";
+            }
+        };
+    }
+}
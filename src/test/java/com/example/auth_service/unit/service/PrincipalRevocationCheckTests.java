@@ -0,0 +1,109 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.repository.PersonAuthView;
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.PrincipalRevocationCheck;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrincipalRevocationCheckTests {
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Mock
+    private PeopleRepository peopleRepository;
+
+    private PrincipalRevocationCheck revocationCheck;
+
+    @BeforeEach
+    void setUp() {
+        revocationCheck = new PrincipalRevocationCheck(peopleRepository, true, Duration.ofSeconds(30), 100,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldAcceptToken_andQueryDatabaseOncePerTtl() {
+        when(peopleRepository.findAuthViewById(1L)).thenReturn(Optional.of(view("john", "ROLE_USER")));
+
+        assertFalse(revocationCheck.isRevoked(claims("john", "ROLE_USER")));
+        assertFalse(revocationCheck.isRevoked(claims("john", "ROLE_USER")));
+
+        verify(peopleRepository, times(1)).findAuthViewById(1L);
+    }
+
+    @Test
+    void shouldRevoke_whenUserDeleted() {
+        when(peopleRepository.findAuthViewById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(revocationCheck.isRevoked(claims("john", "ROLE_USER")));
+    }
+
+    @Test
+    void shouldRevoke_whenRoleChanged() {
+        when(peopleRepository.findAuthViewById(1L)).thenReturn(Optional.of(view("john", "ROLE_ADMIN")));
+
+        assertTrue(revocationCheck.isRevoked(claims("john", "ROLE_USER")));
+    }
+
+    @Test
+    void shouldReadUserAgain_afterTheChangeCommitted() {
+        when(peopleRepository.findAuthViewById(1L)).thenReturn(Optional.of(view("john", "ROLE_USER")),
+                Optional.of(view("john", "ROLE_ADMIN")));
+        assertFalse(revocationCheck.isRevoked(claims("john", "ROLE_USER")));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            revocationCheck.invalidateAfterCommit(1L);
+            assertFalse(revocationCheck.isRevoked(claims("john", "ROLE_USER")));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(revocationCheck.isRevoked(claims("john", "ROLE_USER")));
+        verify(peopleRepository, times(2)).findAuthViewById(1L);
+    }
+
+    @Test
+    void shouldSkipDatabase_whenDisabled() {
+        PrincipalRevocationCheck disabled = new PrincipalRevocationCheck(peopleRepository, false,
+                Duration.ofSeconds(30), 100, Clock.systemUTC());
+
+        assertFalse(disabled.isRevoked(claims("john", "ROLE_USER")));
+        verifyNoInteractions(peopleRepository);
+    }
+
+    private static AccessTokenClaims claims(String username, String role) {
+        return new AccessTokenClaims("k1", 1L, username, role, NOW.plusSeconds(3600));
+    }
+
+    private static PersonAuthView view(String username, String role) {
+        return new PersonAuthView() {
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getRole() {
+                return role;
+            }
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.security.RefreshRotation;
+import com.example.auth_service.security.RefreshSessionInfo;
+import com.example.auth_service.security.RedisRefreshTokenStore;
+import com.example.auth_service.security.RefreshTokenStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+class RedisRefreshTokenStoreTests {
+    private static final String WEEK = Long.toString(Duration.ofDays(7).toSeconds());
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final Clock clock = Clock.fixed(Instant.ofEpochSecond(1_000), ZoneOffset.UTC);
+
+    // есть ручная инициализация - @InjectMocks не нужен
+    private RedisRefreshTokenStore refreshTokenStore;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenStore = new RedisRefreshTokenStore(redisTemplate, Duration.ofSeconds(5), 3, 100, clock);
+    }
+
+    @Test
+    void shouldSaveCompactSessionIntoBucketOfUser() {
+        refreshTokenStore.saveRefreshToken(1234L, "john", "ROLE_USER", "s1", "token123",
+                "Firefox|" + "x".repeat(40));
+
+        String session = "USER|" + RefreshTokenStore.digest("token123") + "||1000";
+        String meta = "1000|Firefox/" + "x".repeat(24);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("auth:rt:34")),
+                eq("1234"), eq("s1"), eq(session), eq(meta), eq("1000"), eq(WEEK), eq("3"));
+        verify(redisTemplate).delete("john");
+    }
+
+    @Test
+    void sessionValues_shouldFitCompactHashEncoding() {
+        String session = "ADMIN|" + RefreshTokenStore.digest("token") + "|" + "x".repeat(11) + "|1760000000";
+        String field = Long.MAX_VALUE + "." + "s".repeat(22) + ".m";
+
+        assertEquals(22, RefreshTokenStore.digest("token").length());
+        assertTrue(session.length() <= 64);
+        assertTrue(field.length() <= 64);
+    }
+
+    @Test
+    void rotate_shouldPassDigestsAndClockInSeconds() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any(), any(), any(),
+                any())).thenReturn(List.of("rotated", "ADMIN"));
+
+        RefreshRotation rotation = refreshTokenStore.rotate(1234L, "john", "s1", "old", "new");
+
+        assertEquals(RefreshRotation.Outcome.ROTATED, rotation.getOutcome());
+        assertEquals(1234L, rotation.getId());
+        assertEquals("ROLE_ADMIN", rotation.getRole());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("auth:rt:34")),
+                eq("1234"), eq("s1"), eq(RefreshTokenStore.digest("old")), eq(RefreshTokenStore.digest("new")),
+                eq("1000"), eq(WEEK), eq("5"));
+    }
+
+    @Test
+    void rotate_shouldOnlyCheckPreSessionKey_forTokensWithoutSession() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("john")).thenReturn("old");
+
+        assertEquals(RefreshRotation.Outcome.LEGACY,
+                refreshTokenStore.rotate(null, "john", null, "old", null).getOutcome());
+        assertEquals(RefreshRotation.Outcome.INVALID,
+                refreshTokenStore.rotate(null, "john", null, "other", null).getOutcome());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    void rotate_shouldMapScriptOutcomes() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any(), any(), any(),
+                any())).thenReturn(List.of("reused"), List.of("raced"), List.of("invalid"),
+                Collections.singletonList(null));
+
+        RefreshRotation reused = refreshTokenStore.rotate(7L, "john", "s1", "old", "new");
+        assertEquals(RefreshRotation.Outcome.REUSED, reused.getOutcome());
+        assertEquals(7L, reused.getId());
+        assertEquals(RefreshRotation.Outcome.RACED,
+                refreshTokenStore.rotate(7L, "john", "s1", "old", "new").getOutcome());
+        assertEquals(RefreshRotation.Outcome.INVALID,
+                refreshTokenStore.rotate(7L, "john", "s1", "old", "new").getOutcome());
+        assertEquals(RefreshRotation.Outcome.INVALID,
+                refreshTokenStore.rotate(7L, "john", "s1", "old", "new").getOutcome());
+    }
+
+    @Test
+    void listSessions_shouldOnlyReturnLiveSessionsOfUser() {
+        long week = Duration.ofDays(7).toSeconds();
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries("auth:rt:34")).thenReturn(Map.of(
+                "1234.old", "USER|d||" + (1000 - week),
+                "1234.old.m", "100|",
+                "1234.phone", "USER|d||300",
+                "1234.phone.m", "100|Android",
+                "1234.laptop", "USER|d|p|400",
+                "1234.laptop.m", "200|Firefox",
+                "34.other", "USER|d||500"));
+
+        List<RefreshSessionInfo> sessions = refreshTokenStore.listSessions(1234L);
+
+        assertEquals(List.of("laptop", "phone"), sessions.stream().map(RefreshSessionInfo::getSessionId).toList());
+        assertEquals("Firefox", sessions.get(0).getDevice());
+        assertEquals(Instant.ofEpochSecond(200), sessions.get(0).getCreatedAt());
+        assertEquals(Instant.ofEpochSecond(400), sessions.get(0).getLastUsedAt());
+        assertEquals(Instant.ofEpochSecond(300 + week), sessions.get(1).getExpiresAt());
+    }
+
+    @Test
+    void revokeSession_shouldDeleteBothFieldsOfSession() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.delete("auth:rt:34", "1234.s1", "1234.s1.m")).thenReturn(2L);
+
+        assertTrue(refreshTokenStore.revokeSession(1234L, "s1"));
+    }
+
+    @Test
+    void revokeAllSessions_shouldClearBucketAndPreSessionKey() {
+        refreshTokenStore.revokeAllSessions(1234L, "john");
+
+        // one key per script, so they run on Redis Cluster
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("auth:rt:34")), eq("1234"));
+        verify(redisTemplate).delete("john");
+    }
+
+    @Test
+    void revokeAllSessions_shouldOnlyDropPreSessionKey_whenIdIsUnknown() {
+        refreshTokenStore.revokeAllSessions(null, "john");
+
+        verify(redisTemplate).delete("john");
+    }
+
+    @Test
+    void sweep_shouldCoverNextSliceOfBuckets_whenItGetsTheLease() {
+        RedisRefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate, Duration.ofSeconds(5), 3, 100,
+                Duration.ofHours(1), Duration.ofMinutes(1), clock);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent("auth:rt-sweep:lease", "1000", Duration.ofMinutes(1))).thenReturn(true);
+        when(valueOperations.get("auth:rt-sweep:cursor")).thenReturn("99");
+
+        store.sweepExpiredSessions();
+
+        // ceil(100 buckets / 60 ticks) per tick, wrapping around
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("auth:rt:99")), eq("1000"), eq(WEEK));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("auth:rt:0")), eq("1000"), eq(WEEK));
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), any(), any());
+        verify(valueOperations).set("auth:rt-sweep:cursor", "1");
+    }
+
+    @Test
+    void sweep_shouldSkipTick_whenAnotherInstanceHoldsTheLease() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq("auth:rt-sweep:lease"), any(), any(Duration.class))).thenReturn(false);
+
+        refreshTokenStore.sweepExpiredSessions();
+
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any());
+    }
+
+    @Test
+    void bucketsFor_shouldKeepAboutThirtyTwoSessionsPerBucket() {
+        assertEquals(1, RedisRefreshTokenStore.bucketsFor(0));
+        assertEquals(1, RedisRefreshTokenStore.bucketsFor(32));
+        assertEquals(4, RedisRefreshTokenStore.bucketsFor(100));
+        assertEquals(65536, RedisRefreshTokenStore.bucketsFor(2_000_000));
+    }
+
+    @Test
+    void digest_shouldBeStableAndNotContainToken() {
+        String digest = RefreshTokenStore.digest("token123");
+
+        assertEquals(digest, RefreshTokenStore.digest("token123"));
+        assertNotEquals(digest, RefreshTokenStore.digest("token124"));
+        assertFalse(digest.contains("token123"));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.exception.RefreshStoreUnavailableException;
+import com.example.auth_service.security.RefreshRotation;
+import com.example.auth_service.security.RefreshTokenStore;
+import com.example.auth_service.security.ResilientRefreshTokenStore;
+import com.example.auth_service.security.ResilientRefreshTokenStore.DegradedMode;
+import com.example.auth_service.util.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResilientRefreshTokenStoreTests {
+    private static final Instant NOW = Instant.parse("2025-06-20T10:00:00Z");
+    private static final Duration BUDGET = Duration.ofMillis(50);
+
+    @Mock
+    private RefreshTokenStore delegate;
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private ResilientRefreshTokenStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.stop();
+        }
+    }
+
+    @Test
+    void shouldPassResultsThrough() {
+        store = create(DegradedMode.FAIL);
+        RefreshRotation rotated = new RefreshRotation(RefreshRotation.Outcome.ROTATED, 1L, "ROLE_USER");
+        when(delegate.rotate(1L, "john", "s1", "t0", "t1")).thenReturn(rotated);
+
+        assertSame(rotated, store.rotate(1L, "john", "s1", "t0", "t1"));
+        assertEquals(CircuitBreaker.State.CLOSED, store.getState());
+    }
+
+    @Test
+    void shouldGiveUpOnSlowStoreWithinBudget() {
+        store = create(DegradedMode.FAIL);
+        when(delegate.rotate(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(2_000);
+            return null;
+        });
+
+        long started = System.nanoTime();
+        RefreshStoreUnavailableException e = assertThrows(RefreshStoreUnavailableException.class,
+                () -> store.rotate(1L, "john", "s1", "t0", "t1"));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 1_000);
+        assertEquals(Duration.ofSeconds(1), e.getRetryAfter());
+    }
+
+    @Test
+    void shouldStopCallingStoreOnceCircuitIsOpen() {
+        store = create(DegradedMode.FAIL);
+        when(delegate.listSessions(1L)).thenThrow(new RedisConnectionFailureException("down"));
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(RefreshStoreUnavailableException.class, () -> store.listSessions(1L));
+        }
+        RefreshStoreUnavailableException e = assertThrows(RefreshStoreUnavailableException.class,
+                () -> store.listSessions(1L));
+
+        verify(delegate, times(2)).listSessions(1L);
+        assertEquals(CircuitBreaker.State.OPEN, store.getState());
+        assertEquals(Duration.ofSeconds(5), e.getRetryAfter());
+    }
+
+    @Test
+    void shouldRethrowFailuresOtherThanTheStoreBeingDown_withoutCountingThem() {
+        store = create(DegradedMode.ACCEPT);
+        IllegalArgumentException bug = new IllegalArgumentException("bad session id");
+        when(delegate.listSessions(1L)).thenThrow(bug);
+        doThrow(bug).when(delegate).saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t0", "web");
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(bug, assertThrows(IllegalArgumentException.class, () -> store.listSessions(1L)));
+        }
+        assertSame(bug, assertThrows(IllegalArgumentException.class,
+                () -> store.saveRefreshToken(1L, "john", "ROLE_USER", "s1", "t0", "web")));
+
+        assertEquals(CircuitBreaker.State.CLOSED, store.getState());
+        assertEquals(0, store.getQueuedWrites());
+    }
+
+    @Test
+    void failMode_shouldNotAcceptRefreshWhileStoreIsDown() {
+        store = create(DegradedMode.FAIL);
+        openCircuit();
+
+        assertThrows(RefreshStoreUnavailableException.class, () -> store.rotate(1L, "john", "s1", "t0", "t1"));
+        assertThrows(RefreshStoreUnavailableException.class, () -> store.revokeSession(1L, "s1"));
+    }
+
+    @Test
+    void acceptMode_shouldAcceptRefreshUnverifiedWithinWindow() {
+        store = create(DegradedMode.ACCEPT);
+        openCircuit();
+
+        RefreshRotation rotation = store.rotate(1L, "john", "s1", "t0", "t1");
+        assertEquals(RefreshRotation.Outcome.UNVERIFIED, rotation.getOutcome());
+        assertEquals(1L, rotation.getId());
+
+        // tokens without a session have nothing the window could vouch for
+        assertThrows(RefreshStoreUnavailableException.class, () -> store.rotate(null, "john", null, "t0", null));
+
+        clock.now = NOW.plus(Duration.ofMinutes(2)).plusSeconds(1);
+        openCircuit();
+        assertThrows(RefreshStoreUnavailableException.class, () -> store.rotate(1L, "john", "s1", "t0", "t1"));
+    }
+
+    @Test
+    void acceptMode_shouldNotAcceptRefreshThatTimedOut() {
+        store = create(DegradedMode.ACCEPT);
+        when(delegate.rotate(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(2_000);
+            return null;
+        });
+
+        // the store may have rotated the token after all
+        assertThrows(RefreshStoreUnavailableException.class, () -> store.rotate(1L, "john", "s1", "t0", "t1"));
+    }
+
+    @Test
+    void acceptMode_shouldQueueRevocationAndReplayItInOrder() {
+        store = create(DegradedMode.ACCEPT);
+        openCircuit();
+
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s2", "n0", "Firefox");
+        assertTrue(store.revokeSession(1L, "s1"));
+        assertEquals(2, store.getQueuedWrites());
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(1L, "john", "s1", "t0", "t1").getOutcome());
+        assertEquals(RefreshRotation.Outcome.UNVERIFIED, store.rotate(1L, "john", "s2", "n0", "n1").getOutcome());
+
+        store.replayQueuedWrites();
+        verify(delegate, never()).revokeSession(any(), any());
+
+        reset(delegate);
+        when(delegate.revokeSession(1L, "s1")).thenReturn(true);
+        clock.now = NOW.plusSeconds(5);
+        store.replayQueuedWrites();
+
+        InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).saveRefreshToken(1L, "john", "ROLE_USER", "s2", "n0", "Firefox");
+        inOrder.verify(delegate).revokeSession(1L, "s1");
+        assertEquals(0, store.getQueuedWrites());
+        assertEquals(CircuitBreaker.State.CLOSED, store.getState());
+    }
+
+    @Test
+    void acceptMode_shouldKeepSessionsOpenedAfterQueuedLogoutEverywhere() {
+        store = create(DegradedMode.ACCEPT);
+        openCircuit();
+
+        store.revokeAllSessions(1L, "john");
+        store.saveRefreshToken(1L, "john", "ROLE_USER", "s2", "n0", null);
+
+        assertEquals(RefreshRotation.Outcome.INVALID, store.rotate(1L, "john", "s1", "t0", "t1").getOutcome());
+        assertEquals(RefreshRotation.Outcome.UNVERIFIED, store.rotate(1L, "john", "s2", "n0", "n1").getOutcome());
+    }
+
+    @Test
+    void acceptMode_shouldFailWhenReplayQueueIsFull() {
+        store = new ResilientRefreshTokenStore(delegate, BUDGET, BUDGET, BUDGET,
+                new CircuitBreaker(2, Duration.ofSeconds(5), clock), DegradedMode.ACCEPT, Duration.ofMinutes(2), 1,
+                ResilientRefreshTokenStore.newExecutor(2, 2), clock);
+        openCircuit();
+
+        assertTrue(store.revokeSession(1L, "s1"));
+        assertThrows(RefreshStoreUnavailableException.class, () -> store.revokeSession(1L, "s2"));
+        assertEquals(RefreshRotation.Outcome.UNVERIFIED, store.rotate(1L, "john", "s2", "t0", "t1").getOutcome());
+    }
+
+    private ResilientRefreshTokenStore create(DegradedMode degradedMode) {
+        return new ResilientRefreshTokenStore(delegate, BUDGET, BUDGET, BUDGET,
+                new CircuitBreaker(2, Duration.ofSeconds(5), clock), degradedMode, Duration.ofMinutes(2), 100,
+                ResilientRefreshTokenStore.newExecutor(2, 2), clock);
+    }
+
+    private void openCircuit() {
+        lenient().doThrow(new RedisConnectionFailureException("down")).when(delegate).listSessions(99L);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(RefreshStoreUnavailableException.class, () -> store.listSessions(99L));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, store.getState());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
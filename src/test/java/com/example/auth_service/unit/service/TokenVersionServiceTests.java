@@ -0,0 +1,144 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.TokenVersionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TokenVersionServiceTests {
+
+    @Test
+    void shouldTreatUnknownUsersAsVersionZero() {
+        TokenVersionService service = new TokenVersionService();
+
+        assertEquals(0L, service.currentVersion(42L));
+        assertFalse(service.isStale(claims(42L, 0L)));
+    }
+
+    @Test
+    void bump_shouldMakeEarlierTokensStale() {
+        TokenVersionService service = new TokenVersionService();
+        AccessTokenClaims before = claims(42L, service.currentVersion(42L));
+
+        service.bump(42L);
+
+        assertTrue(service.isStale(before));
+        assertFalse(service.isStale(claims(42L, service.currentVersion(42L))));
+        assertFalse(service.isStale(claims(7L, 0L)));
+    }
+
+    @Test
+    void bumpAfterCommit_shouldWaitForTheCommit_andBumpRightAwayWithoutATransaction() {
+        TokenVersionService service = new TokenVersionService();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.bumpAfterCommit(42L);
+            assertEquals(0L, service.currentVersion(42L));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1L, service.currentVersion(42L));
+
+        service.bumpAfterCommit(42L);
+        assertEquals(2L, service.currentVersion(42L));
+    }
+
+    @Test
+    void onMessage_shouldOnlyMoveVersionsForward() {
+        TokenVersionService service = new TokenVersionService();
+
+        service.onMessage(message("42:5"), null);
+        service.onMessage(message("42:3"), null);
+
+        assertEquals(5L, service.currentVersion(42L));
+    }
+
+    @Test
+    void onMessage_shouldIgnoreMalformedMessages() {
+        TokenVersionService service = new TokenVersionService();
+
+        service.onMessage(message("garbage"), null);
+
+        assertEquals(0L, service.currentVersion(42L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bump_shouldUseSharedCounterAndPublish() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.increment(anyString(), eq("42"), eq(1L))).thenReturn(9L);
+        TokenVersionService service =
+                new TokenVersionService(redisTemplate, mock(RedisMessageListenerContainer.class), true);
+
+        assertEquals(9L, service.bump(42L));
+
+        assertEquals(9L, service.currentVersion(42L));
+        verify(redisTemplate).convertAndSend(anyString(), eq("42:9"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bump_shouldStillRevokeLocally_whenRedisIsDown() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.increment(anyString(), any(), anyLong())).thenThrow(new IllegalStateException("down"));
+        TokenVersionService service =
+                new TokenVersionService(redisTemplate, mock(RedisMessageListenerContainer.class), true);
+
+        service.bump(42L);
+
+        assertTrue(service.isStale(claims(42L, 0L)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishPending_shouldRetryBumpRedisMissed_untilItTakesIt() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.increment(anyString(), eq("42"), eq(1L)))
+                .thenThrow(new IllegalStateException("down"), new IllegalStateException("down"))
+                .thenReturn(3L);
+        TokenVersionService service =
+                new TokenVersionService(redisTemplate, mock(RedisMessageListenerContainer.class), true);
+
+        service.bump(42L);
+        service.publishPending();
+        assertEquals(1, service.getUnpublished());
+
+        service.publishPending();
+
+        assertEquals(0, service.getUnpublished());
+        assertEquals(3L, service.currentVersion(42L));
+        verify(redisTemplate).convertAndSend(anyString(), eq("42:3"));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("auth:token-versions".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static AccessTokenClaims claims(Long id, long version) {
+        return new AccessTokenClaims("k1", id, "john", "ROLE_USER", version, Instant.now().plusSeconds(60));
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.auth_service.unit.service;
+
+import com.example.auth_service.dto.UserImportSummaryDTO;
+import com.example.auth_service.entity.Person;
+import com.example.auth_service.repository.PeopleRepository;
+import com.example.auth_service.service.AvailabilityIndex;
+import com.example.auth_service.service.UserImportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTests {
+    private static final String PASSWORD = "Password1!";
+
+    @Mock
+    private PeopleRepository peopleRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private Session session;
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong ids = new AtomicLong(1000);
+    private final List<Person> saved = new ArrayList<>();
+    private final List<UserImportService> services = new ArrayList<>();
+
+    private final PasswordEncoder passwordEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    };
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(entityManager.unwrap(Session.class)).thenReturn(session);
+        lenient().when(peopleRepository.saveAll(any(Iterable.class))).thenAnswer(invocation -> {
+            Iterable<Person> people = invocation.getArgument(0);
+            people.forEach(this::assignId);
+            return people;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(UserImportService::stop);
+    }
+
+    @Test
+    void importUsers_shouldInsertValidRowsInBatches_andReportEveryRow() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UserImportService service = service(2);
+        service.bindTo(registry);
+        String body = json("john", "john@gmail.com") + "\n" +
+                json("maria", "maria@gmail.com") + "\n" +
+                json("x", "not-an-email") + "\n" +
+                "\n" +
+                json("alex", "alex@gmail.com") + "\n";
+
+        List<JsonNode> lines = run(service, body, UserImportService.Format.NDJSON);
+
+        assertEquals(5, lines.size());
+        assertCreated(lines.get(0), 1, "john");
+        assertCreated(lines.get(1), 2, "maria");
+        assertRejected(lines.get(2), 3, "email: Email should be valid; " +
+                "username: Username must be between 2 and 100 characters long");
+        assertCreated(lines.get(3), 5, "alex");
+        assertSummary(lines.get(4), 3, 1, true);
+
+        verify(peopleRepository, times(2)).saveAll(any());
+        verify(session, times(2)).setJdbcBatchSize(2);
+        assertEquals(3, saved.size());
+        assertTrue(saved.stream().allMatch(person -> person.getPassword().equals("hashed:" + PASSWORD)
+                && person.getRole().equals("ROLE_USER")));
+        verify(availabilityIndex).addAfterCommit("john", "john@gmail.com");
+        assertEquals(3.0, registry.get("auth.user-import.rows").tag("result", "created").functionCounter().count());
+        assertEquals(1.0, registry.get("auth.user-import.rows").tag("result", "rejected").functionCounter().count());
+    }
+
+    @Test
+    void importUsers_shouldReadCsvColumnsByHeader_andQuotedValues() throws Exception {
+        String body = "\uFEFFemail,Password,username\r\n" +
+                "oneil@gmail.com," + PASSWORD + ",\"O\"\"Neil, Jr\"\r\n" +
+                "broken@gmail.com," + PASSWORD + ",\"broken\r\n";
+
+        List<JsonNode> lines = run(service(10), body, UserImportService.Format.CSV);
+
+        assertCreated(lines.get(0), 2, "O\"Neil, Jr");
+        assertRejected(lines.get(1), 3, "Unterminated quoted value");
+        assertSummary(lines.get(2), 1, 1, true);
+        assertEquals("oneil@gmail.com", saved.get(0).getEmail());
+    }
+
+    @Test
+    void importUsers_shouldStop_whenCsvHeaderLacksAColumn() throws Exception {
+        List<JsonNode> lines = run(service(10), "username,email\njohn,john@gmail.com\n", UserImportService.Format.CSV);
+
+        assertEquals(1, lines.size());
+        assertSummary(lines.get(0), 0, 0, false);
+        verifyNoInteractions(peopleRepository);
+    }
+
+    @Test
+    void importUsers_shouldRejectRowsRepeatingAValue_orTakingAnExistingOne() throws Exception {
+        when(peopleRepository.findTakenUsernames(anyCollection())).thenReturn(List.of("alex"));
+        when(peopleRepository.findTakenEmails(anyCollection())).thenReturn(List.of("bob@gmail.com"));
+        String body = json("john", "john@gmail.com") + "\n" +
+                json("JOHN", "john2@gmail.com") + "\n" +
+                json("maria", "John@gmail.com") + "\n" +
+                json("alex", "alex@gmail.com") + "\n" +
+                json("bob", "bob@gmail.com") + "\n";
+
+        List<JsonNode> lines = run(service(10), body, UserImportService.Format.NDJSON);
+
+        assertCreated(lines.get(0), 1, "john");
+        assertRejected(lines.get(1), 2, "username: This username is already taken!");
+        assertRejected(lines.get(2), 3, "email: This email is already taken!");
+        assertRejected(lines.get(3), 4, "username: This username is already taken!");
+        assertRejected(lines.get(4), 5, "email: This email is already taken!");
+        assertEquals(List.of("john"), saved.stream().map(Person::getUsername).toList());
+    }
+
+    @Test
+    void importUsers_shouldIgnoreTakenValues_thatMatchNoRowOfTheBatch() throws Exception {
+        // PostgreSQL lower-cases the dotted capital I unlike Locale.ROOT, so it can answer with a key we didn't send
+        when(peopleRepository.findTakenUsernames(anyCollection())).thenReturn(List.of("i\u0307lker"));
+        when(peopleRepository.findTakenEmails(anyCollection())).thenReturn(List.of("i\u0307lker@gmail.com"));
+        String body = json("john", "john@gmail.com") + "\n";
+
+        List<JsonNode> lines = run(service(10), body, UserImportService.Format.NDJSON);
+
+        assertCreated(lines.get(0), 1, "john");
+        assertSummary(lines.get(1), 1, 0, true);
+    }
+
+    @Test
+    void importUsers_shouldInsertRowByRow_whenTheBatchHitsAUniqueIndex() throws Exception {
+        doThrow(uniqueViolation("person_email_lower_key")).when(peopleRepository).flush();
+        when(peopleRepository.saveAndFlush(any(Person.class))).thenAnswer(invocation -> {
+            Person person = invocation.getArgument(0);
+            if (person.getUsername().equals("maria")) {
+                throw uniqueViolation("person_email_lower_key");
+            }
+            assignId(person);
+            return person;
+        });
+        String body = json("john", "john@gmail.com") + "\n" + json("maria", "maria@gmail.com") + "\n";
+
+        List<JsonNode> lines = run(service(10), body, UserImportService.Format.NDJSON);
+
+        assertCreated(lines.get(0), 1, "john");
+        assertRejected(lines.get(1), 2, "email: This email is already taken!");
+        assertSummary(lines.get(2), 1, 1, true);
+        verify(availabilityIndex).addAfterCommit("john", "john@gmail.com");
+        verify(availabilityIndex, never()).addAfterCommit("maria", "maria@gmail.com");
+    }
+
+    @Test
+    void importUsers_shouldRejectMalformedLines_andGoOn() throws Exception {
+        String body = "{\"username\": \"john\",\n" + json("maria", "maria@gmail.com") + "\n";
+
+        List<JsonNode> lines = run(service(10), body, UserImportService.Format.NDJSON);
+
+        assertRejected(lines.get(0), 1, "Not a JSON object with username, email and password");
+        assertCreated(lines.get(1), 2, "maria");
+    }
+
+    @Test
+    void importUsers_shouldReportRowsAlreadyCreated_whenTheDatabaseFails() throws Exception {
+        doAnswer(invocation -> {
+            Iterable<Person> people = invocation.getArgument(0);
+            people.forEach(this::assignId);
+            return people;
+        }).doThrow(new IllegalStateException("connection lost")).when(peopleRepository).saveAll(any());
+        String body = json("john", "john@gmail.com") + "\n" + json("maria", "maria@gmail.com") + "\n";
+
+        List<JsonNode> lines = run(service(1), body, UserImportService.Format.NDJSON);
+
+        assertEquals(2, lines.size());
+        assertCreated(lines.get(0), 1, "john");
+        assertSummary(lines.get(1), 1, 0, false);
+        assertTrue(lines.get(1).get("error").asText().contains("line 2"));
+    }
+
+    private UserImportService service(int batchSize) {
+        UserImportService service = new UserImportService(peopleRepository, entityManager,
+                TransactionOperations.withoutTransaction(), passwordEncoder, validator, availabilityIndex,
+                objectMapper, batchSize, 2);
+        services.add(service);
+        return service;
+    }
+
+    private List<JsonNode> run(UserImportService service, String body, UserImportService.Format format)
+            throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        UserImportSummaryDTO summary = service.importUsers(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format, output);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertEquals(summary.getCreated(), lines.get(lines.size() - 1).get("created").asLong());
+        return lines;
+    }
+
+    private void assignId(Person person) {
+        person.setId(ids.incrementAndGet());
+        saved.add(person);
+    }
+
+    private static String json(String username, String email) {
+        return "{\"username\": \"" + username + "\", \"email\": \"" + email + "\", \"password\": \"" + PASSWORD + "\"}";
+    }
+
+    private static void assertCreated(JsonNode line, long number, String username) {
+        assertEquals(number, line.get("line").asLong());
+        assertEquals("created", line.get("status").asText());
+        assertEquals(username, line.get("username").asText());
+        assertTrue(line.get("id").asLong() > 1000);
+    }
+
+    private static void assertRejected(JsonNode line, long number, String error) {
+        assertEquals(number, line.get("line").asLong());
+        assertEquals("rejected", line.get("status").asText());
+        assertEquals(error, line.get("error").asText());
+        assertNull(line.get("id"));
+    }
+
+    private static void assertSummary(JsonNode line, long created, long rejected, boolean complete) {
+        assertEquals(created, line.get("created").asLong());
+        assertEquals(rejected, line.get("rejected").asLong());
+        assertEquals(complete, line.get("complete").asBoolean());
+    }
+
+    private static DataIntegrityViolationException uniqueViolation(String constraint) {
+        SQLException cause = new SQLException("duplicate key value violates unique constraint \"" + constraint + "\"", "23505");
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", cause, constraint));
+    }
+}
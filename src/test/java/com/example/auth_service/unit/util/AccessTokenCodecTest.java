@@ -0,0 +1,159 @@
+package com.example.auth_service.unit.util;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.AccessTokenCodec;
+import com.example.auth_service.security.JWTKeyRing;
+import com.example.auth_service.security.JWTUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessTokenCodecTest {
+    private static final String SECRET = "test-secret";
+
+    private final AccessTokenCodec codec = new AccessTokenCodec("k1", SECRET.getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void shouldMintTokens_thatAuth0Verifies() {
+        long now = Instant.now().getEpochSecond();
+        String token = codec.encode(42L, "john", "ROLE_USER", 0L, "t1", now, now + 3600);
+
+        DecodedJWT jwt = JWT.require(Algorithm.HMAC256(SECRET))
+                .withSubject(JWTUtil.ACCESS_SUBJECT)
+                .withIssuer(JWTUtil.ISSUER)
+                .build()
+                .verify(token);
+
+        assertEquals("k1", jwt.getKeyId());
+        assertEquals("HS256", jwt.getAlgorithm());
+        assertEquals(42L, jwt.getClaim("id").asLong());
+        assertEquals("john", jwt.getClaim("username").asString());
+        assertEquals("ROLE_USER", jwt.getClaim("role").asString());
+        assertEquals(0L, jwt.getClaim("ver").asLong());
+        assertEquals("t1", jwt.getId());
+        assertEquals(now, jwt.getIssuedAtAsInstant().getEpochSecond());
+        assertEquals(now + 3600, jwt.getExpiresAtAsInstant().getEpochSecond());
+    }
+
+    @Test
+    void shouldEscapeUsername_likeAnyJsonWriter() {
+        long now = Instant.now().getEpochSecond();
+        String username = "jo\"hn\\ é中😀\n";
+        String token = codec.encode(1L, username, "ROLE_USER", 0L, "t1", now, now + 60);
+
+        assertEquals(username, JWT.decode(token).getClaim("username").asString());
+        assertEquals(username, codec.decode(token).getUsername());
+    }
+
+    @Test
+    void shouldDecodeOwnTokens() {
+        long now = Instant.now().getEpochSecond();
+        AccessTokenClaims claims = codec.decode(codec.encode(42L, "john", "ROLE_ADMIN", 3L, "t1", now, now + 60));
+
+        assertNotNull(claims);
+        assertEquals("k1", claims.getKid());
+        assertEquals(42L, claims.getId());
+        assertEquals("john", claims.getUsername());
+        assertEquals("ROLE_ADMIN", claims.getRole());
+        assertEquals(3L, claims.getVersion());
+        assertEquals("t1", claims.getJti());
+        assertEquals(Instant.ofEpochSecond(now + 60), claims.getExpiresAt());
+    }
+
+    @Test
+    void shouldKeepNullClaims() {
+        long now = Instant.now().getEpochSecond();
+        String token = codec.encode(null, "john", null, 0L, "t1", now, now + 60);
+
+        AccessTokenClaims claims = codec.decode(token);
+
+        assertNull(claims.getId());
+        assertNull(claims.getRole());
+        assertTrue(JWT.decode(token).getClaim("role").isNull());
+    }
+
+    @Test
+    void shouldRejectTamperedSignature() {
+        long now = Instant.now().getEpochSecond();
+        String token = codec.encode(42L, "john", "ROLE_USER", 0L, "t1", now, now + 60);
+        int position = token.length() - 10;
+        char replacement = token.charAt(position) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, position) + replacement + token.substring(position + 1);
+
+        assertThrows(JWTVerificationException.class, () -> codec.decode(tampered));
+    }
+
+    @Test
+    void shouldRejectTokenSignedWithAnotherSecret() {
+        long now = Instant.now().getEpochSecond();
+        AccessTokenCodec other = new AccessTokenCodec("k1", "other-secret".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(JWTVerificationException.class,
+                () -> codec.decode(other.encode(42L, "john", "ROLE_USER", 0L, "t1", now, now + 60)));
+    }
+
+    @Test
+    void shouldRejectExpiredToken() {
+        long now = Instant.now().getEpochSecond();
+        String token = codec.encode(42L, "john", "ROLE_USER", 0L, "t1", now - 120, now - 60);
+
+        assertThrows(TokenExpiredException.class, () -> codec.decode(token));
+    }
+
+    @Test
+    void shouldLeaveForeignTokens_toTheGenericVerifier() {
+        String auth0Token = JWT.create()
+                .withSubject(JWTUtil.ACCESS_SUBJECT)
+                .withClaim("username", "john")
+                .withIssuer(JWTUtil.ISSUER)
+                .sign(Algorithm.HMAC256(SECRET));
+
+        assertNull(codec.decode(auth0Token));
+    }
+
+    @Test
+    void jwtUtilShouldVerifyCodecAndAuth0Tokens_withTheSameResult() {
+        JWTUtil jwtUtil = new JWTUtil(new JWTKeyRing("k1", SECRET));
+        String codecToken = jwtUtil.generateAccessToken(42L, "john", "ROLE_USER");
+        String auth0Token = JWT.create()
+                .withKeyId("k1")
+                .withSubject(JWTUtil.ACCESS_SUBJECT)
+                .withClaim("id", 42L)
+                .withClaim("username", "john")
+                .withClaim("role", "ROLE_USER")
+                .withIssuedAt(Instant.now())
+                .withIssuer(JWTUtil.ISSUER)
+                .withExpiresAt(Instant.now().plusSeconds(60))
+                .sign(Algorithm.HMAC256(SECRET));
+
+        AccessTokenClaims fromCodec = jwtUtil.verifyAccessToken(codecToken);
+        AccessTokenClaims fromAuth0 = jwtUtil.verifyAccessToken(auth0Token);
+
+        assertEquals(fromAuth0.getKid(), fromCodec.getKid());
+        assertEquals(fromAuth0.getId(), fromCodec.getId());
+        assertEquals(fromAuth0.getUsername(), fromCodec.getUsername());
+        assertEquals(fromAuth0.getRole(), fromCodec.getRole());
+        assertNotNull(fromCodec.getJti());
+    }
+
+    @Test
+    void jwtUtilShouldRejectCodecTokens_afterKeyRetired() {
+        JWTKeyRing keyRing = new JWTKeyRing("k1", SECRET);
+        JWTUtil jwtUtil = new JWTUtil(keyRing);
+        String token = jwtUtil.generateAccessToken(42L, "john", "ROLE_USER");
+        keyRing.addKey("k2", "another-secret");
+        keyRing.activate("k2");
+
+        keyRing.retireKey("k1");
+
+        assertThrows(JWTVerificationException.class, () -> jwtUtil.verifyAccessToken(token));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.auth_service.unit.util;
+
+import com.example.auth_service.util.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void shouldContainEverythingAdded() {
+        BloomFilter filter = new BloomFilter(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("token-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("token-" + i));
+        }
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("token-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void shouldSizeFromExpectedInsertions() {
+        BloomFilter filter = new BloomFilter(100_000, 0.001);
+
+        assertTrue(filter.getBitCount() >= 1_437_759);
+        assertEquals(10, filter.getHashCount());
+    }
+
+    @Test
+    void shouldRejectInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+}
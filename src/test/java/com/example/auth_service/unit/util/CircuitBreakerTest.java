@@ -0,0 +1,109 @@
+package com.example.auth_service.unit.util;
+
+import com.example.auth_service.util.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+    private static final Instant NOW = Instant.parse("2025-06-20T10:00:00Z");
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(5), clock);
+
+    @Test
+    void shouldOpenAfterConsecutiveFailures() {
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(Duration.ofSeconds(5), breaker.remainingOpen());
+    }
+
+    @Test
+    void shouldResetFailureCountOnSuccess() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldLetOneTrialThroughAfterOpenDuration() {
+        open();
+        clock.now = NOW.plusSeconds(5);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldReopenWhenTrialFails() {
+        open();
+        clock.now = NOW.plusSeconds(5);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(Duration.ofSeconds(5), breaker.remainingOpen());
+    }
+
+    @Test
+    void shouldRejectInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, Duration.ofSeconds(1), clock));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(1, Duration.ZERO, clock));
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
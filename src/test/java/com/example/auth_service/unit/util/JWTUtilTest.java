@@ -1,28 +1,39 @@
 package com.example.auth_service.unit.util;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.auth_service.security.JWTKeyRing;
 import com.example.auth_service.security.JWTUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 class JWTUtilTest {
 
+    private JWTKeyRing keyRing;
     private JWTUtil jwtUtil;
 
     @BeforeEach
     void setUp() {
-        jwtUtil = new JWTUtil();
-        // вручную установить секрет
-        // утилитный класс из org.springframework.test.util, предназначенный для работы с приватными полями и методами в тестах.
-        //
-        //Он позволяет:
-        //1. установить значение приватного поля, даже если у него нет setter,
-        //2. вызвать приватный метод.
-        ReflectionTestUtils.setField(jwtUtil, "secret", "test-secret");
+        keyRing = new JWTKeyRing("k1", "test-secret");
+        jwtUtil = new JWTUtil(keyRing);
     }
 
     @Test
@@ -40,17 +51,98 @@ class JWTUtilTest {
 
     @Test
     void shouldGenerateAndValidateRefreshToken() {
-        String token = jwtUtil.generateRefreshToken("john");
+        String token = jwtUtil.generateRefreshToken(1L, "john");
 
         DecodedJWT decodedJWT = jwtUtil.validateRefreshToken(token);
 
         assertEquals("RefreshToken", decodedJWT.getSubject());
         assertEquals("john", decodedJWT.getClaim("username").asString());
+        assertEquals(1L, decodedJWT.getClaim("id").asLong());
         assertEquals("ADMIN", decodedJWT.getIssuer());
     }
 
+    @Test
+    void shouldKeepSessionIdAcrossRotatedRefreshTokens() {
+        String first = jwtUtil.generateRefreshToken(1L, "john", "s1");
+        String second = jwtUtil.generateRefreshToken(1L, "john", "s1");
+
+        assertNotEquals(first, second);
+        assertEquals("s1", jwtUtil.validateRefreshToken(first).getClaim("sid").asString());
+        assertEquals("s1", jwtUtil.validateRefreshToken(second).getClaim("sid").asString());
+    }
+
     @Test
     void shouldThrowException_whenTokenInvalid() {
         assertThrows(Exception.class, () -> jwtUtil.validateAccessToken("invalid.token.value"));
     }
+
+    @Test
+    void shouldWriteKeyIdIntoHeader() {
+        String token = jwtUtil.generateAccessToken(1L, "john", "ROLE_USER");
+
+        assertEquals("k1", jwtUtil.validateAccessToken(token).getKeyId());
+    }
+
+    @Test
+    void shouldAcceptTokensOfPreviousKey_afterRotation() {
+        String oldToken = jwtUtil.generateAccessToken(1L, "john", "ROLE_USER");
+
+        keyRing.addKey("k2", "another-secret");
+        keyRing.activate("k2");
+        String newToken = jwtUtil.generateAccessToken(1L, "john", "ROLE_USER");
+
+        assertEquals("k1", jwtUtil.validateAccessToken(oldToken).getKeyId());
+        assertEquals("k2", jwtUtil.validateAccessToken(newToken).getKeyId());
+    }
+
+    @Test
+    void shouldRejectTokensOfRetiredKey() {
+        String oldToken = jwtUtil.generateRefreshToken(1L, "john");
+
+        keyRing.addKey("k2", "another-secret");
+        keyRing.activate("k2");
+        keyRing.retireKey("k1");
+
+        assertThrows(Exception.class, () -> jwtUtil.validateRefreshToken(oldToken));
+    }
+
+    @Test
+    void shouldNotRetireActiveKey() {
+        assertThrows(IllegalStateException.class, () -> keyRing.retireKey("k1"));
+    }
+
+    @Test
+    void shouldNotExportHmacKeys() {
+        assertTrue(keyRing.getPublicJwks().isEmpty());
+    }
+
+    @Test
+    void es256Token_shouldBeVerifiableWithPublishedJwkOnly() throws Exception {
+        JWTKeyRing ecKeyRing = new JWTKeyRing("test-secret", "ec1", "", "ES256", "", "");
+        JWTUtil ecJwtUtil = new JWTUtil(ecKeyRing);
+        String token = ecJwtUtil.generateAccessToken(1L, "john", "ROLE_USER");
+
+        List<Map<String, String>> jwks = ecKeyRing.getPublicJwks();
+        assertEquals(1, jwks.size());
+        assertEquals("ec1", jwks.get(0).get("kid"));
+
+        // a downstream service only has the JWKS, not the secret
+        DecodedJWT decodedJWT = JWT.require(Algorithm.ECDSA256(toPublicKey(jwks.get(0)), null))
+                .withIssuer("ADMIN")
+                .build()
+                .verify(token);
+        assertEquals("ES256", decodedJWT.getAlgorithm());
+        assertEquals("john", decodedJWT.getClaim("username").asString());
+        assertEquals("john", ecJwtUtil.validateAccessToken(token).getClaim("username").asString());
+    }
+
+    private static ECPublicKey toPublicKey(Map<String, String> jwk) throws Exception {
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        ECPoint point = new ECPoint(new BigInteger(1, decoder.decode(jwk.get("x"))),
+                new BigInteger(1, decoder.decode(jwk.get("y"))));
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        ECParameterSpec spec = parameters.getParameterSpec(ECParameterSpec.class);
+        return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, spec));
+    }
 }
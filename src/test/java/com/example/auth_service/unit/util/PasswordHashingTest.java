@@ -0,0 +1,68 @@
+package com.example.auth_service.unit.util;
+
+import com.example.auth_service.security.PasswordHashing;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingTest {
+
+    @Test
+    void shouldPrefixNewHashesWithCurrentAlgorithm() {
+        PasswordEncoder encoder = PasswordHashing.encoder(PasswordHashing.BCRYPT, 4, 1024, 2);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(hash.startsWith("{bcrypt}$2a$04$"), hash);
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.upgradeEncoding(hash));
+    }
+
+    @Test
+    void shouldVerifyBareHashesOfEarlierReleasesAndMarkThemOutdated() {
+        PasswordEncoder encoder = PasswordHashing.encoder(PasswordHashing.BCRYPT, 4, 1024, 2);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertFalse(encoder.matches("wrong", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    void shouldMarkLowerCostOutdated() {
+        String weak = PasswordHashing.encoder(PasswordHashing.BCRYPT, 4, 1024, 2).encode("secret");
+        PasswordEncoder stronger = PasswordHashing.encoder(PasswordHashing.BCRYPT, 5, 1024, 2);
+
+        assertTrue(stronger.matches("secret", weak));
+        assertTrue(stronger.upgradeEncoding(weak));
+    }
+
+    @Test
+    void shouldMoveBetweenAlgorithmsWithoutReset() {
+        String bcrypt = PasswordHashing.encoder(PasswordHashing.BCRYPT, 4, 1024, 2).encode("secret");
+        PasswordEncoder argon2 = PasswordHashing.encoder(PasswordHashing.ARGON2, 4, 1024, 2);
+
+        assertTrue(argon2.matches("secret", bcrypt));
+        assertTrue(argon2.upgradeEncoding(bcrypt));
+
+        String rehashed = argon2.encode("secret");
+        assertTrue(rehashed.startsWith("{argon2}$argon2id$"), rehashed);
+        assertTrue(rehashed.length() <= 255);
+        assertFalse(argon2.upgradeEncoding(rehashed));
+    }
+
+    @Test
+    void shouldKeepCalibratedStrengthWithinBounds() {
+        assertEquals(PasswordHashing.MIN_BCRYPT_STRENGTH, PasswordHashing.calibrateBcryptStrength(Duration.ofNanos(1)));
+        assertEquals(PasswordHashing.MAX_BCRYPT_STRENGTH, PasswordHashing.calibrateBcryptStrength(Duration.ofDays(1)));
+    }
+
+    @Test
+    void shouldRejectUnknownEncoder() {
+        assertThrows(IllegalArgumentException.class, () -> PasswordHashing.encoder("md5", 10, 1024, 2));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.auth_service.unit.util;
+
+import com.example.auth_service.config.PublicEndpoints;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublicEndpointsTest {
+
+    @Test
+    void shouldMatchPermitAllRoutes() {
+        assertTrue(PublicEndpoints.matches("/login"));
+        assertTrue(PublicEndpoints.matches("/registration"));
+        assertTrue(PublicEndpoints.matches("/.well-known/jwks.json"));
+        assertTrue(PublicEndpoints.matches("/swagger-ui/index.html"));
+        assertTrue(PublicEndpoints.matches("/v3/api-docs"));
+        assertTrue(PublicEndpoints.matches("/test-errors/validation"));
+    }
+
+    @Test
+    void shouldNotMatchProtectedRoutes() {
+        assertFalse(PublicEndpoints.matches("/profile"));
+        assertFalse(PublicEndpoints.matches("/refresh"));
+        assertFalse(PublicEndpoints.matches("/login/extra"));
+        assertFalse(PublicEndpoints.matches("/v3/api-docs-private"));
+    }
+
+    @Test
+    void shouldIgnoreContextPath() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setContextPath("/auth");
+
+        assertTrue(PublicEndpoints.matches(request));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.auth_service.unit.util;
+
+import com.example.auth_service.util.TokenBucketLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+    private static final Instant NOW = Instant.parse("2025-06-20T10:00:00Z");
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final TokenBucketLimiter limiter = new TokenBucketLimiter(3, Duration.ofSeconds(10), 1000, clock);
+
+    @Test
+    void shouldAllowBurstUpToCapacity() {
+        assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+        assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+        assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+
+        assertEquals(10_000, limiter.tryAcquire("1.2.3.4"));
+        assertEquals(0, limiter.tryAcquire("5.6.7.8"));
+    }
+
+    @Test
+    void shouldRefillOneTokenPerPeriod() {
+        drain("1.2.3.4");
+
+        clock.now = NOW.plusSeconds(4);
+        assertEquals(6_000, limiter.tryAcquire("1.2.3.4"));
+
+        clock.now = NOW.plusSeconds(10);
+        assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+        assertTrue(limiter.tryAcquire("1.2.3.4") > 0);
+    }
+
+    @Test
+    void shouldNotRefillBeyondCapacity() {
+        drain("1.2.3.4");
+
+        clock.now = NOW.plus(Duration.ofHours(1));
+
+        drain("1.2.3.4");
+        assertTrue(limiter.tryAcquire("1.2.3.4") > 0);
+    }
+
+    @Test
+    void shouldStayBounded_whenKeysAreUnique() {
+        TokenBucketLimiter small = new TokenBucketLimiter(3, Duration.ofSeconds(10), 64, clock);
+
+        for (int i = 0; i < 10_000; i++) {
+            small.tryAcquire("10.0." + (i >> 8) + "." + (i & 0xff));
+        }
+
+        assertTrue(small.size() <= 64, "size " + small.size());
+        assertTrue(small.evictionCount() >= 10_000 - 64);
+    }
+
+    @Test
+    void shouldRejectNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(0, Duration.ofSeconds(1), 10, clock));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(1, Duration.ZERO, 10, clock));
+    }
+
+    private void drain(String key) {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(key));
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
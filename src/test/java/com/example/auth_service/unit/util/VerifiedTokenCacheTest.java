@@ -0,0 +1,115 @@
+package com.example.auth_service.unit.util;
+
+import com.example.auth_service.security.AccessTokenClaims;
+import com.example.auth_service.security.JWTKeyRing;
+import com.example.auth_service.security.VerifiedTokenCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private JWTKeyRing keyRing;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        keyRing = new JWTKeyRing("k1", "test-secret");
+        cache = new VerifiedTokenCache(keyRing, true, 64, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldReturnCachedClaims_andCountHit() {
+        cache.put("token", claims("k1", NOW.plusSeconds(60)));
+
+        AccessTokenClaims result = cache.get("token");
+
+        assertNotNull(result);
+        assertEquals("john", result.getUsername());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    void shouldMiss_whenTokenUnknown() {
+        assertNull(cache.get("token"));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void shouldDropClaims_whenTokenExpired() {
+        MutableClock clock = new MutableClock(NOW);
+        VerifiedTokenCache expiring = new VerifiedTokenCache(keyRing, true, 64, clock);
+        expiring.put("token", claims("k1", NOW.plusSeconds(60)));
+
+        clock.now = NOW.plusSeconds(60);
+
+        assertNull(expiring.get("token"));
+        assertEquals(0, expiring.size());
+        assertEquals(1, expiring.getEvictionCount());
+    }
+
+    @Test
+    void shouldDropClaims_whenSigningKeyRetired() {
+        keyRing.addKey("k2", "another-secret");
+        cache.put("token", claims("k2", NOW.plusSeconds(60)));
+
+        keyRing.retireKey("k2");
+
+        assertNull(cache.get("token"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void shouldNeverGrowBeyondMaxEntries() {
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("token-" + i, claims("k1", NOW.plusSeconds(60)));
+        }
+
+        assertTrue(cache.size() <= 64);
+        assertTrue(cache.getEvictionCount() >= 10_000 - 64);
+    }
+
+    @Test
+    void shouldNotStoreAnything_whenDisabled() {
+        VerifiedTokenCache disabled = new VerifiedTokenCache(keyRing, false, 64, Clock.fixed(NOW, ZoneOffset.UTC));
+        disabled.put("token", claims("k1", NOW.plusSeconds(60)));
+
+        assertNull(disabled.get("token"));
+        assertEquals(0, disabled.size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private static AccessTokenClaims claims(String kid, Instant expiresAt) {
+        return new AccessTokenClaims(kid, 1L, "john", "ROLE_USER", expiresAt);
+    }
+}